@@ -0,0 +1,77 @@
+package ru.practicum.stats.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнение {@link StatsDateTimeFormat} с прежним разбором через {@link DateTimeFormatter}.
+ * {@code decodeAndParse*} повторяют {@code StatsServiceImpl.parseAndDecodeDateTime} до перехода на
+ * {@link StatsDateTimeFormat#parseUrlEncoded}. Выделения памяти видны с профайлером {@code -prof gc}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DateTimeBenchmark {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(StatsDateTimeFormat.PATTERN);
+
+    private String plain;
+    private String encoded;
+    private LocalDateTime time;
+
+    @Setup
+    public void setUp() {
+        plain = "2025-11-23 10:15:42";
+        encoded = "2025-11-23%2010%3A15%3A42";
+        time = LocalDateTime.of(2025, 11, 23, 10, 15, 42);
+    }
+
+    @Benchmark
+    public LocalDateTime parseFormatter() {
+        return LocalDateTime.parse(plain, FORMATTER);
+    }
+
+    @Benchmark
+    public LocalDateTime parseFixed() {
+        return StatsDateTimeFormat.parse(plain);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeAndParsePlainFormatter() {
+        return LocalDateTime.parse(URLDecoder.decode(plain, StandardCharsets.UTF_8), FORMATTER);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeAndParsePlainFixed() {
+        return StatsDateTimeFormat.parseUrlEncoded(plain);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeAndParseEncodedFormatter() {
+        return LocalDateTime.parse(URLDecoder.decode(encoded, StandardCharsets.UTF_8), FORMATTER);
+    }
+
+    @Benchmark
+    public LocalDateTime decodeAndParseEncodedFixed() {
+        return StatsDateTimeFormat.parseUrlEncoded(encoded);
+    }
+
+    @Benchmark
+    public String formatFormatter() {
+        return time.format(FORMATTER);
+    }
+
+    @Benchmark
+    public String formatFixed() {
+        return StatsDateTimeFormat.format(time);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.practicum.stats.bench;
+
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.mapper.EndpointHitMapper;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.StatsRepository;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Преобразования {@link EndpointHitMapper}: путь каждого хита при приёме и каждой строки статистики при выдаче.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EndpointHitMapperBenchmark {
+
+    @Param({"192.168.1.1", "2001:db8::8a2e:370:7334"})
+    public String ip;
+
+    private EndpointHitDto dto;
+    private EndpointHit entity;
+    private StatsRepository.ViewStatsProjection projection;
+
+    @Setup
+    public void setUp() {
+        dto = new EndpointHitDto(null, "ewm-main-service", "/events/42", ip, "2025-11-23 10:15:42");
+        entity = EndpointHitMapper.toEntity(dto);
+        projection = new StatsRepository.ViewStatsProjection() {
+            @Override
+            public String getApp() {
+                return "ewm-main-service";
+            }
+
+            @Override
+            public String getUri() {
+                return "/events/42";
+            }
+
+            @Override
+            public Long getHits() {
+                return 1_000L;
+            }
+        };
+    }
+
+    @Benchmark
+    public EndpointHit toEntity() {
+        return EndpointHitMapper.toEntity(dto);
+    }
+
+    @Benchmark
+    public EndpointHitDto toDto() {
+        return EndpointHitMapper.toDto(entity);
+    }
+
+    @Benchmark
+    public ViewStatsDto toViewStatsDto() {
+        return EndpointHitMapper.toViewStatsDto(projection);
+    }
+}
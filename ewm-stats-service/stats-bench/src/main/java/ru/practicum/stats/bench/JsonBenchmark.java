@@ -0,0 +1,73 @@
+package ru.practicum.stats.bench;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * JSON-сериализация DTO: тело {@code POST /hit} и ответ {@code GET /stats} из {@code rows} записей.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class JsonBenchmark {
+
+    @Param({"10", "1000"})
+    public int rows;
+
+    private ObjectWriter hitWriter;
+    private ObjectReader hitReader;
+    private ObjectWriter statsWriter;
+    private ObjectReader statsReader;
+    private EndpointHitDto hit;
+    private String hitJson;
+    private List<ViewStatsDto> stats;
+    private String statsJson;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        hitWriter = objectMapper.writerFor(EndpointHitDto.class);
+        hitReader = objectMapper.readerFor(EndpointHitDto.class);
+        statsWriter = objectMapper.writerFor(ViewStatsDto[].class);
+        statsReader = objectMapper.readerFor(ViewStatsDto[].class);
+
+        hit = new EndpointHitDto(null, "ewm-main-service", "/events/42", "192.168.1.1", "2025-11-23 10:15:42");
+        hitJson = hitWriter.writeValueAsString(hit);
+        stats = IntStream.range(0, rows)
+                .mapToObj(i -> new ViewStatsDto("ewm-main-service", "/events/" + i, (long) (rows - i) * 10))
+                .toList();
+        statsJson = statsWriter.writeValueAsString(stats.toArray(new ViewStatsDto[0]));
+    }
+
+    @Benchmark
+    public String writeHit() throws JsonProcessingException {
+        return hitWriter.writeValueAsString(hit);
+    }
+
+    @Benchmark
+    public EndpointHitDto readHit() throws JsonProcessingException {
+        return hitReader.readValue(hitJson);
+    }
+
+    @Benchmark
+    public String writeStats() throws JsonProcessingException {
+        return statsWriter.writeValueAsString(stats.toArray(new ViewStatsDto[0]));
+    }
+
+    @Benchmark
+    public ViewStatsDto[] readStats() throws JsonProcessingException {
+        return statsReader.readValue(statsJson);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.stats.bench;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.StatsServerApplication;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@code StatsServiceImpl.getStats} на встроенной H2 со схемой из миграций Flyway.
+ * База заполняется {@code hits} хитами по {@code uriCount} URI за 30 дней; объём задаётся параметрами JMH,
+ * например {@code -p hits=1000000}. Кэш результатов отключён, чтобы каждый вызов доходил до БД.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StatsServiceBenchmark {
+
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2025, 11, 1, 0, 0, 0);
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    @Param({"100000"})
+    public int hits;
+
+    @Param({"1000"})
+    public int uriCount;
+
+    @Param({"10000"})
+    public int ipCount;
+
+    /**
+     * Число URI в фильтре запроса; 0 — запрос без фильтра.
+     */
+    @Param({"0", "10"})
+    public int filterSize;
+
+    private ConfigurableApplicationContext context;
+    private StatsService statsService;
+    private String start;
+    private String end;
+    private List<String> uris;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(StatsServerApplication.class)
+                .web(WebApplicationType.NONE)
+                // OPTIMIZE_REUSE_RESULTS=FALSE: H2 не возвращает сохранённый результат повторного запроса
+                .run("--spring.datasource.url=jdbc:h2:mem:bench;DB_CLOSE_DELAY=-1;OPTIMIZE_REUSE_RESULTS=FALSE",
+                        "--spring.datasource.driver-class-name=org.h2.Driver",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--stats.ingest.mode=direct",
+                        "--stats.cache.enabled=false",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN");
+        statsService = context.getBean(StatsService.class);
+        seed();
+
+        // Границы не совпадают с началом корзин, чтобы в запросе участвовали и агрегаты, и сырые хиты
+        start = StatsDateTimeFormat.format(FIRST_DAY.plusSeconds(30));
+        end = StatsDateTimeFormat.format(FIRST_DAY.plusDays(29).plusHours(12).plusSeconds(17));
+        uris = filterSize == 0 ? null : IntStream.range(0, filterSize).mapToObj(i -> "/events/" + i).toList();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStats() {
+        return statsService.getStats(start, end, uris, false);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStatsUnique() {
+        return statsService.getStats(start, end, uris, true);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStatsUniqueApproximate() {
+        return statsService.getStats(start, end, uris, true, true);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStatsTop10() {
+        return statsService.getStats(start, end, uris, false, false, 10, 0);
+    }
+
+    private void seed() {
+        SplittableRandom random = new SplittableRandom(42);
+        long periodSeconds = FIRST_DAY.plusDays(30).toLocalDate().toEpochDay() * 86_400
+                - FIRST_DAY.toLocalDate().toEpochDay() * 86_400;
+        List<EndpointHitDto> batch = new ArrayList<>(SEED_BATCH_SIZE);
+        for (int i = 0; i < hits; i++) {
+            int ip = random.nextInt(ipCount);
+            batch.add(new EndpointHitDto(null, "ewm-main-service",
+                    "/events/" + random.nextInt(uriCount),
+                    "10." + (ip >> 16 & 0xFF) + "." + (ip >> 8 & 0xFF) + "." + (ip & 0xFF),
+                    StatsDateTimeFormat.format(FIRST_DAY.plusSeconds(random.nextLong(periodSeconds)))));
+            if (batch.size() == SEED_BATCH_SIZE) {
+                statsService.saveHits(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            statsService.saveHits(batch);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.practicum.stats.client;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Подготовка запроса {@code GET /stats} в {@link StatsClient} для {@code uriCount} URI в фильтре.
+ * Находится в пакете клиента, чтобы вызывать методы построения URL напрямую, без HTTP.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StatsClientUrlBenchmark {
+
+    @Param({"0", "10", "100"})
+    public int uriCount;
+
+    private StatsClient statsClient;
+    private LocalDateTime start;
+    private LocalDateTime end;
+    private List<String> uris;
+
+    @Setup
+    public void setUp() {
+        statsClient = new StatsClient("http://localhost:9090", new RestTemplateBuilder());
+        start = LocalDateTime.of(2025, 11, 1, 0, 0, 0);
+        end = LocalDateTime.of(2025, 11, 30, 23, 59, 59);
+        uris = IntStream.range(0, uriCount).mapToObj(i -> "/events/" + i).toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        statsClient.close();
+    }
+
+    @Benchmark
+    public String buildStatsUrlTemplate() {
+        return statsClient.buildStatsUrlTemplate(uris, false, false, false);
+    }
+
+    @Benchmark
+    public Map<String, Object> buildQueryParameters() {
+        return statsClient.buildQueryParameters(start, end, uris, false);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Буфер «хитов» для пакетной отправки в сервис статистики.
+ * Пакет уходит, как только набирается {@code batchSize} записей
+ * или истекает {@code flushIntervalMs} с момента предыдущей отправки.
+ * Очередь ограничена: при переполнении новые хиты отбрасываются, чтобы не блокировать вызывающий поток.
+ */
+@Slf4j
+class HitBatcher implements AutoCloseable {
+
+    private final BlockingQueue<EndpointHitDto> queue;
+    private final int batchSize;
+    private final Consumer<List<EndpointHitDto>> sender;
+    private final ScheduledExecutorService scheduler;
+
+    HitBatcher(int batchSize, int maxPending, long flushIntervalMs, Consumer<List<EndpointHitDto>> sender) {
+        this.queue = new LinkedBlockingQueue<>(maxPending);
+        this.batchSize = batchSize;
+        this.sender = sender;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-hit-batcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ставит хит в очередь. Если набрался полный пакет — планирует его отправку в фоновом потоке.
+     *
+     * @return {@code false}, если очередь переполнена и хит отброшен.
+     */
+    boolean add(EndpointHitDto hit) {
+        if (!queue.offer(hit)) {
+            log.warn("Очередь хитов переполнена, хит отброшен: app={}, uri={}", hit.getApp(), hit.getUri());
+            return false;
+        }
+        if (queue.size() >= batchSize) {
+            scheduler.execute(this::flush);
+        }
+        return true;
+    }
+
+    /**
+     * Отправляет все накопленные хиты пакетами не больше {@code batchSize}.
+     */
+    synchronized void flush() {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                sender.accept(batch);
+            } catch (Exception e) {
+                log.warn("Не удалось отправить пакет из {} хитов: {}", batch.size(), e.getMessage());
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+    }
+
+    int pending() {
+        return queue.size();
+    }
+
+    /**
+     * Останавливает фоновую отправку и досылает остаток очереди.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+}
@@ -0,0 +1,355 @@
+package ru.practicum.stats.client;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Локальный спул хитов, которые не удалось отправить в сервис статистики.
+ * <p>
+ * Хиты дописываются в файлы-сегменты {@code %020d.spool} записями {@code [длина][CRC32][данные]};
+ * объём спула ограничен {@code maxSegments} сегментами по {@code segmentBytes}, при заполнении
+ * новые хиты отбрасываются — вызывающий поток никогда не ждёт.
+ * Фоновый поток отправляет спул пакетами до {@code batchSize} хитов, после ошибки повторяет отправку
+ * с экспоненциальной задержкой до {@code maxBackoffMs}, а отправленные сегменты удаляет.
+ * Любая ошибка {@code sender} считается временной недоступностью сервиса, поэтому пакеты, которые сервис
+ * не примет никогда, {@code sender} должен отбрасывать сам, иначе такой пакет задержит все следующие хиты.
+ * Позиция отправки хранится в файле {@code position}, поэтому после перезапуска приложения
+ * спул досылается с места остановки; оборванная при сбое запись отбрасывается по контрольной сумме.
+ */
+@Slf4j
+class HitSpool implements AutoCloseable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.spool");
+    private static final String POSITION_FILE = "position";
+    private static final int HEADER_BYTES = 8;
+    private static final long INITIAL_BACKOFF_MS = 100;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final int batchSize;
+    private final long maxBackoffMs;
+    private final Consumer<List<EndpointHitDto>> sender;
+    // Номер сегмента → размер его завершённых записей
+    private final NavigableMap<Long, Long> segments = new ConcurrentSkipListMap<>();
+    private final FileChannel positionChannel;
+    private final Thread senderThread;
+    private FileChannel active;
+    private volatile long activeId;
+    // Позиция отправки меняется только фоновым потоком
+    private volatile long readSegment;
+    private volatile long readOffset;
+    private volatile boolean running = true;
+
+    HitSpool(Path directory, int segmentBytes, int maxSegments, int batchSize, long maxBackoffMs,
+             Consumer<List<EndpointHitDto>> sender) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.batchSize = batchSize;
+        this.maxBackoffMs = maxBackoffMs;
+        this.sender = sender;
+        try {
+            Files.createDirectories(directory);
+            this.positionChannel = FileChannel.open(directory.resolve(POSITION_FILE), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            readPosition();
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    long id = Long.parseLong(matcher.group(1));
+                    if (id < readSegment) {
+                        Files.delete(file);
+                    } else {
+                        segments.put(id, Files.size(file));
+                    }
+                }
+            }
+            openSegment(segments.isEmpty() ? readSegment + 1 : segments.lastKey() + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть спул хитов " + directory, e);
+        }
+        this.senderThread = new Thread(this::runSender, "stats-hit-spool");
+        this.senderThread.setDaemon(true);
+        this.senderThread.start();
+        if (backlogged()) {
+            log.info("Спул хитов {} содержит неотправленные хиты, отправка возобновлена", directory);
+        }
+    }
+
+    /**
+     * Дописывает хиты в спул.
+     *
+     * @return {@code false}, если спул заполнен или запись не удалась и хиты отброшены.
+     */
+    boolean append(List<EndpointHitDto> hits) {
+        ByteBuffer records;
+        try {
+            records = encode(hits);
+        } catch (IOException e) {
+            log.warn("Не удалось подготовить хиты для спула: {}", e.getMessage());
+            return false;
+        }
+        synchronized (this) {
+            if (!running) {
+                return false;
+            }
+            try {
+                long size = segments.get(activeId);
+                if (size > 0 && size + records.remaining() > segmentBytes) {
+                    if (segments.size() >= maxSegments) {
+                        log.warn("Спул хитов заполнен, отброшено хитов: {}", hits.size());
+                        return false;
+                    }
+                    active.close();
+                    openSegment(activeId + 1);
+                    size = 0;
+                }
+                while (records.hasRemaining()) {
+                    size += active.write(records, size);
+                }
+                segments.put(activeId, size);
+                return true;
+            } catch (IOException e) {
+                log.warn("Не удалось записать хиты в спул: {}", e.getMessage());
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Есть ли в спуле неотправленные хиты. Пока они есть, новые хиты тоже направляются в спул,
+     * чтобы не ждать таймаута недоступного сервиса в потоке вызывающего кода.
+     */
+    boolean backlogged() {
+        return pendingBytes() > 0;
+    }
+
+    /**
+     * Объём неотправленных данных в байтах.
+     */
+    long pendingBytes() {
+        long pending = 0;
+        for (Map.Entry<Long, Long> segment : segments.tailMap(readSegment, true).entrySet()) {
+            pending += segment.getValue() - (segment.getKey() == readSegment ? readOffset : 0);
+        }
+        return Math.max(0, pending);
+    }
+
+    /**
+     * Цикл фонового потока: отправляет пакеты, пока спул не пуст; после ошибки ждёт, удваивая задержку.
+     */
+    private void runSender() {
+        long backoffMs = INITIAL_BACKOFF_MS;
+        while (running) {
+            boolean sent;
+            try {
+                sent = sendBatch();
+                backoffMs = INITIAL_BACKOFF_MS;
+            } catch (IOException e) {
+                log.warn("Не удалось прочитать спул хитов: {}", e.getMessage());
+                sent = false;
+            } catch (Exception e) {
+                log.debug("Сервис статистики недоступен, повтор отправки спула через {} мс: {}", backoffMs, e.getMessage());
+                pause(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+                continue;
+            }
+            if (!sent) {
+                pause(INITIAL_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * Отправляет следующий пакет спула и сдвигает позицию отправки.
+     *
+     * @return {@code false}, если отправлять нечего.
+     */
+    private boolean sendBatch() throws IOException {
+        List<EndpointHitDto> batch = new ArrayList<>(batchSize);
+        Map.Entry<Long, Long> entry = segments.ceilingEntry(readSegment);
+        // Дочитанный сегмент, в который больше не пишут, удаляется
+        while (entry != null && entry.getKey() < activeId && readOffsetIn(entry.getKey()) >= entry.getValue()) {
+            segments.remove(entry.getKey());
+            Files.deleteIfExists(segmentPath(entry.getKey()));
+            entry = segments.ceilingEntry(entry.getKey() + 1);
+        }
+        if (entry == null) {
+            return false;
+        }
+        long segment = entry.getKey();
+        long offset = readOffsetIn(segment);
+        long end = entry.getValue();
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            while (batch.size() < batchSize && offset + HEADER_BYTES <= end) {
+                ByteBuffer header = read(channel, offset, HEADER_BYTES);
+                int length = header.getInt();
+                ByteBuffer payload = length > 0 && offset + HEADER_BYTES + length <= end
+                        ? read(channel, offset + HEADER_BYTES, length)
+                        : null;
+                if (payload == null || header.getInt() != checksum(payload)) {
+                    // Запись оборвана при сбое: остаток сегмента не читается
+                    log.warn("Повреждённая запись в спуле хитов, сегмент {} дочитан до {}", segment, offset);
+                    offset = end;
+                    break;
+                }
+                batch.add(decode(payload));
+                offset += HEADER_BYTES + length;
+            }
+        }
+        if (offset == readOffsetIn(segment)) {
+            return false;
+        }
+        if (!batch.isEmpty()) {
+            sender.accept(batch);
+        }
+        readOffset = offset;
+        readSegment = segment;
+        writePosition();
+        return !batch.isEmpty();
+    }
+
+    private long readOffsetIn(long segment) {
+        return segment == readSegment ? readOffset : 0;
+    }
+
+    private void openSegment(long id) throws IOException {
+        active = FileChannel.open(segmentPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        activeId = id;
+        segments.putIfAbsent(id, active.size());
+    }
+
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d.spool", id));
+    }
+
+    private void readPosition() throws IOException {
+        if (positionChannel.size() >= 2 * Long.BYTES) {
+            ByteBuffer position = read(positionChannel, 0, 2 * Long.BYTES);
+            readSegment = position.getLong();
+            readOffset = position.getLong();
+        }
+    }
+
+    private void writePosition() throws IOException {
+        ByteBuffer position = ByteBuffer.allocate(2 * Long.BYTES).putLong(readSegment).putLong(readOffset).flip();
+        positionChannel.write(position, 0);
+    }
+
+    private void pause(long ms) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        try {
+            while (running && System.nanoTime() < deadline) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    private static ByteBuffer encode(List<EndpointHitDto> hits) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (EndpointHitDto hit : hits) {
+            ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+            DataOutputStream payload = new DataOutputStream(payloadBytes);
+            writeNullable(payload, hit.getApp());
+            writeNullable(payload, hit.getUri());
+            writeNullable(payload, hit.getIp());
+            writeNullable(payload, hit.getTimestamp());
+            out.writeInt(payloadBytes.size());
+            out.writeInt(checksum(ByteBuffer.wrap(payloadBytes.toByteArray())));
+            payloadBytes.writeTo(out);
+        }
+        return ByteBuffer.wrap(bytes.toByteArray());
+    }
+
+    private static EndpointHitDto decode(ByteBuffer payload) {
+        return new EndpointHitDto(null, readNullable(payload), readNullable(payload), readNullable(payload),
+                readNullable(payload));
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readNullable(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Неожиданный конец файла спула");
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Останавливает фоновую отправку. Неотправленные хиты остаются в спуле до следующего запуска.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            senderThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                active.close();
+                positionChannel.close();
+            } catch (IOException e) {
+                log.warn("Не удалось закрыть спул хитов: {}", e.getMessage());
+            }
+        }
+    }
+}
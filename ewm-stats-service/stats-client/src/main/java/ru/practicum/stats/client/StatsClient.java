@@ -1,43 +1,135 @@
 package ru.practicum.stats.client;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.*;
 import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.NonNull;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.stats.client.StatsClientMetrics.DropReason;
+import ru.practicum.stats.client.StatsClientMetrics.FallbackReason;
+import ru.practicum.stats.client.StatsClientMetrics.Operation;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * HTTP-клиент для сервиса статистики.
  * Позволяет:
  * - Отправлять информацию о посещении (hit)
  * - Получать статистику просмотров
+ * - Делать то же самое неблокирующе ({@code hitAsync}, {@code getStatsAsync})
+ * - Читать большую статистику потоком ({@code streamStats})
+ * - Получать просмотры по корзинам времени для графиков ({@code getTimeSeries})
+ * - Выполнять несколько запросов статистики за один HTTP-запрос ({@code getStatsBatch})
+ * - Сохранять неотправленные хиты в локальный спул и досылать их, когда сервис снова доступен
+ * Ошибки не пробрасываются вызывающему коду, а учитываются в метриках {@link StatsClientMetrics}.
  */
 @Component
 @Slf4j
 public class StatsClient {
 
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final ObjectReader STATS_READER = new ObjectMapper().readerFor(ViewStatsDto.class);
     private final RestTemplate restTemplate;
+    private final CloseableHttpClient httpClient;
+    private final StatsClientMetrics metrics;
+    @Nullable
+    private final HitBatcher hitBatcher;
+    @Nullable
+    private final HitSpool hitSpool;
+    @Nullable
+    private final StatsResponseCache statsCache;
+    private final ExecutorService asyncExecutor;
+    private final Semaphore asyncPermits;
 
+    public StatsClient(String serverUrl, RestTemplateBuilder builder) {
+        this(StatsClientProperties.builder(serverUrl).build(), builder, null);
+    }
+
+    /**
+     * @param properties    Настройки клиента; см. {@link StatsClientProperties}.
+     * @param meterRegistry Реестр метрик; если бина реестра нет — глобальный {@link Metrics#globalRegistry}.
+     */
     @Autowired
-    public StatsClient(@Value("${stats-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public StatsClient(StatsClientProperties properties,
+                       RestTemplateBuilder builder,
+                       @Nullable MeterRegistry meterRegistry) {
+        if (properties.getUrl() == null || properties.getUrl().isBlank()) {
+            throw new IllegalArgumentException("Не задан URL сервиса статистики (stats-server.url)");
+        }
+        StatsClientProperties.Batch batch = properties.getBatch();
+        StatsClientProperties.Cache cache = properties.getCache();
+        StatsClientProperties.Spool spool = properties.getSpool();
+        int maxInFlight = properties.getAsync().getMaxInFlight();
+        this.metrics = new StatsClientMetrics(meterRegistry != null ? meterRegistry : Metrics.globalRegistry);
+        // Пул соединений создаётся здесь, а не фабрикой RestTemplateBuilder, чтобы его загрузку можно было измерять
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .useSystemProperties()
+                .build();
+        this.httpClient = HttpClientBuilder.create()
+                .useSystemProperties()
+                .setConnectionManager(connectionManager)
+                .build();
+        metrics.bindConnectionPool(connectionManager);
         this.restTemplate = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl))
-                .requestFactory(HttpComponentsClientHttpRequestFactory.class)
+                .uriTemplateHandler(new DefaultUriBuilderFactory(properties.getUrl()))
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .setConnectTimeout(Duration.ofMillis(properties.getConnectTimeoutMs()))
+                .setReadTimeout(Duration.ofMillis(properties.getReadTimeoutMs()))
                 .build();
+        this.hitSpool = spool.isEnabled()
+                ? new HitSpool(Path.of(spool.getDir()), spool.getSegmentSizeBytes(), spool.getMaxSegments(),
+                        batch.getSize(), spool.getMaxBackoffMs(), this::sendSpooled)
+                : null;
+        this.hitBatcher = batch.isEnabled()
+                ? new HitBatcher(batch.getSize(), batch.getMaxPending(), batch.getFlushIntervalMs(), this::sendBatch)
+                : null;
+        this.statsCache = cache.isEnabled() ? new StatsResponseCache(cache.getMaxSize(), cache.getTtlMs()) : null;
+        // Блокирующие вызовы RestTemplate выполняются в виртуальных потоках: ожидание ответа не занимает
+        // поток платформы, а число одновременных запросов ограничивает семафор
+        this.asyncExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.asyncPermits = new Semaphore(maxInFlight);
+        metrics.bindInFlight(asyncPermits, maxInFlight);
+        if (hitBatcher != null) {
+            metrics.bindPendingHits(hitBatcher);
+        }
+        if (hitSpool != null) {
+            metrics.bindSpool(hitSpool);
+        }
     }
 
     /**
@@ -56,9 +148,23 @@ public class StatsClient {
                 app,
                 uri,
                 ip,
-                timestamp.format(FORMATTER)  // Преобразуем LocalDateTime в строку в формате "yyyy-MM-dd HH:mm:ss"
+                StatsDateTimeFormat.format(timestamp)  // Преобразуем LocalDateTime в строку в формате "yyyy-MM-dd HH:mm:ss"
         );
 
+        // Пока спул не отправлен, сервис, скорее всего, недоступен: хит сразу дописывается в спул.
+        if (hitSpool != null && hitSpool.backlogged()) {
+            spoolOrDrop(List.of(hitDto), DropReason.SEND_FAILED);
+            return;
+        }
+
+        // В пакетном режиме хит только ставится в очередь — отправка произойдёт в фоне.
+        if (hitBatcher != null) {
+            if (!hitBatcher.add(hitDto)) {
+                spoolOrDrop(List.of(hitDto), DropReason.QUEUE_FULL);
+            }
+            return;
+        }
+
         // Указываем, что тело запроса будет в формате JSON.
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
@@ -66,10 +172,12 @@ public class StatsClient {
         // Оборачиваем DTO и заголовки в HTTP-сущность для отправки.
         HttpEntity<EndpointHitDto> requestEntity = new HttpEntity<>(hitDto, headers);
 
+        Timer.Sample sample = metrics.start();
         try {
             // Отправляем POST-запрос на эндпоинт "/hit" сервиса статистики.
             // Используем postForEntity — он предназначен специально для POST-запросов.
             restTemplate.postForEntity("/hit", requestEntity, Void.class);
+            metrics.recordSuccess(sample, Operation.HIT);
 
             // Успешная отправка: логируем отладочную информацию.
             log.debug("Данные о запросе успешно отправлены в сервис статистики: app={}, uri={}, ip={}, timestamp={}",
@@ -79,10 +187,194 @@ public class StatsClient {
             // В случае ошибки (недоступность сервиса, таймаут и т.п.) логируем предупреждение.
             // Исключение НЕ пробрасывается выше, так как сбор статистики не критичен
             // для основной бизнес-логики приложения.
+            metrics.recordFailure(sample, Operation.HIT, e);
+            if (isRejected(e)) {
+                // Отклонённый сервисом хит не примется и при повторе — в спул он не попадает
+                metrics.recordDropped(DropReason.REJECTED, 1);
+            } else {
+                spoolOrDrop(List.of(hitDto), DropReason.SEND_FAILED);
+            }
             log.warn("Не удалось отправить данные о запросе в сервис статистики: {}", e.getMessage());
         }
     }
 
+    /**
+     * Неблокирующий вариант {@link #hit}: вызывающий поток не ждёт ответа сервиса статистики.
+     * Ошибки отправки, как и в {@link #hit}, только логируются, поэтому future всегда завершается успешно.
+     * При исчерпании лимита одновременных запросов хит отбрасывается.
+     */
+    public CompletableFuture<Void> hitAsync(String app, String uri, String ip, LocalDateTime timestamp) {
+        if (hitBatcher != null) {
+            hit(app, uri, ip, timestamp);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!asyncPermits.tryAcquire()) {
+            EndpointHitDto hitDto = new EndpointHitDto(null, app, uri, ip, StatsDateTimeFormat.format(timestamp));
+            if (!spoolOrDrop(List.of(hitDto), DropReason.IN_FLIGHT_LIMIT)) {
+                log.warn("Превышен лимит одновременных запросов к сервису статистики, хит отброшен: app={}, uri={}",
+                        app, uri);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return submitAsync(() -> {
+            hit(app, uri, ip, timestamp);
+            return null;
+        }, null, () -> metrics.recordDropped(DropReason.SHUTDOWN, 1));
+    }
+
+    /**
+     * Неблокирующий вариант {@link #getStats(LocalDateTime, LocalDateTime, List, boolean, boolean)}.
+     * Future завершается пустым списком при ошибке, таймауте или исчерпании лимита одновременных запросов.
+     */
+    public CompletableFuture<List<ViewStatsDto>> getStatsAsync(
+            @NonNull LocalDateTime start,
+            @NonNull LocalDateTime end,
+            @Nullable List<String> uris,
+            boolean unique,
+            boolean approximate
+    ) {
+        if (!asyncPermits.tryAcquire()) {
+            metrics.recordFallback(FallbackReason.IN_FLIGHT_LIMIT);
+            log.warn("Превышен лимит одновременных запросов к сервису статистики, возвращена пустая статистика");
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        return submitAsync(() -> getStats(start, end, uris, unique, approximate), Collections.emptyList(),
+                () -> metrics.recordFallback(FallbackReason.SHUTDOWN));
+    }
+
+    /**
+     * Выполняет задачу в асинхронном исполнителе и освобождает разрешение семафора по её завершении.
+     *
+     * @param onRejected Учитывает в метриках задачу, не принятую остановленным исполнителем.
+     */
+    private <T> CompletableFuture<T> submitAsync(Supplier<T> task, T fallback, Runnable onRejected) {
+        try {
+            return CompletableFuture.supplyAsync(task, asyncExecutor)
+                    .exceptionally(e -> {
+                        log.warn("Асинхронный запрос к сервису статистики завершился ошибкой: {}", e.getMessage());
+                        return fallback;
+                    })
+                    .whenComplete((result, e) -> asyncPermits.release());
+        } catch (RejectedExecutionException e) {
+            asyncPermits.release();
+            onRejected.run();
+            log.warn("Клиент статистики остановлен, асинхронный запрос не выполнен");
+            return CompletableFuture.completedFuture(fallback);
+        }
+    }
+
+    /**
+     * Отправляет пакет из очереди {@link HitBatcher}. Неотправленный пакет сохраняется в спул,
+     * а без спула ошибка пробрасывается {@link HitBatcher}, который её логирует.
+     * Пакет, отклонённый сервисом с кодом 4xx, отбрасывается.
+     */
+    private void sendBatch(List<EndpointHitDto> hits) {
+        try {
+            sendHits(hits);
+        } catch (RuntimeException e) {
+            if (isRejected(e)) {
+                metrics.recordDropped(DropReason.REJECTED, hits.size());
+                log.warn("Сервис статистики отклонил пакет из {} хитов, пакет отброшен: {}", hits.size(), e.getMessage());
+                return;
+            }
+            if (!spoolOrDrop(hits, DropReason.SEND_FAILED)) {
+                throw e;
+            }
+            log.warn("Не удалось отправить пакет из {} хитов, пакет сохранён в спул: {}", hits.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Отправляет пакет из спула {@link HitSpool}. Пакет, отклонённый сервисом с кодом 4xx, отбрасывается
+     * без ошибки, чтобы спул сдвинул позицию отправки, а не повторял его бесконечно и не задерживал
+     * следующие хиты. Остальные ошибки пробрасываются, и спул повторяет отправку с задержкой.
+     */
+    private void sendSpooled(List<EndpointHitDto> hits) {
+        try {
+            sendHits(hits);
+        } catch (RuntimeException e) {
+            if (!isRejected(e)) {
+                throw e;
+            }
+            metrics.recordDropped(DropReason.REJECTED, hits.size());
+            log.warn("Сервис статистики отклонил пакет из {} хитов спула, пакет отброшен: {}", hits.size(),
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Отклонил ли сервис запрос окончательно: ответ 4xx не изменится при повторе, кроме 408 и 429,
+     * которые, как 5xx и ошибки ввода-вывода, означают временную недоступность.
+     */
+    static boolean isRejected(Exception e) {
+        if (!(e instanceof HttpClientErrorException clientError)) {
+            return false;
+        }
+        int status = clientError.getStatusCode().value();
+        return status != HttpStatus.REQUEST_TIMEOUT.value() && status != HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * Сохраняет хиты в спул, если он включён, иначе учитывает их как отброшенные по причине {@code reason}.
+     *
+     * @return {@code true}, если хиты сохранены в спул.
+     */
+    private boolean spoolOrDrop(List<EndpointHitDto> hits, DropReason reason) {
+        if (hitSpool == null) {
+            metrics.recordDropped(reason, hits.size());
+            return false;
+        }
+        if (!hitSpool.append(hits)) {
+            metrics.recordDropped(DropReason.SPOOL_FULL, hits.size());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Отправляет пакет хитов в сервис статистики одним запросом {@code POST /hits}.
+     * Ошибки учитываются в метриках и пробрасываются вызывающему коду.
+     */
+    private void sendHits(List<EndpointHitDto> hits) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Timer.Sample sample = metrics.start();
+        try {
+            restTemplate.postForEntity("/hits", new HttpEntity<>(hits, headers), Void.class);
+            metrics.recordSuccess(sample, Operation.HITS);
+        } catch (RuntimeException e) {
+            metrics.recordFailure(sample, Operation.HITS, e);
+            throw e;
+        }
+        log.debug("Пакет из {} хитов успешно отправлен в сервис статистики", hits.size());
+    }
+
+    /**
+     * Дожидается асинхронных запросов и досылает накопленные хиты при остановке приложения.
+     * Хиты, оставшиеся в спуле, будут отправлены после следующего запуска.
+     */
+    @PreDestroy
+    public void close() {
+        asyncExecutor.shutdown();
+        try {
+            asyncExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (hitBatcher != null) {
+            hitBatcher.close();
+        }
+        if (hitSpool != null) {
+            hitSpool.close();
+        }
+        try {
+            httpClient.close();
+        } catch (IOException e) {
+            log.warn("Не удалось закрыть HTTP-клиент сервиса статистики: {}", e.getMessage());
+        }
+    }
+
     /**
      * Получает статистику просмотров за заданный период из внешнего сервиса статистики.
      *
@@ -99,15 +391,197 @@ public class StatsClient {
             @NonNull LocalDateTime end,
             @Nullable List<String> uris,
             boolean unique
+    ) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    /**
+     * Получает статистику просмотров с возможностью приближённого подсчёта уникальных IP.
+     *
+     * @param approximate При {@code unique=true} запросить оценку по скетчам HyperLogLog:
+     *                    ответ быстрее, а в каждой записи заполнено {@link ViewStatsDto#getRelativeError()}.
+     * @see #getStats(LocalDateTime, LocalDateTime, List, boolean)
+     */
+    public List<ViewStatsDto> getStats(
+            @NonNull LocalDateTime start,
+            @NonNull LocalDateTime end,
+            @Nullable List<String> uris,
+            boolean unique,
+            boolean approximate
+    ) {
+        return getStats(start, end, uris, unique, approximate, null, 0);
+    }
+
+    /**
+     * Получает страницу статистики, отсортированной по убыванию просмотров.
+     * Ограничение применяется на стороне сервиса в SQL-запросе, поэтому для «топ-10» передаётся
+     * и обрабатывается только 10 записей.
+     *
+     * @param limit  Максимальное число записей или {@code null} — без ограничения.
+     * @param offset Сколько первых записей пропустить.
+     * @see #getStats(LocalDateTime, LocalDateTime, List, boolean, boolean)
+     */
+    public List<ViewStatsDto> getStats(
+            @NonNull LocalDateTime start,
+            @NonNull LocalDateTime end,
+            @Nullable List<String> uris,
+            boolean unique,
+            boolean approximate,
+            @Nullable Integer limit,
+            int offset
     ) {
         // 1. Формируем параметры запроса
         Map<String, Object> queryParams = buildQueryParameters(start, end, uris, unique);
+        if (approximate) {
+            queryParams.put("approximate", true);
+        }
+        if (limit != null) {
+            queryParams.put("limit", limit);
+        }
+        if (offset > 0) {
+            queryParams.put("offset", offset);
+        }
 
         // 2. Формируем URL-шаблон с поддержкой динамического количества URI
-        String urlTemplate = buildStatsUrlTemplate(uris);
+        String urlTemplate = buildStatsUrlTemplate(uris, approximate, limit != null, offset > 0);
 
-        // 3. Выполняем запрос и обрабатываем ответ
-        return sendStatsRequest(urlTemplate, queryParams);
+        // 3. Выполняем запрос (или берём ответ из кэша) и обрабатываем ошибки
+        try {
+            if (statsCache == null) {
+                return sendStatsRequest(urlTemplate, queryParams);
+            }
+            return statsCache.get(StatsResponseCache.Key.of(start, end, uris, unique, approximate, limit, offset),
+                    () -> sendStatsRequest(urlTemplate, queryParams));
+        } catch (RestClientException e) {
+            metrics.recordFallback(FallbackReason.ERROR);
+            log.error("Ошибка при обращении к сервису статистики: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Читает статистику из потокового эндпоинта {@code GET /stats/stream} (NDJSON) и передаёт записи
+     * в {@code consumer} по мере получения, не накапливая ответ в памяти. Подходит для запросов
+     * без фильтра по URI за длинные периоды, где результат может содержать сотни тысяч записей.
+     * Ошибки, как и в {@link #getStats}, только логируются; записи, полученные до ошибки, уже переданы.
+     *
+     * @return число переданных в {@code consumer} записей.
+     */
+    public long streamStats(
+            @NonNull LocalDateTime start,
+            @NonNull LocalDateTime end,
+            @Nullable List<String> uris,
+            boolean unique,
+            Consumer<ViewStatsDto> consumer
+    ) {
+        Map<String, Object> queryParams = buildQueryParameters(start, end, uris, unique);
+        String urlTemplate = buildStatsUrlTemplate(uris, false, false, false)
+                .replaceFirst("^/stats", "/stats/stream");
+
+        long[] count = {0};
+        Timer.Sample sample = metrics.start();
+        try {
+            restTemplate.execute(urlTemplate, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON)),
+                    response -> {
+                        try (MappingIterator<ViewStatsDto> rows = STATS_READER.readValues(response.getBody())) {
+                            while (rows.hasNextValue()) {
+                                consumer.accept(rows.nextValue());
+                                count[0]++;
+                            }
+                        }
+                        return null;
+                    },
+                    queryParams);
+            metrics.recordSuccess(sample, Operation.STREAM);
+            log.debug("Потоковая статистика получена: {} записей", count[0]);
+        } catch (RestClientException e) {
+            metrics.recordFailure(sample, Operation.STREAM, e);
+            log.error("Ошибка при потоковом чтении статистики после {} записей: {}", count[0], e.getMessage(), e);
+        }
+        return count[0];
+    }
+
+    /**
+     * Выполняет несколько запросов статистики одним запросом {@code POST /stats/batch}, например за день,
+     * неделю и всё время для одних и тех же URI. Сервис считает запросы с одинаковыми периодом и {@code unique}
+     * одним чтением. Ошибки, как и в {@link #getStats}, только логируются.
+     *
+     * @param queries Запросы; удобно создавать через {@link StatsBatchQueryDto#of}.
+     * @return Результаты в порядке запросов. В случае ошибки — пустой список для каждого запроса.
+     */
+    public List<List<ViewStatsDto>> getStatsBatch(@NonNull List<StatsBatchQueryDto> queries) {
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+
+        Timer.Sample sample = metrics.start();
+        try {
+            ResponseEntity<ViewStatsDto[][]> response = restTemplate.postForEntity(
+                    "/stats/batch",
+                    new HttpEntity<>(queries, headers),
+                    ViewStatsDto[][].class
+            );
+            ViewStatsDto[][] body = response.getBody();
+            if (response.getStatusCode() != HttpStatus.OK || body == null || body.length != queries.size()) {
+                throw new RestClientException("Сервис статистики вернул пустой или некорректный ответ. Статус: "
+                        + response.getStatusCode());
+            }
+            metrics.recordSuccess(sample, Operation.BATCH);
+            log.debug("Получены результаты пакета из {} запросов статистики", body.length);
+            return Arrays.stream(body).map(Arrays::asList).toList();
+        } catch (RestClientException e) {
+            metrics.recordFailure(sample, Operation.BATCH, e);
+            metrics.recordFallback(FallbackReason.ERROR);
+            log.error("Ошибка при пакетном запросе статистики: {}", e.getMessage(), e);
+            return Collections.nCopies(queries.size(), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Получает просмотры каждой пары (сервис, URI) по корзинам шага {@code interval} из эндпоинта
+     * {@code GET /stats/timeseries}: весь ряд для графика строится одним запросом вместо запроса на каждую корзину.
+     * Ошибки, как и в {@link #getStats}, только логируются.
+     *
+     * @param interval Шаг корзин: минута, час или сутки.
+     * @return Записи по сервису, URI и началу корзины; корзины без просмотров отсутствуют.
+     *         Пустой список в случае ошибки или отсутствия данных.
+     * @see #getStats(LocalDateTime, LocalDateTime, List, boolean)
+     */
+    public List<TimeSeriesStatsDto> getTimeSeries(
+            @NonNull LocalDateTime start,
+            @NonNull LocalDateTime end,
+            @Nullable List<String> uris,
+            boolean unique,
+            @NonNull StatsInterval interval
+    ) {
+        Map<String, Object> queryParams = buildQueryParameters(start, end, uris, unique);
+        queryParams.put("interval", interval.name());
+        String urlTemplate = buildStatsUrlTemplate(uris, false, false, false)
+                .replaceFirst("^/stats", "/stats/timeseries") + "&interval={interval}";
+
+        Timer.Sample sample = metrics.start();
+        try {
+            ResponseEntity<TimeSeriesStatsDto[]> response = restTemplate.getForEntity(
+                    urlTemplate,
+                    TimeSeriesStatsDto[].class,
+                    queryParams
+            );
+            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+                throw new RestClientException("Сервис статистики вернул пустой или некорректный ответ. Статус: "
+                        + response.getStatusCode());
+            }
+            metrics.recordSuccess(sample, Operation.TIMESERIES);
+            log.debug("Получен временной ряд: {} записей", response.getBody().length);
+            return Arrays.asList(response.getBody());
+        } catch (RestClientException e) {
+            metrics.recordFailure(sample, Operation.TIMESERIES, e);
+            metrics.recordFallback(FallbackReason.ERROR);
+            log.error("Ошибка при получении временного ряда: {}", e.getMessage(), e);
+            return Collections.emptyList();
+        }
     }
 
     /**
@@ -120,7 +594,8 @@ public class StatsClient {
      * @param unique Флаг уникальности по IP.
      * @return Карта параметров, готовая к использованию с {@link RestTemplate}.
      */
-    private Map<String, Object> buildQueryParameters(
+    // Доступен пакету: измеряется бенчмарком StatsClientUrlBenchmark в stats-bench
+    Map<String, Object> buildQueryParameters(
             LocalDateTime start,
             LocalDateTime end,
             @Nullable List<String> uris,
@@ -129,8 +604,8 @@ public class StatsClient {
         Map<String, Object> params = new HashMap<>();
 
         // Кодируем временные метки в соответствии с ожидаемым форматом сервиса
-        params.put("start", start.format(FORMATTER));
-        params.put("end", end.format(FORMATTER));
+        params.put("start", StatsDateTimeFormat.format(start));
+        params.put("end", StatsDateTimeFormat.format(end));
         params.put("unique", unique);
 
         // Добавляем URI, если они заданы
@@ -148,12 +623,25 @@ public class StatsClient {
      * Формирует шаблон URL для запроса статистики с поддержкой переменного числа параметров {@code uris}.
      * Используется совместно с картой параметров, где URI представлены как {@code uris0}, {@code uris1}, и т.д.
      *
-     * @param uris Список URI (может быть null или пустым).
+     * @param uris        Список URI (может быть null или пустым).
+     * @param approximate Добавить параметр {@code approximate}.
+     * @param limit       Добавить параметр {@code limit}.
+     * @param offset      Добавить параметр {@code offset}.
      * @return Шаблон URL с подстановочными переменными, например:
      *         {@code /stats?start={start}&end={end}&unique={unique}&uris={uris0}&uris={uris1}}
      */
-    private String buildStatsUrlTemplate(@Nullable List<String> uris) {
+    // Доступен пакету: измеряется бенчмарком StatsClientUrlBenchmark в stats-bench
+    String buildStatsUrlTemplate(@Nullable List<String> uris, boolean approximate, boolean limit, boolean offset) {
         StringBuilder url = new StringBuilder("/stats?start={start}&end={end}&unique={unique}");
+        if (approximate) {
+            url.append("&approximate={approximate}");
+        }
+        if (limit) {
+            url.append("&limit={limit}");
+        }
+        if (offset) {
+            url.append("&offset={offset}");
+        }
 
         if (uris != null && !uris.isEmpty()) {
             for (int i = 0; i < uris.size(); i++) {
@@ -165,14 +653,16 @@ public class StatsClient {
     }
 
     /**
-     * Выполняет HTTP GET-запрос к сервису статистики и обрабатывает ответ.
-     * В случае ошибки или недопустимого статуса возвращает пустой список.
+     * Выполняет HTTP GET-запрос к сервису статистики и проверяет ответ.
      *
      * @param urlTemplate Шаблон URL с переменными подстановки.
      * @param queryParams Параметры запроса для подстановки в URL.
-     * @return Список статистики или пустой список при ошибке.
+     * @return Список статистики.
+     * @throws RestClientException при ошибке запроса или недопустимом ответе; такие ответы не кэшируются.
      */
     private List<ViewStatsDto> sendStatsRequest(String urlTemplate, Map<String, Object> queryParams) {
+        Timer.Sample sample = metrics.start();
+        ViewStatsDto[] body;
         try {
             ResponseEntity<ViewStatsDto[]> response = restTemplate.getForEntity(
                     urlTemplate,
@@ -180,18 +670,17 @@ public class StatsClient {
                     queryParams
             );
 
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                ViewStatsDto[] body = response.getBody();
-                log.debug("Получена статистика: {} записей", body.length);
-                return Arrays.asList(body);
-            } else {
-                log.warn("Сервис статистики вернул пустой или некорректный ответ. Статус: {}",
-                        response.getStatusCode());
-                return Collections.emptyList();
+            if (response.getStatusCode() != HttpStatus.OK || response.getBody() == null) {
+                throw new RestClientException("Сервис статистики вернул пустой или некорректный ответ. Статус: "
+                        + response.getStatusCode());
             }
+            body = response.getBody();
         } catch (RestClientException e) {
-            log.error("Ошибка при обращении к сервису статистики: {}", e.getMessage(), e);
-            return Collections.emptyList();
+            metrics.recordFailure(sample, Operation.STATS, e);
+            throw e;
         }
+        metrics.recordSuccess(sample, Operation.STATS);
+        log.debug("Получена статистика: {} записей", body.length);
+        return Arrays.asList(body);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,154 @@
+package ru.practicum.stats.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientException;
+
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Метрики клиента статистики.
+ * <p>
+ * {@link StatsClient} не пробрасывает ошибки вызывающему коду, поэтому потеря статистики видна только здесь:
+ * <ul>
+ *     <li>{@code stats.client.requests} — время HTTP-вызовов по операции и исходу (с гистограммой для p99);</li>
+ *     <li>{@code stats.client.failures} — ошибки вызовов по операции и причине;</li>
+ *     <li>{@code stats.client.hits.dropped} — хиты, которые так и не дошли до сервиса, по причине;</li>
+ *     <li>{@code stats.client.fallbacks} — пустые списки, возвращённые вместо статистики;</li>
+ *     <li>{@code stats.client.hits.pending}, {@code stats.client.async.in-flight} — очередь пакетной отправки
+ *     и число асинхронных запросов;</li>
+ *     <li>{@code stats.client.spool.bytes} — объём неотправленных хитов в локальном спуле;</li>
+ *     <li>{@code httpcomponents.httpclient.pool.*} с тегом {@code httpclient=stats-server} — пул соединений.</li>
+ * </ul>
+ */
+class StatsClientMetrics {
+
+    enum Operation {
+        HIT, HITS, STATS, STREAM, TIMESERIES, BATCH
+    }
+
+    enum FailureCause {
+        TIMEOUT, CONNECT, IO, CLIENT_ERROR, SERVER_ERROR, INVALID_RESPONSE, OTHER
+    }
+
+    enum DropReason {
+        SEND_FAILED, REJECTED, QUEUE_FULL, IN_FLIGHT_LIMIT, SHUTDOWN, SPOOL_FULL
+    }
+
+    enum FallbackReason {
+        ERROR, IN_FLIGHT_LIMIT, SHUTDOWN
+    }
+
+    private final MeterRegistry registry;
+    private final Map<Operation, Timer> successTimers = new EnumMap<>(Operation.class);
+    private final Map<Operation, Timer> failureTimers = new EnumMap<>(Operation.class);
+
+    StatsClientMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Operation operation : Operation.values()) {
+            successTimers.put(operation, requestTimer(operation, "success"));
+            failureTimers.put(operation, requestTimer(operation, "failure"));
+        }
+    }
+
+    Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    void recordSuccess(Timer.Sample sample, Operation operation) {
+        sample.stop(successTimers.get(operation));
+    }
+
+    void recordFailure(Timer.Sample sample, Operation operation, Exception e) {
+        sample.stop(failureTimers.get(operation));
+        Counter.builder("stats.client.failures")
+                .description("Ошибки запросов к сервису статистики")
+                .tag("operation", tagValue(operation))
+                .tag("cause", tagValue(causeOf(e)))
+                .register(registry)
+                .increment();
+    }
+
+    void recordDropped(DropReason reason, int hits) {
+        Counter.builder("stats.client.hits.dropped")
+                .description("Хиты, не доставленные в сервис статистики")
+                .tag("reason", tagValue(reason))
+                .register(registry)
+                .increment(hits);
+    }
+
+    void recordFallback(FallbackReason reason) {
+        Counter.builder("stats.client.fallbacks")
+                .description("Пустые ответы, возвращённые вместо статистики")
+                .tag("reason", tagValue(reason))
+                .register(registry)
+                .increment();
+    }
+
+    void bindPendingHits(HitBatcher hitBatcher) {
+        Gauge.builder("stats.client.hits.pending", hitBatcher, HitBatcher::pending)
+                .description("Хиты в очереди пакетной отправки")
+                .register(registry);
+    }
+
+    void bindInFlight(Semaphore asyncPermits, int maxInFlight) {
+        Gauge.builder("stats.client.async.in-flight", asyncPermits, permits -> maxInFlight - permits.availablePermits())
+                .description("Выполняющиеся асинхронные запросы к сервису статистики")
+                .register(registry);
+    }
+
+    void bindSpool(HitSpool hitSpool) {
+        Gauge.builder("stats.client.spool.bytes", hitSpool, HitSpool::pendingBytes)
+                .description("Неотправленные хиты в локальном спуле")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    void bindConnectionPool(PoolingHttpClientConnectionManager connectionManager) {
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "stats-server").bindTo(registry);
+    }
+
+    /**
+     * Причина ошибки для тега {@code cause}: таймауты и отказ в соединении отделяются от ответов
+     * с кодом 4xx/5xx и от ответов, которые не удалось разобрать.
+     */
+    static FailureCause causeOf(Exception e) {
+        if (e instanceof HttpStatusCodeException statusException) {
+            return statusException.getStatusCode().is5xxServerError()
+                    ? FailureCause.SERVER_ERROR
+                    : FailureCause.CLIENT_ERROR;
+        }
+        if (e instanceof ResourceAccessException) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedIOException) {
+                return FailureCause.TIMEOUT;
+            }
+            return cause instanceof ConnectException ? FailureCause.CONNECT : FailureCause.IO;
+        }
+        return e instanceof RestClientException ? FailureCause.INVALID_RESPONSE : FailureCause.OTHER;
+    }
+
+    private Timer requestTimer(Operation operation, String outcome) {
+        return Timer.builder("stats.client.requests")
+                .description("Время запросов к сервису статистики")
+                .tag("operation", tagValue(operation))
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,161 @@
+package ru.practicum.stats.client;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Настройки {@link StatsClient} из свойств {@code stats-server.*}.
+ * Для программного создания клиента — {@link #builder(String)}; незаданные настройки имеют значения по умолчанию.
+ */
+@Component
+@ConfigurationProperties(prefix = "stats-server")
+@Getter
+@Setter
+public class StatsClientProperties {
+
+    /**
+     * Базовый URL сервиса статистики.
+     */
+    private String url;
+    /**
+     * Таймаут (мс) установки соединения с сервисом статистики.
+     */
+    private long connectTimeoutMs = 1_000;
+    /**
+     * Таймаут (мс) ожидания ответа сервиса статистики.
+     */
+    private long readTimeoutMs = 2_000;
+    private Batch batch = new Batch();
+    private Cache cache = new Cache();
+    private Async async = new Async();
+    private Spool spool = new Spool();
+
+    public static Builder builder(String url) {
+        return new Builder(url);
+    }
+
+    /**
+     * Буферизация хитов и их отправка пакетами через {@code POST /hits}.
+     */
+    @Getter
+    @Setter
+    public static class Batch {
+        private boolean enabled;
+        /**
+         * Максимальный размер пакета; им же ограничены пакеты, досылаемые из спула.
+         */
+        private int size = 100;
+        /**
+         * Максимальное число хитов в очереди; при переполнении новые хиты отбрасываются.
+         */
+        private int maxPending = 10_000;
+        /**
+         * Максимальное время ожидания (мс) перед отправкой неполного пакета.
+         */
+        private long flushIntervalMs = 1_000;
+    }
+
+    /**
+     * Кэш ответов {@code getStats}: одинаковые одновременные запросы объединяются в один HTTP-вызов,
+     * а результат переиспользуется {@code ttlMs}.
+     */
+    @Getter
+    @Setter
+    public static class Cache {
+        private boolean enabled;
+        /**
+         * Максимальное число закэшированных ответов; лишние вытесняются по давности использования.
+         */
+        private int maxSize = 1_000;
+        private long ttlMs = 1_000;
+    }
+
+    @Getter
+    @Setter
+    public static class Async {
+        /**
+         * Максимальное число одновременно выполняющихся асинхронных запросов; сверх лимита {@code hitAsync}
+         * отбрасывает хит, а {@code getStatsAsync} сразу возвращает пустой список.
+         */
+        private int maxInFlight = 256;
+    }
+
+    /**
+     * Локальный спул: хиты, которые не удалось отправить или поставить в очередь, дописываются в файлы
+     * каталога {@code dir} и досылаются фоновым потоком с экспоненциальной задержкой до {@code maxBackoffMs}.
+     */
+    @Getter
+    @Setter
+    public static class Spool {
+        private boolean enabled;
+        private String dir = "./data/stats-spool";
+        /**
+         * Размер файла-сегмента спула.
+         */
+        private int segmentSizeBytes = 8 * 1024 * 1024;
+        /**
+         * Максимальное число сегментов; при заполнении спула хиты отбрасываются.
+         */
+        private int maxSegments = 16;
+        private long maxBackoffMs = 30_000;
+    }
+
+    public static final class Builder {
+
+        private final StatsClientProperties properties = new StatsClientProperties();
+
+        private Builder(String url) {
+            properties.setUrl(url);
+        }
+
+        public Builder timeouts(long connectTimeoutMs, long readTimeoutMs) {
+            properties.setConnectTimeoutMs(connectTimeoutMs);
+            properties.setReadTimeoutMs(readTimeoutMs);
+            return this;
+        }
+
+        /**
+         * Включает отправку хитов пакетами.
+         */
+        public Builder batch(int size, int maxPending, long flushIntervalMs) {
+            properties.batch.setEnabled(true);
+            properties.batch.setSize(size);
+            properties.batch.setMaxPending(maxPending);
+            properties.batch.setFlushIntervalMs(flushIntervalMs);
+            return this;
+        }
+
+        /**
+         * Включает кэш ответов {@code getStats}.
+         */
+        public Builder cache(int maxSize, long ttlMs) {
+            properties.cache.setEnabled(true);
+            properties.cache.setMaxSize(maxSize);
+            properties.cache.setTtlMs(ttlMs);
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            properties.async.setMaxInFlight(maxInFlight);
+            return this;
+        }
+
+        /**
+         * Включает локальный спул в каталоге {@code dir}.
+         */
+        public Builder spool(String dir, int segmentSizeBytes, int maxSegments, long maxBackoffMs) {
+            properties.spool.setEnabled(true);
+            properties.spool.setDir(dir);
+            properties.spool.setSegmentSizeBytes(segmentSizeBytes);
+            properties.spool.setMaxSegments(maxSegments);
+            properties.spool.setMaxBackoffMs(maxBackoffMs);
+            return this;
+        }
+
+        public StatsClientProperties build() {
+            return properties;
+        }
+    }
+}
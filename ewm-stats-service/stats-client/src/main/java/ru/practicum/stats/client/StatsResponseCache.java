@@ -0,0 +1,116 @@
+package ru.practicum.stats.client;
+
+import org.springframework.lang.Nullable;
+import ru.practicum.stats.dto.ViewStatsDto;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Кэш ответов {@code GET /stats} с TTL, ограничением размера (LRU) и объединением одинаковых запросов.
+ * Если запрос с тем же ключом уже выполняется, остальные потоки ждут его результат,
+ * а не отправляют собственный HTTP-запрос. Ошибки не кэшируются: их получают все ожидавшие,
+ * а следующий вызов снова идёт в сервис.
+ */
+class StatsResponseCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatsResponseCache(int maxSize, long ttlMs) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMs);
+    }
+
+    /**
+     * Возвращает закэшированный ответ, дожидается уже выполняющегося запроса
+     * или выполняет {@code loader} в текущем потоке.
+     *
+     * @throws RuntimeException исключение или {@link Error}, выброшенные {@code loader} (в том числе в другом потоке).
+     */
+    List<ViewStatsDto> get(Key key, Supplier<List<ViewStatsDto>> loader) {
+        Entry entry;
+        boolean owner = false;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry == null || entry.isExpired()) {
+                entry = new Entry();
+                entries.put(key, entry);
+                owner = true;
+                evictOverflow();
+            }
+        }
+
+        if (owner) {
+            load(key, entry, loader);
+        }
+        try {
+            return entry.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private void load(Key key, Entry entry, Supplier<List<ViewStatsDto>> loader) {
+        try {
+            List<ViewStatsDto> value = List.copyOf(loader.get());
+            entry.expiresAtNanos = System.nanoTime() + ttlNanos;
+            entry.result.complete(value);
+        } catch (Throwable e) {
+            // Незавершённый future оставил бы всех ожидающих висеть, поэтому завершается и при Error
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+            entry.result.completeExceptionally(e);
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Ключ запроса: порядок и повторы URI на ответ не влияют.
+     */
+    record Key(LocalDateTime start, LocalDateTime end, @Nullable Set<String> uris, boolean unique,
+               boolean approximate, @Nullable Integer limit, int offset) {
+
+        static Key of(LocalDateTime start, LocalDateTime end, @Nullable Collection<String> uris, boolean unique,
+                      boolean approximate, @Nullable Integer limit, int offset) {
+            return new Key(start, end, uris == null || uris.isEmpty() ? null : Set.copyOf(uris), unique, approximate,
+                    limit, offset);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<List<ViewStatsDto>> result = new CompletableFuture<>();
+        private volatile long expiresAtNanos;
+
+        // Выполняющийся запрос не истекает: его результат ещё ждут другие потоки
+        boolean isExpired() {
+            return result.isDone() && expiresAtNanos - System.nanoTime() <= 0;
+        }
+    }
+}
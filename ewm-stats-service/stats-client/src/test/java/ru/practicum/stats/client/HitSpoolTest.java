@@ -0,0 +1,125 @@
+package ru.practicum.stats.client;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.stats.dto.EndpointHitDto;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Модульные тесты для {@link HitSpool} на файлах во временном каталоге.
+ */
+class HitSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private final List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+
+    @Test
+    void append_serverAvailable_sendsInOrderAndDeletesSentSegments() throws Exception {
+        try (HitSpool spool = new HitSpool(directory, 1024, 100, 10, 1_000, sent::addAll)) {
+            for (int i = 0; i < 50; i++) {
+                assertTrue(spool.append(List.of(hit(i))));
+            }
+
+            awaitTrue(() -> sent.size() == 50);
+            assertEquals(uris(0, 50), sent.stream().map(EndpointHitDto::getUri).toList());
+            awaitTrue(() -> !spool.backlogged());
+            assertTrue(segmentFiles().size() <= 2, "отправленные сегменты должны удаляться");
+        }
+    }
+
+    @Test
+    void append_serverUnavailable_retriesWithBackoffUntilSent() {
+        AtomicInteger failures = new AtomicInteger(3);
+        Consumer<List<EndpointHitDto>> sender = batch -> {
+            if (failures.getAndDecrement() > 0) {
+                throw new IllegalStateException("Connection refused");
+            }
+            sent.addAll(batch);
+        };
+        try (HitSpool spool = new HitSpool(directory, 64 * 1024, 4, 100, 50, sender)) {
+            spool.append(IntStream.range(0, 5).mapToObj(HitSpoolTest::hit).toList());
+            assertTrue(spool.backlogged());
+
+            awaitTrue(() -> sent.size() == 5);
+            assertEquals(uris(0, 5), sent.stream().map(EndpointHitDto::getUri).toList());
+        }
+    }
+
+    @Test
+    void reopen_afterPartialSend_resumesWithoutDuplicates() {
+        AtomicInteger batches = new AtomicInteger();
+        Consumer<List<EndpointHitDto>> firstRun = batch -> {
+            if (batches.getAndIncrement() > 0) {
+                throw new IllegalStateException("Connection refused");
+            }
+            sent.addAll(batch);
+        };
+        try (HitSpool spool = new HitSpool(directory, 64 * 1024, 4, 10, 50, firstRun)) {
+            spool.append(IntStream.range(0, 25).mapToObj(HitSpoolTest::hit).toList());
+            awaitTrue(() -> batches.get() > 1);
+        }
+        assertEquals(10, sent.size());
+
+        try (HitSpool spool = new HitSpool(directory, 64 * 1024, 4, 10, 50, sent::addAll)) {
+            awaitTrue(() -> sent.size() == 25);
+            assertEquals(uris(0, 25), sent.stream().map(EndpointHitDto::getUri).toList());
+        }
+    }
+
+    @Test
+    void append_spoolFull_rejectsHitsWithoutBlocking() {
+        Consumer<List<EndpointHitDto>> unavailable = batch -> {
+            throw new IllegalStateException("Connection refused");
+        };
+        try (HitSpool spool = new HitSpool(directory, 256, 2, 10, 60_000, unavailable)) {
+            boolean accepted = true;
+            for (int i = 0; i < 100 && accepted; i++) {
+                accepted = spool.append(List.of(hit(i)));
+            }
+
+            assertFalse(accepted);
+            assertTrue(spool.pendingBytes() > 0);
+        }
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".spool")).toList();
+        }
+    }
+
+    private static List<String> uris(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "/events/" + i).toList();
+    }
+
+    private static EndpointHitDto hit(int i) {
+        return new EndpointHitDto(null, "ewm-main-service", "/events/" + i, "10.0.0.1", "2025-03-01 12:00:00");
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "условие не выполнилось за 10 с");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -1,28 +1,55 @@
 package ru.practicum.stats.client;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.ResponseExtractor;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
 
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -49,6 +76,12 @@ class StatsClientTest {
     @Captor
     private ArgumentCaptor<HttpEntity<EndpointHitDto>> requestEntityCaptor;
 
+    @Captor
+    private ArgumentCaptor<HttpEntity<List<EndpointHitDto>>> batchCaptor;
+
+    @Captor
+    private ArgumentCaptor<HttpEntity<List<StatsBatchQueryDto>>> batchQueryCaptor;
+
     @Captor
     private ArgumentCaptor<String> urlTemplateCaptor;
 
@@ -66,7 +99,9 @@ class StatsClientTest {
     void setUp() {
         // Имитируем конфигурацию RestTemplateBuilder
         when(restTemplateBuilder.uriTemplateHandler(any(DefaultUriBuilderFactory.class))).thenReturn(restTemplateBuilder);
-        when(restTemplateBuilder.requestFactory(any(Class.class))).thenReturn(restTemplateBuilder);
+        when(restTemplateBuilder.requestFactory(any(Supplier.class))).thenReturn(restTemplateBuilder);
+        when(restTemplateBuilder.setConnectTimeout(any(Duration.class))).thenReturn(restTemplateBuilder);
+        when(restTemplateBuilder.setReadTimeout(any(Duration.class))).thenReturn(restTemplateBuilder);
         when(restTemplateBuilder.build()).thenReturn(restTemplate);
 
         // Создаем тестируемый объект, используя мок-зависимости
@@ -74,9 +109,18 @@ class StatsClientTest {
 
         // Проверяем, что клиент был инициализирован корректно
         verify(restTemplateBuilder).uriTemplateHandler(any(DefaultUriBuilderFactory.class));
+        verify(restTemplateBuilder).setConnectTimeout(Duration.ofSeconds(1));
+        verify(restTemplateBuilder).setReadTimeout(Duration.ofSeconds(2));
         verify(restTemplateBuilder).build();
     }
 
+    @Test
+    void constructor_UrlMissing_Throws() {
+        StatsClientProperties properties = StatsClientProperties.builder(" ").build();
+
+        assertThrows(IllegalArgumentException.class, () -> new StatsClient(properties, restTemplateBuilder, null));
+    }
+
     // --- Тесты для метода hit ---
 
     @Test
@@ -128,6 +172,190 @@ class StatsClientTest {
         // Дополнительно можно проверить логирование, но в unit-тестах это сложнее
     }
 
+    @Test
+    void hit_BatchMode_SendsHitsInOnePost() {
+        // Клиент в пакетном режиме: пакет по 2 хита, таймер не успевает сработать
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .batch(2, 100, 60_000)
+                .build();
+        StatsClient batchingClient = new StatsClient(properties, restTemplateBuilder, null);
+        LocalDateTime now = LocalDateTime.now();
+
+        when(restTemplate.postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
+
+        batchingClient.hit("ewm-main-service", "/events/1", "192.168.0.1", now);
+        batchingClient.hit("ewm-main-service", "/events/2", "192.168.0.2", now);
+        batchingClient.close();
+
+        // Проверка: одиночные POST /hit не отправлялись, оба хита ушли одним пакетом
+        verify(restTemplate, never()).postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate).postForEntity(eq("/hits"), batchCaptor.capture(), eq(Void.class));
+
+        List<EndpointHitDto> sent = batchCaptor.getValue().getBody();
+        assertNotNull(sent);
+        assertEquals(2, sent.size());
+        assertEquals("/events/1", sent.get(0).getUri());
+        assertEquals("/events/2", sent.get(1).getUri());
+    }
+
+    @Test
+    void hit_BatchMode_SendErrorHandled() {
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .batch(10, 100, 60_000)
+                .build();
+        StatsClient batchingClient = new StatsClient(properties, restTemplateBuilder, null);
+
+        when(restTemplate.postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new RestClientException("Connection refused"));
+
+        batchingClient.hit("test-service", "/test/uri", "10.0.0.1", LocalDateTime.now());
+
+        // Ошибка отправки пакета не должна доходить до вызывающего кода
+        assertDoesNotThrow(batchingClient::close);
+        verify(restTemplate).postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class));
+    }
+
+    @Test
+    void hitAsync_SendsHitWithoutBlockingCaller() throws Exception {
+        when(restTemplate.postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class)))
+                .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
+
+        statsClient.hitAsync("ewm-main-service", "/events/1", "192.168.0.1", LocalDateTime.now())
+                .get(5, TimeUnit.SECONDS);
+
+        verify(restTemplate).postForEntity(eq("/hit"), requestEntityCaptor.capture(), eq(Void.class));
+        assertEquals("/events/1", requestEntityCaptor.getValue().getBody().getUri());
+    }
+
+    @Test
+    void hit_SendTimeout_RecordsFailureCauseAndDroppedHit() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL).build();
+        StatsClient meteredClient = new StatsClient(properties, restTemplateBuilder, registry);
+        when(restTemplate.postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Read timed out", new SocketTimeoutException()));
+
+        meteredClient.hit("ewm-main-service", "/events/1", "192.168.0.1", LocalDateTime.now());
+
+        assertEquals(1, registry.get("stats.client.requests").tags("operation", "hit", "outcome", "failure")
+                .timer().count());
+        assertEquals(1, registry.get("stats.client.failures").tags("operation", "hit", "cause", "timeout")
+                .counter().count());
+        assertEquals(1, registry.get("stats.client.hits.dropped").tag("reason", "send_failed").counter().count());
+        // Пул соединений HttpComponents виден в метриках сразу после создания клиента
+        assertNotNull(registry.find("httpcomponents.httpclient.pool.total.max").tag("httpclient", "stats-server")
+                .gauge());
+        meteredClient.close();
+    }
+
+    @Test
+    void hit_ServerUnavailable_SpooledAndSentWhenServerResponds(@TempDir Path spoolDir) {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .spool(spoolDir.toString(), 64 * 1024, 4, 100)
+                .build();
+        StatsClient spoolingClient = new StatsClient(properties, restTemplateBuilder, registry);
+        when(restTemplate.postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Connection refused", new ConnectException()));
+        when(restTemplate.postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Connection refused", new ConnectException()))
+                .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
+
+        spoolingClient.hit("ewm-main-service", "/events/1", "192.168.0.1", LocalDateTime.now());
+        spoolingClient.hit("ewm-main-service", "/events/2", "192.168.0.2", LocalDateTime.now());
+
+        // Второй хит не ждёт недоступный сервис: спул ещё не отправлен, хит сразу дописывается в него
+        verify(restTemplate, times(1)).postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate, timeout(5_000).times(2)).postForEntity(eq("/hits"), batchCaptor.capture(), eq(Void.class));
+        assertEquals(List.of("/events/1", "/events/2"),
+                batchCaptor.getValue().getBody().stream().map(EndpointHitDto::getUri).toList());
+        assertNull(registry.find("stats.client.hits.dropped").counter());
+        spoolingClient.close();
+    }
+
+    @Test
+    void hit_ServerRejectsSpooledBatch_BatchDroppedAndLaterHitsSent(@TempDir Path spoolDir) {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .spool(spoolDir.toString(), 64 * 1024, 4, 100)
+                .build();
+        StatsClient spoolingClient = new StatsClient(properties, restTemplateBuilder, registry);
+        when(restTemplate.postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new ResourceAccessException("Connection refused", new ConnectException()))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST))
+                .thenReturn(new ResponseEntity<>(HttpStatus.CREATED));
+        when(restTemplate.postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        spoolingClient.hit("ewm-main-service", "/events/1", "bad-ip", LocalDateTime.now());
+
+        // Пакет спула, отклонённый с кодом 400, отбрасывается, и спул больше не задерживает новые хиты
+        verify(restTemplate, timeout(5_000)).postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class));
+        awaitTrue(() -> registry.get("stats.client.spool.bytes").gauge().value() == 0);
+        spoolingClient.hit("ewm-main-service", "/events/2", "bad-ip", LocalDateTime.now());
+        spoolingClient.hit("ewm-main-service", "/events/3", "192.168.0.3", LocalDateTime.now());
+
+        verify(restTemplate, times(3)).postForEntity(eq("/hit"), any(HttpEntity.class), eq(Void.class));
+        verify(restTemplate, times(1)).postForEntity(eq("/hits"), any(HttpEntity.class), eq(Void.class));
+        assertEquals(2, registry.get("stats.client.hits.dropped").tag("reason", "rejected").counter().count());
+        assertNull(registry.find("stats.client.hits.dropped").tag("reason", "send_failed").counter());
+        spoolingClient.close();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "условие не выполнено за 5 секунд");
+            Thread.onSpinWait();
+        }
+    }
+
+    @Test
+    void getStats_ServerError_RecordsCauseAndFallback() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL).build();
+        StatsClient meteredClient = new StatsClient(properties, restTemplateBuilder, registry);
+        when(restTemplate.getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap()))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertTrue(meteredClient.getStats(LocalDateTime.now().minusDays(1), LocalDateTime.now(), null, false)
+                .isEmpty());
+
+        assertEquals(1, registry.get("stats.client.failures").tags("operation", "stats", "cause", "server_error")
+                .counter().count());
+        assertEquals(1, registry.get("stats.client.fallbacks").tag("reason", "error").counter().count());
+        meteredClient.close();
+    }
+
+    @Test
+    void getStatsAsync_InFlightLimitReached_ReturnsEmptyImmediately() throws Exception {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .maxInFlight(1)
+                .build();
+        StatsClient limitedClient = new StatsClient(properties, restTemplateBuilder, registry);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        ViewStatsDto dto = new ViewStatsDto("app1", "/events/1", 10L);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new ResponseEntity<>(new ViewStatsDto[]{dto}, HttpStatus.OK);
+        }).when(restTemplate).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+
+        CompletableFuture<List<ViewStatsDto>> first = limitedClient.getStatsAsync(start, end, null, false, false);
+        CompletableFuture<List<ViewStatsDto>> second = limitedClient.getStatsAsync(start, end, null, false, false);
+
+        // Второй запрос сверх лимита не ждёт первого
+        assertTrue(second.isDone());
+        assertTrue(second.get().isEmpty());
+        assertEquals(1, registry.get("stats.client.fallbacks").tag("reason", "in_flight_limit").counter().count());
+        release.countDown();
+        assertEquals(List.of(dto), first.get(5, TimeUnit.SECONDS));
+        limitedClient.close();
+    }
+
     // --- Тесты для метода getStats ---
 
     @Test
@@ -212,6 +440,239 @@ class StatsClientTest {
         assertEquals(unique, params.get("unique"));
     }
 
+    @Test
+    void getStats_Approximate_AddsParameter() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+
+        ViewStatsDto dto = new ViewStatsDto("app1", "/events/1", 1000L, 0.0163);
+        doReturn(new ResponseEntity<>(new ViewStatsDto[]{dto}, HttpStatus.OK))
+                .when(restTemplate).getForEntity(
+                        urlTemplateCaptor.capture(),
+                        eq(ViewStatsDto[].class),
+                        uriVariablesCaptor.capture()
+                );
+
+        List<ViewStatsDto> result = statsClient.getStats(start, end, null, true, true);
+
+        assertEquals(List.of(dto), result);
+        assertEquals("/stats?start={start}&end={end}&unique={unique}&approximate={approximate}",
+                urlTemplateCaptor.getValue());
+        assertEquals(true, uriVariablesCaptor.getValue().get("approximate"));
+    }
+
+    @Test
+    void getStats_CacheEnabled_RepeatedQueryServedFromCache() {
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .cache(100, 60_000)
+                .build();
+        StatsClient cachingClient = new StatsClient(properties, restTemplateBuilder, null);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        ViewStatsDto dto = new ViewStatsDto("app1", "/events/1", 10L);
+        doReturn(new ResponseEntity<>(new ViewStatsDto[]{dto}, HttpStatus.OK))
+                .when(restTemplate).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+
+        cachingClient.getStats(start, end, List.of("/events/1", "/events/2"), false);
+        List<ViewStatsDto> result = cachingClient.getStats(start, end, List.of("/events/2", "/events/1"), false);
+
+        assertEquals(List.of(dto), result);
+        verify(restTemplate, times(1)).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+    }
+
+    @Test
+    void getStats_CacheEnabled_ConcurrentSameQueryMakesOneRequest() throws Exception {
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .cache(100, 60_000)
+                .build();
+        StatsClient cachingClient = new StatsClient(properties, restTemplateBuilder, null);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        ViewStatsDto dto = new ViewStatsDto("app1", "/events/1", 10L);
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            requestStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new ResponseEntity<>(new ViewStatsDto[]{dto}, HttpStatus.OK);
+        }).when(restTemplate).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<List<ViewStatsDto>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cachingClient.getStats(start, end, null, true)));
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 7; i++) {
+                results.add(executor.submit(() -> cachingClient.getStats(start, end, null, true)));
+            }
+            Thread.sleep(100); // остальные потоки успевают встать в ожидание первого запроса
+            release.countDown();
+
+            for (Future<List<ViewStatsDto>> result : results) {
+                assertEquals(List.of(dto), result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(restTemplate, times(1)).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+    }
+
+    @Test
+    void getStats_CacheEnabled_LoaderErrorReleasesWaiters() throws Exception {
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .cache(100, 60_000)
+                .build();
+        StatsClient cachingClient = new StatsClient(properties, restTemplateBuilder, null);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        ViewStatsDto dto = new ViewStatsDto("app1", "/events/1", 10L);
+        CountDownLatch requestStarted = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            requestStarted.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            throw new OutOfMemoryError("Java heap space");
+        }).doReturn(new ResponseEntity<>(new ViewStatsDto[]{dto}, HttpStatus.OK))
+                .when(restTemplate).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<ViewStatsDto>> owner = executor.submit(() -> cachingClient.getStats(start, end, null, true));
+            assertTrue(requestStarted.await(5, TimeUnit.SECONDS));
+            Future<List<ViewStatsDto>> waiter = executor.submit(() -> cachingClient.getStats(start, end, null, true));
+            Thread.sleep(100); // второй поток успевает встать в ожидание первого запроса
+            release.countDown();
+
+            // Error получают и владелец запроса, и ожидавший поток — никто не зависает
+            ExecutionException ownerError = assertThrows(ExecutionException.class,
+                    () -> owner.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, ownerError.getCause());
+            ExecutionException waiterError = assertThrows(ExecutionException.class,
+                    () -> waiter.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, waiterError.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        // Неудачный запрос не остаётся в кэше
+        assertEquals(List.of(dto), cachingClient.getStats(start, end, null, true));
+    }
+
+    @Test
+    void getStats_CacheEnabled_ErrorNotCached() {
+        StatsClientProperties properties = StatsClientProperties.builder(SERVER_URL)
+                .cache(100, 60_000)
+                .build();
+        StatsClient cachingClient = new StatsClient(properties, restTemplateBuilder, null);
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        when(restTemplate.getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap()))
+                .thenThrow(new RestClientException("Server timeout"));
+
+        assertTrue(cachingClient.getStats(start, end, null, false).isEmpty());
+        assertTrue(cachingClient.getStats(start, end, null, false).isEmpty());
+
+        verify(restTemplate, times(2)).getForEntity(anyString(), eq(ViewStatsDto[].class), anyMap());
+    }
+
+    @Test
+    void getStats_LimitAndOffset_AddsParameters() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        doReturn(new ResponseEntity<>(new ViewStatsDto[0], HttpStatus.OK))
+                .when(restTemplate).getForEntity(
+                        urlTemplateCaptor.capture(),
+                        eq(ViewStatsDto[].class),
+                        uriVariablesCaptor.capture()
+                );
+
+        statsClient.getStats(start, end, null, false, false, 10, 20);
+
+        assertEquals("/stats?start={start}&end={end}&unique={unique}&limit={limit}&offset={offset}",
+                urlTemplateCaptor.getValue());
+        assertEquals(10, uriVariablesCaptor.getValue().get("limit"));
+        assertEquals(20, uriVariablesCaptor.getValue().get("offset"));
+    }
+
+    @Test
+    void getStatsBatch_PostsQueriesAndReturnsResultsInOrder() {
+        LocalDateTime now = LocalDateTime.of(2023, 10, 31, 12, 0, 0);
+        List<StatsBatchQueryDto> queries = List.of(
+                StatsBatchQueryDto.of(now.minusDays(1), now, List.of("/events/1"), false),
+                StatsBatchQueryDto.of(now.minusDays(7), now, List.of("/events/1"), false));
+        ViewStatsDto[][] body = new ViewStatsDto[][]{
+                new ViewStatsDto[]{new ViewStatsDto("app1", "/events/1", 2L)},
+                new ViewStatsDto[]{new ViewStatsDto("app1", "/events/1", 9L)}
+        };
+        doReturn(new ResponseEntity<>(body, HttpStatus.OK))
+                .when(restTemplate).postForEntity(eq("/stats/batch"), batchQueryCaptor.capture(), eq(ViewStatsDto[][].class));
+
+        List<List<ViewStatsDto>> results = statsClient.getStatsBatch(queries);
+
+        assertEquals(List.of(List.of(body[0][0]), List.of(body[1][0])), results);
+        assertEquals(queries, batchQueryCaptor.getValue().getBody());
+        assertEquals("2023-10-30 12:00:00", batchQueryCaptor.getValue().getBody().get(0).getStart());
+    }
+
+    @Test
+    void getStatsBatch_ServerError_ReturnsEmptyResultPerQuery() {
+        when(restTemplate.postForEntity(eq("/stats/batch"), any(HttpEntity.class), eq(ViewStatsDto[][].class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        LocalDateTime now = LocalDateTime.now();
+
+        List<List<ViewStatsDto>> results = statsClient.getStatsBatch(List.of(
+                StatsBatchQueryDto.of(now.minusDays(1), now, null, false),
+                StatsBatchQueryDto.of(now.minusDays(7), now, null, true)));
+
+        assertEquals(List.of(List.of(), List.of()), results);
+    }
+
+    @Test
+    void getTimeSeries_AddsIntervalAndReturnsBuckets() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 1, 23, 59, 59);
+        TimeSeriesStatsDto[] body = {
+                new TimeSeriesStatsDto("app1", "/events/1", "2023-10-01 10:00:00", 4L),
+                new TimeSeriesStatsDto("app1", "/events/1", "2023-10-01 11:00:00", 2L)
+        };
+        doReturn(new ResponseEntity<>(body, HttpStatus.OK))
+                .when(restTemplate).getForEntity(
+                        urlTemplateCaptor.capture(),
+                        eq(TimeSeriesStatsDto[].class),
+                        uriVariablesCaptor.capture()
+                );
+
+        List<TimeSeriesStatsDto> result = statsClient.getTimeSeries(start, end, List.of("/events/1"), true,
+                StatsInterval.HOUR);
+
+        assertEquals(Arrays.asList(body), result);
+        assertEquals("/stats/timeseries?start={start}&end={end}&unique={unique}&uris={uris0}&interval={interval}",
+                urlTemplateCaptor.getValue());
+        assertEquals("HOUR", uriVariablesCaptor.getValue().get("interval"));
+        assertEquals(true, uriVariablesCaptor.getValue().get("unique"));
+    }
+
+    @Test
+    void streamStats_ReadsNdjsonRowByRow() {
+        LocalDateTime start = LocalDateTime.of(2023, 10, 1, 0, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2023, 10, 31, 23, 59, 59);
+        String body = "{\"app\":\"app1\",\"uri\":\"/events/1\",\"hits\":5}\n" +
+                "{\"app\":\"app1\",\"uri\":\"/events/2\",\"hits\":3}\n";
+        doAnswer(invocation -> {
+            ResponseExtractor<?> extractor = invocation.getArgument(3);
+            return extractor.extractData(new MockClientHttpResponse(body.getBytes(), HttpStatus.OK));
+        }).when(restTemplate).execute(urlTemplateCaptor.capture(), eq(HttpMethod.GET), any(RequestCallback.class),
+                any(ResponseExtractor.class), uriVariablesCaptor.capture());
+
+        List<ViewStatsDto> received = new ArrayList<>();
+        long count = statsClient.streamStats(start, end, List.of("/events/1", "/events/2"), false, received::add);
+
+        assertEquals(2, count);
+        assertEquals(List.of(new ViewStatsDto("app1", "/events/1", 5L), new ViewStatsDto("app1", "/events/2", 3L)),
+                received);
+        assertEquals("/stats/stream?start={start}&end={end}&unique={unique}&uris={uris0}&uris={uris1}",
+                urlTemplateCaptor.getValue());
+    }
+
     @Test
     void getStats_ServerReturnsEmptyBody() {
         // Подготовка данных
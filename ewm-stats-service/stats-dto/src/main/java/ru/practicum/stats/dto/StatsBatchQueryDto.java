@@ -0,0 +1,34 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Один запрос статистики в пакете {@code POST /stats/batch}: те же параметры, что у {@code GET /stats}.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatsBatchQueryDto {
+    /**
+     * Начало периода в формате {@value StatsDateTimeFormat#PATTERN}.
+     */
+    private String start;
+    /**
+     * Конец периода в формате {@value StatsDateTimeFormat#PATTERN}.
+     */
+    private String end;
+    /**
+     * Фильтр по URI; {@code null} или пустой список — все URI.
+     */
+    private List<String> uris;
+    private boolean unique;
+
+    public static StatsBatchQueryDto of(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique) {
+        return new StatsBatchQueryDto(StatsDateTimeFormat.format(start), StatsDateTimeFormat.format(end), uris, unique);
+    }
+}
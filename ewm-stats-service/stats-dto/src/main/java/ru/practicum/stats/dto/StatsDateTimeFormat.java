@@ -0,0 +1,153 @@
+package ru.practicum.stats.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Разбор и форматирование меток времени сервиса статистики в фиксированном формате {@value #PATTERN}.
+ * <p>
+ * Формат задан посимвольно, поэтому поля читаются по позициям без {@link DateTimeFormatter}:
+ * при разборе не создаются промежуточные объекты, кроме результата, а URL-экранирование
+ * ({@code %20}, {@code %3A}, {@code +}) декодируется на лету без построения раскодированной строки.
+ * Результат совпадает с {@code LocalDateTime.parse(text, DateTimeFormatter.ofPattern(PATTERN))}:
+ * день, выходящий за длину месяца (например, 30 февраля), сдвигается на последний день месяца.
+ */
+public final class StatsDateTimeFormat {
+
+    public static final String PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    /**
+     * Шаблон позиций: {@code 'd'} — цифра, остальные символы должны совпасть буквально.
+     */
+    private static final String LAYOUT = "dddd-dd-dd dd:dd:dd";
+    private static final int LENGTH = LAYOUT.length();
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(PATTERN);
+
+    private StatsDateTimeFormat() {
+    }
+
+    /**
+     * Разбирает строку вида {@code 2025-11-23 10:00:00}.
+     *
+     * @throws DateTimeParseException если строка не соответствует формату.
+     */
+    public static LocalDateTime parse(CharSequence text) {
+        return parse(text, false);
+    }
+
+    /**
+     * Разбирает значение параметра запроса, которое может быть URL-экранировано
+     * (например, {@code 2025-11-23%2010%3A00%3A00}). Строка без экранирования разбирается так же, как {@link #parse}.
+     *
+     * @throws DateTimeParseException если раскодированная строка не соответствует формату.
+     */
+    public static LocalDateTime parseUrlEncoded(CharSequence text) {
+        return parse(text, true);
+    }
+
+    /**
+     * Форматирует время в строку вида {@code 2025-11-23 10:00:00}.
+     */
+    public static String format(LocalDateTime time) {
+        int year = time.getYear();
+        if (year < 1 || year > 9999) {
+            return time.format(FORMATTER);
+        }
+        byte[] buf = new byte[LENGTH];
+        writeDigits(buf, 0, year, 4);
+        buf[4] = '-';
+        writeDigits(buf, 5, time.getMonthValue(), 2);
+        buf[7] = '-';
+        writeDigits(buf, 8, time.getDayOfMonth(), 2);
+        buf[10] = ' ';
+        writeDigits(buf, 11, time.getHour(), 2);
+        buf[13] = ':';
+        writeDigits(buf, 14, time.getMinute(), 2);
+        buf[16] = ':';
+        writeDigits(buf, 17, time.getSecond(), 2);
+        return new String(buf, StandardCharsets.ISO_8859_1);
+    }
+
+    private static LocalDateTime parse(CharSequence text, boolean urlEncoded) {
+        if (text == null) {
+            throw new DateTimeParseException("Text is null", "", 0);
+        }
+        int length = text.length();
+        int pos = 0;
+        int year = 0;
+        int month = 0;
+        int day = 0;
+        int hour = 0;
+        int minute = 0;
+        int second = 0;
+        for (int i = 0; i < LENGTH; i++) {
+            if (pos >= length) {
+                throw error(text, pos);
+            }
+            char c = text.charAt(pos);
+            if (urlEncoded && c == '%') {
+                int hi = pos + 2 < length ? Character.digit(text.charAt(pos + 1), 16) : -1;
+                int lo = hi >= 0 ? Character.digit(text.charAt(pos + 2), 16) : -1;
+                if (lo < 0) {
+                    throw error(text, pos);
+                }
+                c = (char) (hi << 4 | lo);
+                pos += 3;
+            } else {
+                if (urlEncoded && c == '+') {
+                    c = ' ';
+                }
+                pos++;
+            }
+
+            char expected = LAYOUT.charAt(i);
+            if (expected != 'd') {
+                if (c != expected) {
+                    throw error(text, pos - 1);
+                }
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw error(text, pos - 1);
+            }
+            int digit = c - '0';
+            if (i < 4) {
+                year = year * 10 + digit;
+            } else if (i < 7) {
+                month = month * 10 + digit;
+            } else if (i < 10) {
+                day = day * 10 + digit;
+            } else if (i < 13) {
+                hour = hour * 10 + digit;
+            } else if (i < 16) {
+                minute = minute * 10 + digit;
+            } else {
+                second = second * 10 + digit;
+            }
+        }
+        if (pos != length) {
+            throw error(text, pos);
+        }
+        if (year < 1 || month < 1 || month > 12 || day < 1 || day > 31
+                || hour > 23 || minute > 59 || second > 59) {
+            throw error(text, 0);
+        }
+        int monthLength = Month.of(month).length(Year.isLeap(year));
+        return LocalDateTime.of(year, month, Math.min(day, monthLength), hour, minute, second);
+    }
+
+    private static void writeDigits(byte[] buf, int offset, int value, int width) {
+        for (int i = offset + width - 1; i >= offset; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static DateTimeParseException error(CharSequence text, int index) {
+        return new DateTimeParseException("Text '" + text + "' could not be parsed at index " + index, text, index);
+    }
+}
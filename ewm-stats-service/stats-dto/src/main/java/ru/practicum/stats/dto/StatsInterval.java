@@ -0,0 +1,26 @@
+package ru.practicum.stats.dto;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Шаг корзин временного ряда статистики ({@code GET /stats/timeseries}).
+ * Корзины выровнены по началу минуты, часа или суток в UTC.
+ */
+public enum StatsInterval {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    StatsInterval(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Длина корзины в секундах.
+     */
+    public long seconds() {
+        return unit.getDuration().getSeconds();
+    }
+}
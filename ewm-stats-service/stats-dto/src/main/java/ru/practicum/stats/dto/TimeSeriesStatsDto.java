@@ -0,0 +1,21 @@
+package ru.practicum.stats.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Число просмотров пары (сервис, URI) в одной корзине временного ряда.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimeSeriesStatsDto {
+    private String app;
+    private String uri;
+    /**
+     * Начало корзины в формате {@value StatsDateTimeFormat#PATTERN}.
+     */
+    private String bucket;
+    private Long hits;
+}
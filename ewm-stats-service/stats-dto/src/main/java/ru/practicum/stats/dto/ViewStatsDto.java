@@ -1,5 +1,6 @@
 package ru.practicum.stats.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,4 +12,24 @@ public class ViewStatsDto {
     private String app;
     private String uri;
     private Long hits;
-}
\ No newline at end of file
+    /**
+     * Стандартная относительная ошибка {@code hits} для приближённого подсчёта ({@code approximate=true}),
+     * оценённого HyperLogLog. Для точной статистики не заполняется.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double relativeError;
+    /**
+     * Наибольшее возможное завышение {@code hits} в ответе {@code /stats/top}: истинное число просмотров
+     * лежит в пределах {@code [hits - maxOvercount, hits]}. Для точных счётчиков не заполняется.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long maxOvercount;
+
+    public ViewStatsDto(String app, String uri, Long hits) {
+        this(app, uri, hits, null, null);
+    }
+
+    public ViewStatsDto(String app, String uri, Long hits, Double relativeError) {
+        this(app, uri, hits, relativeError, null);
+    }
+}
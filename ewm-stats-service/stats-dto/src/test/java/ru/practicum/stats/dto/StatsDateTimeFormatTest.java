@@ -0,0 +1,56 @@
+package ru.practicum.stats.dto;
+
+import org.junit.jupiter.api.Test;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StatsDateTimeFormatTest {
+
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern(StatsDateTimeFormat.PATTERN);
+
+    @Test
+    void parse_matchesDateTimeFormatter() {
+        for (String text : List.of("2025-11-23 10:00:00", "1999-12-31 23:59:59", "2024-02-29 00:00:01",
+                "2023-02-30 12:00:00", "2025-04-31 08:15:42")) {
+            assertThat(StatsDateTimeFormat.parse(text)).isEqualTo(LocalDateTime.parse(text, FORMATTER));
+        }
+    }
+
+    @Test
+    void parseUrlEncoded_matchesDecodeThenParse() {
+        for (String text : List.of("2025-11-23 10:00:00", "2025-11-23%2010%3A00%3A00", "2025-11-23+10%3a00%3a00",
+                "2025%2D11%2D23%2010:00:00")) {
+            LocalDateTime expected = LocalDateTime.parse(URLDecoder.decode(text, StandardCharsets.UTF_8), FORMATTER);
+            assertThat(StatsDateTimeFormat.parseUrlEncoded(text)).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void parse_invalidText_throwsDateTimeParseException() {
+        for (String text : List.of("", "2025-11-23", "2025-11-23 10:00:00 ", "2025-11-23T10:00:00",
+                "2025-13-01 10:00:00", "2025-11-23 24:00:00", "2025-11-23 10:60:00", "2025-11-00 10:00:00",
+                "2025-11-23%2010:00:00")) {
+            assertThatThrownBy(() -> StatsDateTimeFormat.parse(text)).isInstanceOf(DateTimeParseException.class);
+        }
+        for (String text : List.of("2025-11-23%2", "2025-11-23%zz10:00:00", "2025-11-23%20")) {
+            assertThatThrownBy(() -> StatsDateTimeFormat.parseUrlEncoded(text))
+                    .isInstanceOf(DateTimeParseException.class);
+        }
+    }
+
+    @Test
+    void format_matchesDateTimeFormatter() {
+        for (LocalDateTime time : List.of(LocalDateTime.of(2025, 11, 23, 10, 0, 0),
+                LocalDateTime.of(7, 1, 2, 3, 4, 5, 999_000_000), LocalDateTime.of(9999, 12, 31, 23, 59, 59))) {
+            assertThat(StatsDateTimeFormat.format(time)).isEqualTo(time.format(FORMATTER));
+        }
+    }
+}
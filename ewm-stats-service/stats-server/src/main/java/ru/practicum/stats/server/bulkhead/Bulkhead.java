@@ -0,0 +1,79 @@
+package ru.practicum.stats.server.bulkhead;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.server.exception.BulkheadFullException;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Ограничение числа одновременно выполняемых операций одного вида.
+ * Операция сверх лимита ждёт свободного места не дольше {@code maxWaitMs},
+ * после чего отклоняется с {@link BulkheadFullException}. Очередь ожидания справедливая.
+ */
+@Slf4j
+public class Bulkhead {
+
+    @Getter
+    private final String name;
+    @Getter
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+    private final StatsMetrics statsMetrics;
+
+    public Bulkhead(String name, int maxConcurrent, long maxWaitMs, StatsMetrics statsMetrics) {
+        this.name = name;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.statsMetrics = statsMetrics;
+        statsMetrics.bindBulkhead(this);
+    }
+
+    public <T> T call(Supplier<T> action) {
+        acquire();
+        try {
+            return action.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public void run(Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Число выполняющихся операций.
+     */
+    public int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Число операций, ожидающих свободного места.
+     */
+    public int waiting() {
+        return permits.getQueueLength();
+    }
+
+    private void acquire() {
+        try {
+            if (permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        statsMetrics.recordBulkheadRejection(name);
+        log.warn("Превышен лимит одновременных операций '{}' ({}), запрос отклонён", name, maxConcurrent);
+        throw new BulkheadFullException("Сервис статистики перегружен (" + name + "), повторите запрос позже");
+    }
+}
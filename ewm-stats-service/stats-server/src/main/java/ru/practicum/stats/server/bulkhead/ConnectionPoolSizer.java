@@ -0,0 +1,38 @@
+package ru.practicum.stats.server.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Увеличивает пул соединений Hikari до {@link StatsBulkheads#requiredConnections}, если он меньше:
+ * размер пула выводится из лимитов {@link StatsBulkheads} и числа фоновых задач
+ * {@code stats.bulkhead.background-connections}, а не задаётся отдельно от них.
+ * Пул, настроенный больше необходимого, не уменьшается.
+ */
+@Component
+@Slf4j
+public class ConnectionPoolSizer implements BeanPostProcessor {
+
+    private final int requiredConnections;
+
+    public ConnectionPoolSizer(@Value("${stats.bulkhead.ingest.max-concurrent:3}") int ingestMaxConcurrent,
+                               @Value("${stats.bulkhead.query.max-concurrent:6}") int queryMaxConcurrent,
+                               @Value("${stats.bulkhead.stream.max-concurrent:2}") int streamMaxConcurrent,
+                               @Value("${stats.bulkhead.background-connections:4}") int backgroundConnections) {
+        this.requiredConnections = StatsBulkheads.requiredConnections(ingestMaxConcurrent, queryMaxConcurrent,
+                streamMaxConcurrent, backgroundConnections);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof HikariDataSource dataSource && dataSource.getMaximumPoolSize() < requiredConnections) {
+            log.info("Размер пула соединений {} увеличен с {} до {} по лимитам одновременных операций",
+                    beanName, dataSource.getMaximumPoolSize(), requiredConnections);
+            dataSource.setMaximumPoolSize(requiredConnections);
+        }
+        return bean;
+    }
+}
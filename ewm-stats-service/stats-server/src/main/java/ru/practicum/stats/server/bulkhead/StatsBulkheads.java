@@ -0,0 +1,57 @@
+package ru.practicum.stats.server.bulkhead;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+
+/**
+ * Раздельные лимиты одновременных операций перед пулом соединений БД: приём хитов, запросы статистики
+ * и потоковые {@code /hits/stream} и {@code /stats/stream}.
+ * <p>
+ * При выполнении запросов в виртуальных потоках число потоков больше не ограничивает нагрузку на пул,
+ * поэтому пул размечается под сумму лимитов и фоновых задач ({@link ConnectionPoolSizer}): медленные
+ * {@code COUNT(DISTINCT)} занимают не больше {@code stats.bulkhead.query.max-concurrent} соединений,
+ * а {@code /hit} всегда находит свободное. Потоковые операции держат разрешение, пока клиент передаёт
+ * или читает данные, — для загрузки истории это миллионы хитов, — поэтому у них свой лимит
+ * {@code stats.bulkhead.stream.max-concurrent}, и они не вытесняют ни {@code /hit}, ни обычные запросы.
+ * Лимиты проверяются до вызова транзакционного сервиса, то есть до получения соединения. Лимит приёма хитов
+ * проверяют сами способы записи и только там, где запрос пишет в БД: при прямой записи и при записи остатка
+ * пакета в потоке запроса (CALLER_RUNS); постановка в буфер или журнал соединения не занимает.
+ */
+@Component
+@Getter
+@Slf4j
+public class StatsBulkheads {
+
+    private final Bulkhead ingest;
+    private final Bulkhead query;
+    private final Bulkhead stream;
+
+    public StatsBulkheads(StatsMetrics statsMetrics,
+                          @Value("${stats.bulkhead.ingest.max-concurrent:3}") int ingestMaxConcurrent,
+                          @Value("${stats.bulkhead.ingest.max-wait-ms:100}") long ingestMaxWaitMs,
+                          @Value("${stats.bulkhead.query.max-concurrent:6}") int queryMaxConcurrent,
+                          @Value("${stats.bulkhead.query.max-wait-ms:1000}") long queryMaxWaitMs,
+                          @Value("${stats.bulkhead.stream.max-concurrent:2}") int streamMaxConcurrent,
+                          @Value("${stats.bulkhead.stream.max-wait-ms:1000}") long streamMaxWaitMs) {
+        this.ingest = new Bulkhead("ingest", ingestMaxConcurrent, ingestMaxWaitMs, statsMetrics);
+        this.query = new Bulkhead("query", queryMaxConcurrent, queryMaxWaitMs, statsMetrics);
+        this.stream = new Bulkhead("stream", streamMaxConcurrent, streamMaxWaitMs, statsMetrics);
+        log.info("Лимиты одновременных операций: приём хитов={}, запросы статистики={}, потоковые операции={}",
+                ingestMaxConcurrent, queryMaxConcurrent, streamMaxConcurrent);
+    }
+
+    /**
+     * Число соединений, при котором пул не становится узким местом, даже когда все лимиты заняты.
+     * Транзакция приёма хитов берёт второе соединение для пополнения словаря ({@code REQUIRES_NEW}),
+     * поэтому приём и потоковая загрузка считаются по два соединения, а {@code /stats/stream} — по одному
+     * из тех же двух. {@code background} — соединения фоновых задач: писателя отложенной записи
+     * или загрузчика журнала вместе со словарём, дозаполнения агрегатов, загрузки структур в памяти
+     * и обслуживания партиций.
+     */
+    public static int requiredConnections(int ingest, int query, int stream, int background) {
+        return 2 * ingest + query + 2 * stream + background;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum.stats.server.cache;
+
+import jakarta.annotation.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Нормализованный запрос статистики — ключ {@link StatsResultCache}.
+ * Порядок и повторы URI не влияют на результат, поэтому фильтр хранится как множество;
+ * отсутствие фильтра ({@code uris == null}) означает «все URI».
+ * {@code limit == null} — без ограничения числа записей; {@code offset} — сколько первых записей пропустить.
+ */
+public record StatsQuery(LocalDateTime start,
+                         LocalDateTime end,
+                         @Nullable Set<String> uris,
+                         boolean unique,
+                         boolean approximate,
+                         @Nullable Integer limit,
+                         int offset) {
+
+    public static StatsQuery of(LocalDateTime start, LocalDateTime end, @Nullable Collection<String> uris,
+                                boolean unique, boolean approximate) {
+        return of(start, end, uris, unique, approximate, null, 0);
+    }
+
+    public static StatsQuery of(LocalDateTime start, LocalDateTime end, @Nullable Collection<String> uris,
+                                boolean unique, boolean approximate, @Nullable Integer limit, int offset) {
+        Set<String> normalized = uris == null || uris.isEmpty() ? null : Set.copyOf(uris);
+        return new StatsQuery(start, end, normalized, unique, approximate, limit, offset);
+    }
+
+    /**
+     * Запрошена ли только часть результата.
+     */
+    public boolean isPaged() {
+        return limit != null || offset > 0;
+    }
+
+    /**
+     * Пересекается ли диапазон запроса с отрезком [{@code from}, {@code to}].
+     */
+    boolean overlaps(LocalDateTime from, LocalDateTime to) {
+        return !to.isBefore(start) && !from.isAfter(end);
+    }
+}
@@ -0,0 +1,270 @@
+package ru.practicum.stats.server.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.ingest.HitsWrittenEvent;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш результатов {@code /stats} с вытеснением давно не используемых записей (LRU) и TTL на запись.
+ * <p>
+ * Результаты за диапазоны, закончившиеся в прошлом, меняются только при запоздалых хитах,
+ * поэтому живут {@code ttl-closed-ms}; диапазоны, захватывающие текущий момент, — {@code ttl-live-ms}.
+ * После коммита пакета хитов удаляются только те записи, в диапазон и фильтр URI которых попал хоть один хит.
+ * Записи с фильтром URI проиндексированы по URI, поэтому инвалидация просматривает лишь записи URI пакета
+ * и записи без фильтра. Все структуры конкурентные: инвалидация и вытеснение не блокируют чтение.
+ * <p>
+ * Пока результат вычисляется, в кэше лежит незаполненная запись: параллельные промахи по тому же ключу
+ * ждут её результата, а не выполняют запрос повторно. Если запись удалила инвалидация,
+ * вычисленный результат мог быть прочитан до коммита хитов и в кэше не остаётся.
+ */
+@Component
+@Slf4j
+public class StatsResultCache {
+
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlLiveNanos;
+    private final long ttlClosedNanos;
+    private final Map<StatsQuery, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, Set<StatsQuery>> queriesByUri = new ConcurrentHashMap<>();
+    private final Set<StatsQuery> unfilteredQueries = ConcurrentHashMap.newKeySet();
+    /**
+     * Порядок использования записей: метка последнего обращения → ключ. Метки устаревших обращений
+     * удаляются при следующем обращении, поэтому первая запись — кандидат на вытеснение.
+     */
+    private final ConcurrentSkipListMap<Long, StatsQuery> recency = new ConcurrentSkipListMap<>();
+    private final AtomicLong ticks = new AtomicLong();
+
+    public StatsResultCache(@Value("${stats.cache.enabled:true}") boolean enabled,
+                            @Value("${stats.cache.max-size:10000}") int maxSize,
+                            @Value("${stats.cache.ttl-live-ms:5000}") long ttlLiveMs,
+                            @Value("${stats.cache.ttl-closed-ms:600000}") long ttlClosedMs) {
+        this.enabled = enabled;
+        this.maxSize = maxSize;
+        this.ttlLiveNanos = TimeUnit.MILLISECONDS.toNanos(ttlLiveMs);
+        this.ttlClosedNanos = TimeUnit.MILLISECONDS.toNanos(ttlClosedMs);
+    }
+
+    /**
+     * Возвращает закэшированный результат запроса или вычисляет его через {@code loader}.
+     * Если результат уже вычисляется другим потоком, ждёт его; ошибка загрузки передаётся всем ожидающим.
+     */
+    public List<ViewStatsDto> get(StatsQuery query, Supplier<List<ViewStatsDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        while (true) {
+            Entry cached = entries.get(query);
+            if (cached != null) {
+                if (!cached.future.isDone()) {
+                    return await(cached);
+                }
+                if (!cached.future.isCompletedExceptionally() && cached.expiresAtNanos - System.nanoTime() > 0) {
+                    touch(query, cached);
+                    return cached.future.join();
+                }
+                remove(query, cached);
+                continue;
+            }
+
+            Entry pending = new Entry();
+            if (entries.putIfAbsent(query, pending) != null) {
+                continue;
+            }
+            // Индекс заполняется до загрузки: инвалидация, не нашедшая запись, завершилась раньше чтения из БД
+            index(query);
+            touch(query, pending);
+            evictOverflow();
+            return load(query, pending, loader);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onHitsWritten(HitsWrittenEvent event) {
+        invalidate(event.hits());
+    }
+
+    /**
+     * Удаляет записи, на результат которых могли повлиять хиты.
+     */
+    public void invalidate(List<EndpointHit> hits) {
+        if (!enabled || hits.isEmpty()) {
+            return;
+        }
+        // Пакет сворачивается в отрезки времени по каждому URI: проверка записи не зависит от размера пакета
+        Map<String, Span> spansByUri = new HashMap<>();
+        Span total = null;
+        for (EndpointHit hit : hits) {
+            spansByUri.merge(hit.getUri(), Span.of(hit.getTimestamp()), Span::union);
+            total = total == null ? Span.of(hit.getTimestamp()) : total.union(Span.of(hit.getTimestamp()));
+        }
+
+        int removed = 0;
+        for (StatsQuery query : unfilteredQueries) {
+            if (query.overlaps(total.from(), total.to()) && remove(query, null)) {
+                removed++;
+            }
+        }
+        for (Map.Entry<String, Span> uriSpan : spansByUri.entrySet()) {
+            Set<StatsQuery> queries = queriesByUri.get(uriSpan.getKey());
+            if (queries == null) {
+                continue;
+            }
+            Span span = uriSpan.getValue();
+            for (StatsQuery query : queries) {
+                if (query.overlaps(span.from(), span.to()) && remove(query, null)) {
+                    removed++;
+                }
+            }
+        }
+        log.debug("Инвалидировано {} записей кэша статистики после записи {} хитов", removed, hits.size());
+    }
+
+    public void clear() {
+        entries.keySet().forEach(query -> remove(query, null));
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private List<ViewStatsDto> load(StatsQuery query, Entry pending, Supplier<List<ViewStatsDto>> loader) {
+        List<ViewStatsDto> value;
+        try {
+            value = List.copyOf(loader.get());
+        } catch (RuntimeException | Error e) {
+            remove(query, pending);
+            pending.future.completeExceptionally(e);
+            throw e;
+        }
+        long ttl = query.end().isBefore(LocalDateTime.now()) ? ttlClosedNanos : ttlLiveNanos;
+        pending.expiresAtNanos = System.nanoTime() + ttl;
+        pending.future.complete(value);
+        return value;
+    }
+
+    private static List<ViewStatsDto> await(Entry entry) {
+        try {
+            return entry.future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Удаляет запись {@code expected} (или любую запись ключа, если {@code expected == null}) вместе с её
+     * индексом и меткой использования. Индекс снимается под блокировкой ключа в карте, поэтому
+     * запись, добавленная параллельно, из индекса не пропадает.
+     *
+     * @return {@code true}, если запись была удалена.
+     */
+    private boolean remove(StatsQuery query, Entry expected) {
+        boolean[] removed = new boolean[1];
+        entries.compute(query, (key, current) -> {
+            if (current != null && (expected == null || current == expected)) {
+                recency.remove(current.stamp, key);
+                removed[0] = true;
+                current = null;
+            }
+            if (current == null) {
+                unindex(key);
+            }
+            return current;
+        });
+        return removed[0];
+    }
+
+    private void index(StatsQuery query) {
+        if (query.uris() == null) {
+            unfilteredQueries.add(query);
+            return;
+        }
+        for (String uri : query.uris()) {
+            queriesByUri.compute(uri, (key, queries) -> {
+                Set<StatsQuery> result = queries == null ? ConcurrentHashMap.newKeySet() : queries;
+                result.add(query);
+                return result;
+            });
+        }
+    }
+
+    private void unindex(StatsQuery query) {
+        if (query.uris() == null) {
+            unfilteredQueries.remove(query);
+            return;
+        }
+        for (String uri : query.uris()) {
+            queriesByUri.computeIfPresent(uri, (key, queries) -> {
+                queries.remove(query);
+                return queries.isEmpty() ? null : queries;
+            });
+        }
+    }
+
+    private void touch(StatsQuery query, Entry entry) {
+        synchronized (entry) {
+            long previous = entry.stamp;
+            entry.stamp = ticks.incrementAndGet();
+            recency.put(entry.stamp, query);
+            recency.remove(previous, query);
+        }
+        if (entries.get(query) != entry) {
+            // Запись удалили во время обращения: метка не должна пережить запись
+            recency.remove(entry.stamp, query);
+        }
+    }
+
+    private void evictOverflow() {
+        while (entries.size() > maxSize) {
+            Map.Entry<Long, StatsQuery> eldest = recency.pollFirstEntry();
+            if (eldest == null) {
+                return;
+            }
+            Entry entry = entries.get(eldest.getValue());
+            if (entry != null && entry.stamp == eldest.getKey()) {
+                remove(eldest.getValue(), entry);
+            }
+        }
+    }
+
+    private record Span(LocalDateTime from, LocalDateTime to) {
+
+        static Span of(LocalDateTime time) {
+            return new Span(time, time);
+        }
+
+        Span union(Span other) {
+            return new Span(from.isBefore(other.from) ? from : other.from, to.isAfter(other.to) ? to : other.to);
+        }
+    }
+
+    private static final class Entry {
+        private final CompletableFuture<List<ViewStatsDto>> future = new CompletableFuture<>();
+        private volatile long expiresAtNanos;
+        private volatile long stamp;
+    }
+}
@@ -0,0 +1,469 @@
+package ru.practicum.stats.server.columnar;
+
+import jakarta.annotation.Nullable;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.ingest.HitsWrittenEvent;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+
+import javax.sql.DataSource;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Хиты за последние {@code stats.columnar.retention-days} суток в памяти, по колонкам {@link DayColumns} на сутки.
+ * <p>
+ * Сервис и URI кодируются одним плотным идентификатором пары, IP — идентификатором локального словаря,
+ * поэтому подсчёт неуникальных просмотров — это цикл {@code counts[pair]++} по массиву,
+ * а уникальных — сортировка упакованных ключей «пара + IP» и подсчёт различных.
+ * Сутки, целиком попавшие в диапазон запроса, сканируются без проверки времени.
+ * Запросы больше {@code stats.columnar.parallel-threshold} строк делятся на куски и считаются
+ * в общем пуле ForkJoin на всех ядрах.
+ * <p>
+ * Колонки строятся из таблицы {@code hits} при старте, до того как веб-сервер начнёт принимать запросы,
+ * и дополняются после коммита каждого пакета хитов ({@link HitsWrittenEvent}).
+ * Сутки (UTC) старше окна хранения удаляются по расписанию; после этого словари пар и IP перестраиваются
+ * по оставшимся суткам, чтобы пары и IP, которых больше нет в окне, не занимали память.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.engine", havingValue = "columnar")
+@Slf4j
+public class ColumnarHitStore {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final int CHUNK_ROWS = 1 << 20;
+    private static final String LOAD_SQL = "SELECT app_id, uri_id, ip, hit_ts FROM hits WHERE hit_ts >= ?";
+    private static final Comparator<Row> ROW_ORDER = Comparator
+            .comparingLong(Row::hits).reversed()
+            .thenComparingInt(Row::appId)
+            .thenComparingInt(Row::uriId);
+
+    private final JdbcTemplate cursor;
+    private final TransactionTemplate transactionTemplate;
+    private final HitDictionary hitDictionary;
+    private final int retentionDays;
+    private final long parallelThreshold;
+    private final Clock clock;
+    // Поля ниже меняются только под writeLock; читатели видят сутки и пары через volatile-снимок pairs
+    private final Object writeLock = new Object();
+    private NavigableMap<Long, DayColumns> days = new ConcurrentSkipListMap<>();
+    private final Map<Long, Integer> pairIds = new HashMap<>();
+    private final Map<ByteBuffer, Integer> ipIds = new HashMap<>();
+    private int[] pairAppIds;
+    private int[] pairUriIds;
+    private String[] pairApps;
+    private String[] pairUris;
+    private volatile Pairs pairs;
+
+    @Autowired
+    public ColumnarHitStore(DataSource dataSource,
+                            TransactionTemplate transactionTemplate,
+                            HitDictionary hitDictionary,
+                            @Value("${stats.columnar.retention-days:31}") int retentionDays,
+                            @Value("${stats.columnar.parallel-threshold:2000000}") long parallelThreshold,
+                            @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        this(dataSource, transactionTemplate, hitDictionary, retentionDays, parallelThreshold, fetchSize,
+                Clock.systemUTC());
+    }
+
+    ColumnarHitStore(DataSource dataSource, TransactionTemplate transactionTemplate, HitDictionary hitDictionary,
+                     int retentionDays, long parallelThreshold, int fetchSize, Clock clock) {
+        this.clock = clock;
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.transactionTemplate = transactionTemplate;
+        this.hitDictionary = hitDictionary;
+        this.retentionDays = retentionDays;
+        this.parallelThreshold = parallelThreshold;
+        resetPairs();
+        publishPairs();
+    }
+
+    /**
+     * Строит колонки заново по хитам окна хранения из БД.
+     */
+    @PostConstruct
+    public void load() {
+        long startedAt = System.nanoTime();
+        long from = windowStartDay() * SECONDS_PER_DAY;
+        synchronized (writeLock) {
+            days = new ConcurrentSkipListMap<>();
+            pairIds.clear();
+            ipIds.clear();
+            resetPairs();
+            publishPairs();
+            // Для PostgreSQL курсор с fetch-size работает только внутри транзакции
+            transactionTemplate.executeWithoutResult(status -> cursor.query(LOAD_SQL, rs -> {
+                append(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getBytes("ip"), rs.getLong("hit_ts"));
+            }, from));
+            days.values().forEach(DayColumns::publish);
+        }
+        log.info("Колоночное хранилище построено: {} хитов за {} суток, {} пар сервис/URI, {} IP за {} мс",
+                rows(), days.size(), pairs.size(), ipIds.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public void onHitsWritten(HitsWrittenEvent event) {
+        append(event.hits());
+    }
+
+    /**
+     * Добавляет зафиксированные в БД хиты. Хиты старше окна хранения пропускаются.
+     */
+    public void append(List<EndpointHit> hits) {
+        long windowStart = windowStartDay() * SECONDS_PER_DAY;
+        synchronized (writeLock) {
+            List<DayColumns> touched = new ArrayList<>();
+            for (EndpointHit hit : hits) {
+                long epochSecond = EpochSecondsConverter.toEpochSecond(hit.getTimestamp());
+                if (epochSecond < windowStart) {
+                    continue;
+                }
+                int appId = hitDictionary.findAppId(hit.getApp());
+                int uriId = hitDictionary.findUriId(hit.getUri());
+                if (appId == HitDictionary.UNKNOWN_ID || uriId == HitDictionary.UNKNOWN_ID) {
+                    continue;
+                }
+                touched.add(append(appId, uriId, hit.ipBytes(), epochSecond));
+            }
+            touched.stream().distinct().forEach(DayColumns::publish);
+        }
+    }
+
+    /**
+     * Удаляет сутки, вышедшие за окно хранения, и перестраивает словари пар и IP по оставшимся суткам.
+     */
+    @Scheduled(cron = "${stats.columnar.eviction-cron:0 5 0 * * *}")
+    public void evictExpired() {
+        synchronized (writeLock) {
+            NavigableMap<Long, DayColumns> retained = days.tailMap(windowStartDay(), true);
+            int evicted = days.size() - retained.size();
+            if (evicted == 0) {
+                return;
+            }
+            int pairsBefore = pairs.size();
+            int ipsBefore = ipIds.size();
+            compact(retained);
+            log.info("Из колоночного хранилища удалено {} суток за пределами окна хранения; пар сервис/URI: {} -> {}, "
+                    + "IP: {} -> {}", evicted, pairsBefore, pairs.size(), ipsBefore, ipIds.size());
+        }
+    }
+
+    /**
+     * Полностью ли диапазон, начинающийся в {@code start}, лежит в окне хранения.
+     */
+    public boolean covers(LocalDateTime start) {
+        return EpochSecondsConverter.toEpochSecond(start) >= windowStartDay() * SECONDS_PER_DAY;
+    }
+
+    /**
+     * Статистика по запросу, отсортированная по убыванию просмотров, с {@code limit} и {@code offset}.
+     * Запрос должен лежать в окне хранения ({@link #covers}); приближённый подсчёт не нужен — ответ точный.
+     */
+    public List<ViewStatsDto> getStats(StatsQuery query) {
+        long from = EpochSecondsConverter.toEpochSecond(query.start());
+        long to = EpochSecondsConverter.toEpochSecond(query.end());
+        // Снимки суток берутся раньше снимка пар: все пары в колонках уже есть в словаре.
+        // Если между ними словарь перестроен, идентификаторы пар в колонках изменились — снимки берутся заново
+        NavigableMap<Long, DayColumns> days;
+        List<Slice> slices;
+        Pairs current;
+        do {
+            days = this.pairs.days();
+            slices = slices(days, from, to);
+            current = this.pairs;
+        } while (current.days() != days);
+        Pairs pairs = current;
+        boolean[] allowed = query.uris() == null ? null : allowedPairs(pairs, query.uris());
+
+        long rows = 0;
+        for (Slice slice : slices) {
+            rows += slice.to() - slice.from();
+        }
+        boolean parallel = rows >= parallelThreshold;
+        long[] totals = query.unique()
+                ? countUnique(slices, allowed, pairs.size(), parallel)
+                : count(slices, allowed, pairs.size(), parallel);
+
+        List<Row> result = new ArrayList<>();
+        for (int pair = 0; pair < totals.length; pair++) {
+            if (totals[pair] > 0) {
+                result.add(new Row(pairs.appIds()[pair], pairs.uriIds()[pair], pair, totals[pair]));
+            }
+        }
+        result.sort(ROW_ORDER);
+        return result.stream()
+                .skip(query.offset())
+                .limit(query.limit() == null ? Long.MAX_VALUE : query.limit())
+                .map(row -> new ViewStatsDto(pairs.apps()[row.pair()], pairs.uris()[row.pair()], row.hits()))
+                .toList();
+    }
+
+    long rows() {
+        return pairs.days().values().stream().mapToLong(day -> day.snapshot().size()).sum();
+    }
+
+    int pairCount() {
+        return pairs.size();
+    }
+
+    int ipCount() {
+        synchronized (writeLock) {
+            return ipIds.size();
+        }
+    }
+
+    private DayColumns append(int appId, int uriId, byte[] ip, long epochSecond) {
+        long day = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        DayColumns columns = days.computeIfAbsent(day, d -> new DayColumns(d * SECONDS_PER_DAY));
+        int pairCount = pairIds.size();
+        int pair = pairId(appId, uriId);
+        if (pairIds.size() != pairCount) {
+            publishPairs();
+        }
+        columns.append(pair, ipId(ip), epochSecond);
+        return columns;
+    }
+
+    private int pairId(int appId, int uriId) {
+        long key = ((long) appId << 32) | uriId;
+        Integer id = pairIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int pair = pairIds.size();
+        if (pair == pairAppIds.length) {
+            int capacity = pair * 2;
+            pairAppIds = Arrays.copyOf(pairAppIds, capacity);
+            pairUriIds = Arrays.copyOf(pairUriIds, capacity);
+            pairApps = Arrays.copyOf(pairApps, capacity);
+            pairUris = Arrays.copyOf(pairUris, capacity);
+        }
+        pairAppIds[pair] = appId;
+        pairUriIds[pair] = uriId;
+        pairApps[pair] = hitDictionary.appName(appId);
+        pairUris[pair] = hitDictionary.uri(uriId);
+        pairIds.put(key, pair);
+        return pair;
+    }
+
+    private void resetPairs() {
+        pairAppIds = new int[16];
+        pairUriIds = new int[16];
+        pairApps = new String[16];
+        pairUris = new String[16];
+    }
+
+    private void publishPairs() {
+        // Массивы общие со старыми снимками, но те читают только свои первые size элементов
+        pairs = new Pairs(pairAppIds, pairUriIds, pairApps, pairUris, pairIds.size(), days);
+    }
+
+    private int ipId(byte[] ip) {
+        return ipIds.computeIfAbsent(ByteBuffer.wrap(ip), key -> ipIds.size());
+    }
+
+    /**
+     * Перекладывает сутки {@code retained} в новые колонки с плотной нумерацией пар и IP, которые в них встречаются.
+     * Новые сутки и словарь публикуются одним снимком пар, до этого читатели работают со старыми.
+     */
+    private void compact(NavigableMap<Long, DayColumns> retained) {
+        Pairs oldPairs = pairs;
+        ByteBuffer[] oldIps = new ByteBuffer[ipIds.size()];
+        ipIds.forEach((ip, id) -> oldIps[id] = ip);
+        int[] pairMap = new int[oldPairs.size()];
+        int[] ipMap = new int[oldIps.length];
+        Arrays.fill(pairMap, -1);
+        Arrays.fill(ipMap, -1);
+
+        pairIds.clear();
+        ipIds.clear();
+        resetPairs();
+        NavigableMap<Long, DayColumns> compacted = new ConcurrentSkipListMap<>();
+        for (DayColumns day : retained.values()) {
+            DayColumns.Snapshot snapshot = day.snapshot();
+            DayColumns copy = new DayColumns(day.dayStart());
+            for (int i = 0; i < snapshot.size(); i++) {
+                int pair = snapshot.pairs()[i];
+                if (pairMap[pair] < 0) {
+                    pairMap[pair] = pairId(oldPairs.appIds()[pair], oldPairs.uriIds()[pair]);
+                }
+                int ip = snapshot.ips()[i];
+                if (ipMap[ip] < 0) {
+                    ipMap[ip] = ipIds.computeIfAbsent(oldIps[ip], key -> ipIds.size());
+                }
+                copy.append(pairMap[pair], ipMap[ip], day.dayStart() + snapshot.seconds()[i]);
+            }
+            copy.publish();
+            compacted.put(day.dayStart() / SECONDS_PER_DAY, copy);
+        }
+        days = compacted;
+        publishPairs();
+    }
+
+    private long windowStartDay() {
+        return LocalDate.now(clock.withZone(ZoneOffset.UTC)).minusDays(retentionDays - 1L).toEpochDay();
+    }
+
+    /**
+     * Куски колонок, пересекающихся с [{@code from}, {@code to}], не длиннее {@link #CHUNK_ROWS} строк.
+     */
+    private static List<Slice> slices(NavigableMap<Long, DayColumns> days, long from, long to) {
+        List<Slice> slices = new ArrayList<>();
+        long fromDay = Math.floorDiv(from, SECONDS_PER_DAY);
+        long toDay = Math.floorDiv(to, SECONDS_PER_DAY);
+        for (DayColumns day : days.subMap(fromDay, true, toDay, true).values()) {
+            DayColumns.Snapshot snapshot = day.snapshot();
+            int lo = (int) Math.max(0, from - day.dayStart());
+            int hi = (int) Math.min(SECONDS_PER_DAY - 1, to - day.dayStart());
+            for (int start = 0; start < snapshot.size(); start += CHUNK_ROWS) {
+                slices.add(new Slice(snapshot, lo, hi, start, Math.min(snapshot.size(), start + CHUNK_ROWS)));
+            }
+        }
+        return slices;
+    }
+
+    private static boolean[] allowedPairs(Pairs pairs, Set<String> uris) {
+        boolean[] allowed = new boolean[pairs.size()];
+        for (int pair = 0; pair < pairs.size(); pair++) {
+            allowed[pair] = uris.contains(pairs.uris()[pair]);
+        }
+        return allowed;
+    }
+
+    private static long[] count(List<Slice> slices, @Nullable boolean[] allowed, int pairCount, boolean parallel) {
+        Stream<Slice> stream = parallel ? slices.parallelStream() : slices.stream();
+        return stream.map(slice -> slice.count(allowed, pairCount))
+                .reduce(ColumnarHitStore::sum)
+                .orElseGet(() -> new long[pairCount]);
+    }
+
+    /**
+     * Ключ «пара в старших 32 битах, IP в младших» для каждой подходящей строки; после сортировки
+     * различные IP одной пары идут подряд и считаются одним проходом.
+     */
+    private static long[] countUnique(List<Slice> slices, @Nullable boolean[] allowed, int pairCount,
+                                      boolean parallel) {
+        Stream<Slice> stream = parallel ? slices.parallelStream() : slices.stream();
+        long[] keys = stream.map(slice -> slice.distinctKeys(allowed))
+                .reduce(ColumnarHitStore::concat)
+                .orElseGet(() -> new long[0]);
+        if (parallel) {
+            Arrays.parallelSort(keys);
+        } else {
+            Arrays.sort(keys);
+        }
+
+        long[] totals = new long[pairCount];
+        for (int i = 0; i < keys.length; i++) {
+            if (i == 0 || keys[i] != keys[i - 1]) {
+                totals[(int) (keys[i] >>> 32)]++;
+            }
+        }
+        return totals;
+    }
+
+    private static long[] sum(long[] a, long[] b) {
+        for (int i = 0; i < a.length; i++) {
+            a[i] += b[i];
+        }
+        return a;
+    }
+
+    private static long[] concat(long[] a, long[] b) {
+        long[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Строки [{@code from}, {@code to}) снимка суток; время строки должно лежать в [{@code lo}, {@code hi}]
+     * секунд от начала суток.
+     */
+    private record Slice(DayColumns.Snapshot columns, int lo, int hi, int from, int to) {
+
+        boolean wholeDay() {
+            return lo == 0 && hi == SECONDS_PER_DAY - 1;
+        }
+
+        long[] count(@Nullable boolean[] allowed, int pairCount) {
+            long[] counts = new long[pairCount];
+            int[] pairs = columns.pairs();
+            int[] seconds = columns.seconds();
+            if (wholeDay() && allowed == null) {
+                for (int i = from; i < to; i++) {
+                    counts[pairs[i]]++;
+                }
+                return counts;
+            }
+            for (int i = from; i < to; i++) {
+                int second = seconds[i];
+                int pair = pairs[i];
+                if (second >= lo && second <= hi && (allowed == null || allowed[pair])) {
+                    counts[pair]++;
+                }
+            }
+            return counts;
+        }
+
+        long[] distinctKeys(@Nullable boolean[] allowed) {
+            long[] keys = new long[to - from];
+            int[] pairs = columns.pairs();
+            int[] ips = columns.ips();
+            int[] seconds = columns.seconds();
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                int second = seconds[i];
+                int pair = pairs[i];
+                if (second >= lo && second <= hi && (allowed == null || allowed[pair])) {
+                    keys[n++] = ((long) pair << 32) | (ips[i] & 0xFFFF_FFFFL);
+                }
+            }
+            // Повторы внутри куска убираются сразу, чтобы общий массив для сортировки был меньше
+            Arrays.sort(keys, 0, n);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) {
+                if (distinct == 0 || keys[i] != keys[distinct - 1]) {
+                    keys[distinct++] = keys[i];
+                }
+            }
+            return Arrays.copyOf(keys, distinct);
+        }
+    }
+
+    /**
+     * Снимок словаря пар «сервис + URI»: индекс массива — идентификатор пары, действительны первые {@code size}.
+     * {@code days} — сутки, колонки которых пронумерованы этим словарём.
+     */
+    private record Pairs(int[] appIds, int[] uriIds, String[] apps, String[] uris, int size,
+                         NavigableMap<Long, DayColumns> days) {
+    }
+
+    private record Row(int appId, int uriId, int pair, long hits) {
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.stats.server.columnar;
+
+import java.util.Arrays;
+
+/**
+ * Хиты одних суток (UTC) в виде трёх параллельных массивов примитивов:
+ * идентификатор пары «сервис + URI», идентификатор IP и секунда от начала суток.
+ * <p>
+ * Запись выполняется под блокировкой {@link ColumnarHitStore}; добавленные строки становятся видны
+ * запросам только после {@link #publish()}. Читатель берёт {@link Snapshot} и сканирует его без блокировок:
+ * при расширении массивы копируются, поэтому уже выданный снимок не меняется в пределах своего размера.
+ */
+final class DayColumns {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final long dayStart;
+    private int[] pairs = new int[INITIAL_CAPACITY];
+    private int[] ips = new int[INITIAL_CAPACITY];
+    private int[] seconds = new int[INITIAL_CAPACITY];
+    private int size;
+    private volatile Snapshot snapshot = new Snapshot(pairs, ips, seconds, 0);
+
+    DayColumns(long dayStart) {
+        this.dayStart = dayStart;
+    }
+
+    long dayStart() {
+        return dayStart;
+    }
+
+    void append(int pair, int ip, long epochSecond) {
+        if (size == pairs.length) {
+            int capacity = size + (size >> 1);
+            pairs = Arrays.copyOf(pairs, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+            seconds = Arrays.copyOf(seconds, capacity);
+        }
+        pairs[size] = pair;
+        ips[size] = ip;
+        seconds[size] = (int) (epochSecond - dayStart);
+        size++;
+    }
+
+    void publish() {
+        snapshot = new Snapshot(pairs, ips, seconds, size);
+    }
+
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    record Snapshot(int[] pairs, int[] ips, int[] seconds, int size) {
+    }
+}
@@ -1,13 +1,32 @@
 package ru.practicum.stats.server.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.bulkhead.StatsBulkheads;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.exception.ValidationException;
 import ru.practicum.stats.server.service.StatsService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 
 @RestController
@@ -16,6 +35,8 @@ import java.util.List;
 public class StatsController {
 
     private final StatsService statsService;
+    private final ObjectMapper objectMapper;
+    private final StatsBulkheads statsBulkheads;
 
     /**
      * Принимает данные о запросе («хите») и сохраняет их в хранилище.
@@ -33,23 +54,193 @@ public class StatsController {
         log.debug("Данные о посещении успешно сохранены");
     }
 
+    /**
+     * Принимает пакет «хитов» и сохраняет их в одной транзакции.
+     */
+    @PostMapping("/hits")
+    @ResponseStatus(HttpStatus.CREATED)
+    public void hits(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        log.debug("Получен пакет данных о посещениях: {} записей", endpointHitDtos.size());
+
+        statsService.saveHits(endpointHitDtos);
+
+        log.debug("Пакет данных о посещениях успешно сохранён");
+    }
+
+    /**
+     * Принимает поток «хитов» в формате NDJSON: по одной записи {@link EndpointHitDto} на строку.
+     * Тело запроса разбирается по мере чтения и сохраняется пакетами, поэтому длина потока не ограничена,
+     * а потребление памяти не зависит от неё. Предназначен для загрузки исторических данных.
+     * Некорректная строка завершает приём с ответом 400; записанные до неё пакеты остаются сохранёнными.
+     */
+    @PostMapping(value = "/hits/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void hitStream(InputStream body) throws IOException {
+        log.debug("Получен поток данных о посещениях");
+
+        try (MappingIterator<EndpointHitDto> values = objectMapper.readerFor(EndpointHitDto.class).readValues(body)) {
+            long accepted = statsBulkheads.getStream().call(() -> statsService.saveHitStream(ndjsonIterator(values)));
+            log.debug("Поток данных о посещениях успешно сохранён: {} записей", accepted);
+        }
+    }
+
     /**
      * Возвращает агрегированную статистику по просмотрам за указанный период.
+     * При {@code approximate=true} уникальные просмотры оцениваются по скетчам HyperLogLog,
+     * а каждая запись содержит относительную ошибку оценки.
+     * {@code limit} и {@code offset} возвращают страницу результата, отсортированного по убыванию просмотров;
+     * ограничение применяется в SQL-запросе.
      */
     @GetMapping("/stats")
     public List<ViewStatsDto> getStats(
             @RequestParam String start,
             @RequestParam String end,
             @RequestParam(required = false) List<String> uris,
-            @RequestParam(defaultValue = "false") boolean unique) {
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset) {
 
-        log.debug("Получен запрос на получение статистики: start={}, end={}, uris={}, unique={}",
-                start, end, uris, unique);
+        log.debug("Получен запрос на получение статистики: start={}, end={}, uris={}, unique={}, approximate={}, " +
+                "limit={}, offset={}", start, end, uris, unique, approximate, limit, offset);
 
-        List<ViewStatsDto> stats = statsService.getStats(start, end, uris, unique);
+        List<ViewStatsDto> stats = statsBulkheads.getQuery().call(() ->
+                statsService.getStats(start, end, uris, unique, approximate, limit, offset));
 
         log.debug("Статистика успешно получена. Количество записей: {}", stats.size());
 
         return stats;
     }
-}
\ No newline at end of file
+
+    /**
+     * Выполняет пакет запросов статистики с параметрами {@code /stats} за один HTTP-запрос.
+     * Запросы с одинаковыми периодом и {@code unique} считаются одним чтением; результаты возвращаются
+     * массивом массивов в порядке запросов пакета.
+     */
+    @PostMapping("/stats/batch")
+    public List<List<ViewStatsDto>> getStatsBatch(@RequestBody List<StatsBatchQueryDto> queries) {
+        log.debug("Получен пакетный запрос статистики: {} запросов", queries.size());
+
+        List<List<ViewStatsDto>> results = statsBulkheads.getQuery().call(() -> statsService.getStatsBatch(queries));
+
+        log.debug("Пакетный запрос статистики успешно выполнен");
+
+        return results;
+    }
+
+    /**
+     * Потоковый вариант {@code /stats} в формате NDJSON: по одной записи {@link ViewStatsDto} на строку.
+     * Строки пишутся в ответ по мере чтения курсора БД, поэтому потребление памяти не зависит от размера результата.
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam(defaultValue = "false") boolean approximate,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "0") int offset) {
+
+        log.debug("Получен запрос на потоковую выдачу статистики: start={}, end={}, uris={}, unique={}, " +
+                "approximate={}, limit={}, offset={}", start, end, uris, unique, approximate, limit, offset);
+
+        // Параметры проверяются до начала ответа, чтобы ошибка валидации вернулась как 400
+        StatsQuery query = statsService.prepareQuery(start, end, uris, unique, approximate, limit, offset);
+
+        StreamingResponseBody body = out -> {
+            ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                int count = statsBulkheads.getStream().call(() -> statsService.streamStats(query, dto -> {
+                    try {
+                        writer.writeValue(generator, dto);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+                log.debug("Потоковая выдача статистики завершена. Количество записей: {}", count);
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    /**
+     * Самые посещаемые URI за последние {@code minutes} минут: не больше {@code k} записей на сервис.
+     * Отвечается по сводкам Space-Saving в памяти без обращения к БД; если у сервиса за минуту больше URI,
+     * чем счётчиков в сводке, {@code hits} — оценка сверху, а {@code maxOvercount} — наибольшее завышение.
+     */
+    @GetMapping("/stats/top")
+    public List<ViewStatsDto> getTopUris(
+            @RequestParam(required = false) String app,
+            @RequestParam(defaultValue = "10") int k,
+            @RequestParam(required = false) Integer minutes) {
+
+        log.debug("Получен запрос на получение популярных URI: app={}, k={}, minutes={}", app, k, minutes);
+
+        List<ViewStatsDto> top = statsBulkheads.getQuery().call(() -> statsService.getTopUris(app, k, minutes));
+
+        log.debug("Популярные URI успешно получены. Количество записей: {}", top.size());
+
+        return top;
+    }
+
+    /**
+     * Просмотры каждой пары (сервис, URI) по корзинам шага {@code interval} ({@code MINUTE}, {@code HOUR}
+     * или {@code DAY}) за период одним запросом. Фильтры — как у {@code /stats}; корзины без просмотров не выдаются.
+     */
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeriesStatsDto> getTimeSeries(
+            @RequestParam String start,
+            @RequestParam String end,
+            @RequestParam(required = false) List<String> uris,
+            @RequestParam(defaultValue = "false") boolean unique,
+            @RequestParam StatsInterval interval) {
+
+        log.debug("Получен запрос на получение временного ряда: start={}, end={}, uris={}, unique={}, interval={}",
+                start, end, uris, unique, interval);
+
+        List<TimeSeriesStatsDto> series = statsBulkheads.getQuery().call(() ->
+                statsService.getTimeSeries(start, end, uris, unique, interval));
+
+        log.debug("Временной ряд успешно получен. Количество записей: {}", series.size());
+
+        return series;
+    }
+
+    /**
+     * Итератор по строкам NDJSON, переводящий ошибки разбора в {@link ValidationException} с номером строки.
+     */
+    private static Iterator<EndpointHitDto> ndjsonIterator(MappingIterator<EndpointHitDto> values) {
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                try {
+                    return values.hasNextValue();
+                } catch (IOException e) {
+                    throw streamError(values, e);
+                }
+            }
+
+            @Override
+            public EndpointHitDto next() {
+                try {
+                    return values.nextValue();
+                } catch (IOException e) {
+                    throw streamError(values, e);
+                }
+            }
+        };
+    }
+
+    private static RuntimeException streamError(MappingIterator<?> values, IOException e) {
+        if (e instanceof JsonProcessingException jsonError) {
+            return new ValidationException("Некорректная запись NDJSON в строке "
+                    + values.getCurrentLocation().getLineNr() + ": " + jsonError.getOriginalMessage());
+        }
+        return new UncheckedIOException(e);
+    }
+}
@@ -0,0 +1,195 @@
+package ru.practicum.stats.server.dictionary;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Словари названий сервисов ({@code apps}) и URI ({@code uris}), закэшированные в памяти.
+ * Хиты и агрегаты хранят только целочисленные идентификаторы из этих словарей.
+ * <p>
+ * Новые записи словаря создаются в отдельной транзакции, чтобы откат записи хитов
+ * не оставлял в кэше идентификатор, которого нет в БД.
+ * <p>
+ * Отсутствие значения в словаре тоже кэшируется, но лишь на {@code stats.dictionary.miss-ttl-ms}:
+ * запросы статистики по неизвестным URI не обращаются к БД каждый раз, а значение, созданное другим
+ * экземпляром сервиса, становится видно не позже чем через TTL. Своя вставка снимает промах сразу.
+ */
+@Component
+@Slf4j
+public class HitDictionary {
+
+    public static final int UNKNOWN_ID = -1;
+    private static final int MAX_CACHED_MISSES = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTransaction;
+    private final long missTtlNanos;
+    private final Table apps = new Table("apps", "name", 100);
+    private final Table uris = new Table("uris", "uri", 200);
+
+    // Конвертеры сущностей создаются вместе с EntityManagerFactory, от которой зависит
+    // менеджер транзакций, поэтому он внедряется лениво
+    public HitDictionary(JdbcTemplate jdbcTemplate,
+                         @Lazy PlatformTransactionManager transactionManager,
+                         @Value("${stats.dictionary.miss-ttl-ms:1000}") long missTtlMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.missTtlNanos = TimeUnit.MILLISECONDS.toNanos(missTtlMs);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Идентификатор сервиса; при отсутствии запись словаря создаётся.
+     */
+    public int appId(String app) {
+        return apps.getOrCreate(app);
+    }
+
+    /**
+     * Идентификатор URI; при отсутствии запись словаря создаётся.
+     */
+    public int uriId(String uri) {
+        return uris.getOrCreate(uri);
+    }
+
+    /**
+     * Идентификатор сервиса без создания записи или {@link #UNKNOWN_ID}.
+     */
+    public int findAppId(String app) {
+        return apps.find(app);
+    }
+
+    /**
+     * Идентификатор URI без создания записи или {@link #UNKNOWN_ID}.
+     */
+    public int findUriId(String uri) {
+        return uris.find(uri);
+    }
+
+    /**
+     * Идентификаторы известных словарю URI; неизвестные пропускаются.
+     */
+    public List<Integer> findUriIds(Collection<String> uriValues) {
+        List<Integer> ids = new ArrayList<>(uriValues.size());
+        for (String uri : uriValues) {
+            int id = uris.find(uri);
+            if (id != UNKNOWN_ID) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    public String appName(int id) {
+        return apps.value(id);
+    }
+
+    public String uri(int id) {
+        return uris.value(id);
+    }
+
+    /**
+     * Одна таблица словаря с двусторонним кэшем «значение ↔ идентификатор».
+     */
+    private class Table {
+
+        private final String selectIdSql;
+        private final String selectValueSql;
+        private final String insertIfAbsentSql;
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private final Map<Integer, String> values = new ConcurrentHashMap<>();
+        // Значение, которого нет в словаре → момент (System.nanoTime), до которого промах действителен
+        private final Map<String, Long> misses = new ConcurrentHashMap<>();
+
+        Table(String table, String column, int length) {
+            this.selectIdSql = "SELECT id FROM " + table + " WHERE " + column + " = ?";
+            this.selectValueSql = "SELECT " + column + " FROM " + table + " WHERE id = ?";
+            this.insertIfAbsentSql = "MERGE INTO " + table + " t " +
+                    "USING (SELECT CAST(? AS VARCHAR(" + length + ")) AS v) s ON t." + column + " = s.v " +
+                    "WHEN NOT MATCHED THEN INSERT (" + column + ") VALUES (s.v)";
+        }
+
+        int getOrCreate(String value) {
+            Integer cached = ids.get(value);
+            if (cached != null) {
+                return cached;
+            }
+            int id = find(value);
+            if (id != UNKNOWN_ID) {
+                return id;
+            }
+
+            try {
+                newTransaction.executeWithoutResult(status -> jdbcTemplate.update(insertIfAbsentSql, value));
+            } catch (DuplicateKeyException e) {
+                log.debug("Запись словаря '{}' уже создана параллельной транзакцией", value);
+            }
+            misses.remove(value);
+            return find(value);
+        }
+
+        int find(String value) {
+            Integer cached = ids.get(value);
+            if (cached != null) {
+                return cached;
+            }
+            Long missExpiresAt = misses.get(value);
+            if (missExpiresAt != null) {
+                if (missExpiresAt - System.nanoTime() > 0) {
+                    return UNKNOWN_ID;
+                }
+                misses.remove(value, missExpiresAt);
+            }
+            List<Integer> found = jdbcTemplate.queryForList(selectIdSql, Integer.class, value);
+            if (found.isEmpty()) {
+                cacheMiss(value);
+                return UNKNOWN_ID;
+            }
+            cache(found.getFirst(), value);
+            return found.getFirst();
+        }
+
+        String value(int id) {
+            String cached = values.get(id);
+            if (cached != null) {
+                return cached;
+            }
+            String value = jdbcTemplate.queryForObject(selectValueSql, String.class, id);
+            cache(id, value);
+            return value;
+        }
+
+        /**
+         * Промах, закэшированный параллельно со вставкой, не скрывает созданное значение:
+         * {@link #find} сначала проверяет кэш идентификаторов.
+         */
+        private void cacheMiss(String value) {
+            if (missTtlNanos <= 0) {
+                return;
+            }
+            if (misses.size() >= MAX_CACHED_MISSES) {
+                misses.clear();
+            }
+            misses.put(value, System.nanoTime() + missTtlNanos);
+        }
+
+        private void cache(int id, String value) {
+            ids.put(value, id);
+            values.put(id, value);
+        }
+    }
+}
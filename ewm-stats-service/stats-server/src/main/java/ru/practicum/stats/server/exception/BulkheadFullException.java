@@ -0,0 +1,15 @@
+package ru.practicum.stats.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Исключение, возникающее, когда лимит одновременных операций исчерпан и место не освободилось за время ожидания.
+ * Соответствует HTTP 503 Service Unavailable.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class BulkheadFullException extends RuntimeException {
+    public BulkheadFullException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,15 @@
+package ru.practicum.stats.server.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * Исключение, возникающее, когда сервис не может принять хит из-за перегрузки.
+ * Соответствует HTTP 503 Service Unavailable.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class IngestOverloadedException extends RuntimeException {
+    public IngestOverloadedException(String message) {
+        super(message);
+    }
+}
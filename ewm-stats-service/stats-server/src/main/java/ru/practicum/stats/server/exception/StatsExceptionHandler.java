@@ -1,25 +1,43 @@
 package ru.practicum.stats.server.exception;
 
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import ru.practicum.stats.server.metrics.StatsMetrics;
 
 /**
  * Глобальный обработчик исключений для сервиса статистики.
  * Обеспечивает единообразный ответ при ошибках.
  */
 @RestControllerAdvice
+@RequiredArgsConstructor
 @Slf4j
 public class StatsExceptionHandler {
 
+    private final StatsMetrics statsMetrics;
+
     @ExceptionHandler(ValidationException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public void handleValidationException(ValidationException e) {
         log.warn("Ошибка валидации: {}", e.getMessage());
+        statsMetrics.recordValidationFailure();
         // Тело ответа пустое, как в спецификации (только статус)
     }
 
+    @ExceptionHandler(IngestOverloadedException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleIngestOverloadedException(IngestOverloadedException e) {
+        log.warn("Хит не принят: {}", e.getMessage());
+    }
+
+    @ExceptionHandler(BulkheadFullException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public void handleBulkheadFullException(BulkheadFullException e) {
+        log.warn("Запрос не принят: {}", e.getMessage());
+    }
+
     // Можно добавить обработку других исключений при необходимости
 }
\ No newline at end of file
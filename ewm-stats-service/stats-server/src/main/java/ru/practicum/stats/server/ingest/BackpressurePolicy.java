@@ -0,0 +1,21 @@
+package ru.practicum.stats.server.ingest;
+
+/**
+ * Поведение при заполненном буфере отложенной записи.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Ждать освобождения места под весь пакет не дольше {@code stats.ingest.write-behind.offer-timeout-ms},
+     * затем отклонить пакет целиком с ответом 503.
+     */
+    BLOCK,
+    /**
+     * Сразу отбросить не поместившиеся хиты; они учитываются в метрике {@code stats.hits.lost}
+     * и не считаются принятыми.
+     */
+    DROP,
+    /**
+     * Записать не поместившуюся часть пакета синхронно в потоке запроса.
+     */
+    CALLER_RUNS
+}
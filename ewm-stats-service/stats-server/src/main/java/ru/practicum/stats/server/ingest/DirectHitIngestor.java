@@ -0,0 +1,49 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.bulkhead.Bulkhead;
+import ru.practicum.stats.server.bulkhead.StatsBulkheads;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Синхронная запись: хит попадает в БД до ответа клиенту.
+ * Параллельные транзакции могут одновременно вставить одну и ту же новую корзину агрегатов,
+ * поэтому при нарушении уникальности запись повторяется один раз.
+ * Запись занимает соединение из пула, поэтому выполняется под лимитом приёма хитов.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "direct", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class DirectHitIngestor implements HitIngestor {
+
+    private final HitBatchWriter hitBatchWriter;
+    private final StatsBulkheads statsBulkheads;
+
+    @Override
+    public int ingestAll(List<EndpointHit> hits) {
+        writeRetryingConflict(statsBulkheads.getIngest(), hitBatchWriter, hits);
+        return hits.size();
+    }
+
+    /**
+     * Пишет хиты в потоке запроса под лимитом {@code ingestBulkhead}, повторяя запись один раз
+     * при конфликте вставки корзины агрегатов.
+     */
+    static void writeRetryingConflict(Bulkhead ingestBulkhead, HitBatchWriter hitBatchWriter, List<EndpointHit> hits) {
+        ingestBulkhead.run(() -> {
+            try {
+                hitBatchWriter.writeAll(hits);
+            } catch (DataIntegrityViolationException e) {
+                log.debug("Конфликт при обновлении агрегатов, повторная запись: {}", e.getMessage());
+                hitBatchWriter.writeAll(hits);
+            }
+        });
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.stats.server.ingest;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Objects;
+
+/**
+ * Однократно строит агрегаты {@code hit_rollups} и скетчи {@code hit_sketches} по уже накопленным хитам.
+ * Выполняется при старте, до того как веб-сервер начнёт принимать запросы,
+ * и только для тех таблиц, которые пусты при непустой таблице хитов.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HitAggregatesBackfill {
+
+    private static final String ROLLUP_BACKFILL_SQL_TEMPLATE =
+            "INSERT INTO hit_rollups (granularity, app_id, uri_id, bucket_start, hits) " +
+            "SELECT '%1$s', app_id, uri_id, hit_ts - MOD(hit_ts, %2$d), COUNT(*) " +
+            "FROM hits " +
+            "GROUP BY app_id, uri_id, hit_ts - MOD(hit_ts, %2$d)";
+    private static final String SKETCH_SOURCE_SQL_TEMPLATE =
+            "SELECT DISTINCT app_id, uri_id, hit_ts - MOD(hit_ts, %d) AS bucket_start, ip " +
+            "FROM hits " +
+            "ORDER BY app_id, uri_id, bucket_start";
+    private static final String INSERT_SKETCH_SQL =
+            "INSERT INTO hit_sketches (app_id, uri_id, bucket_start, registers) VALUES (?, ?, ?, ?)";
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void backfill() {
+        if (isEmpty("hits")) {
+            return;
+        }
+        if (isEmpty("hit_rollups")) {
+            backfillRollups();
+        }
+        if (isEmpty("hit_sketches")) {
+            backfillSketches();
+        }
+    }
+
+    private void backfillRollups() {
+        log.info("Построение агрегатов hit_rollups по существующим хитам");
+        transactionTemplate.executeWithoutResult(status -> {
+            int minutes = jdbcTemplate.update(rollupBackfillSql(RollupGranularity.MINUTE));
+            int hours = jdbcTemplate.update(rollupBackfillSql(RollupGranularity.HOUR));
+            log.info("Агрегаты построены: {} минутных и {} часовых корзин", minutes, hours);
+        });
+    }
+
+    /**
+     * Читает уникальные (app, uri, час, ip) курсором в порядке ключа скетча,
+     * поэтому в памяти одновременно держится только один скетч.
+     */
+    private void backfillSketches() {
+        log.info("Построение скетчей hit_sketches по существующим хитам");
+        transactionTemplate.executeWithoutResult(status -> {
+            SketchAccumulator accumulator = new SketchAccumulator();
+            JdbcTemplate cursor = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+            cursor.setFetchSize(FETCH_SIZE);
+            cursor.query(String.format(SKETCH_SOURCE_SQL_TEMPLATE, RollupGranularity.HOUR.seconds()), accumulator);
+            accumulator.flush();
+            log.info("Скетчи построены: {}", accumulator.written);
+        });
+    }
+
+    private boolean isEmpty(String table) {
+        return !Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + table + ")", Boolean.class));
+    }
+
+    private String rollupBackfillSql(RollupGranularity granularity) {
+        return String.format(ROLLUP_BACKFILL_SQL_TEMPLATE, granularity.name(), granularity.seconds());
+    }
+
+    private class SketchAccumulator implements RowCallbackHandler {
+
+        private int appId;
+        private int uriId;
+        private long bucketStart;
+        private HyperLogLog sketch;
+        private int written;
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            int rowAppId = rs.getInt("app_id");
+            int rowUriId = rs.getInt("uri_id");
+            long rowBucket = rs.getLong("bucket_start");
+            if (sketch == null || rowAppId != appId || rowUriId != uriId || rowBucket != bucketStart) {
+                flush();
+                appId = rowAppId;
+                uriId = rowUriId;
+                bucketStart = rowBucket;
+                sketch = new HyperLogLog();
+            }
+            sketch.offer(rs.getBytes("ip"));
+        }
+
+        void flush() {
+            if (sketch == null) {
+                return;
+            }
+            jdbcTemplate.update(INSERT_SKETCH_SQL, appId, uriId, bucketStart, sketch.toBytes());
+            written++;
+            sketch = null;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.HitRollupId;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Пакетная запись хитов и их агрегатов через JDBC.
+ * Сервис и URI заменяются идентификаторами словарей {@link HitDictionary}, IP пишется в двоичной форме,
+ * время — секундами от эпохи.
+ * JPA-сущность использует {@code GenerationType.IDENTITY}, из-за чего Hibernate не умеет
+ * группировать вставки, поэтому хиты пишутся одним JDBC-батчем в одной транзакции.
+ * Для PostgreSQL драйвер с {@code reWriteBatchedInserts=true} превращает батч в многострочный INSERT.
+ * В той же транзакции обновляются минутные и часовые корзины {@code hit_rollups}
+ * и часовые скетчи уникальных IP {@code hit_sketches}, после чего публикуется {@link HitsWrittenEvent}.
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class HitBatchWriter {
+
+    private static final String INSERT_HIT_SQL =
+            "INSERT INTO hits (app_id, uri_id, ip, hit_ts) VALUES (?, ?, ?, ?)";
+    private static final String MERGE_ROLLUP_SQL =
+            "MERGE INTO hit_rollups r " +
+            "USING (SELECT CAST(? AS VARCHAR(10)) AS granularity, CAST(? AS INTEGER) AS app_id, " +
+            "              CAST(? AS INTEGER) AS uri_id, CAST(? AS BIGINT) AS bucket_start, " +
+            "              CAST(? AS BIGINT) AS hits) v " +
+            "ON r.granularity = v.granularity AND r.app_id = v.app_id AND r.uri_id = v.uri_id " +
+            "   AND r.bucket_start = v.bucket_start " +
+            "WHEN MATCHED THEN UPDATE SET hits = r.hits + v.hits " +
+            "WHEN NOT MATCHED THEN INSERT (granularity, app_id, uri_id, bucket_start, hits) " +
+            "   VALUES (v.granularity, v.app_id, v.uri_id, v.bucket_start, v.hits)";
+    private static final int JDBC_BATCH_SIZE = 1000;
+    // Единый порядок блокировки строк агрегатов в параллельных транзакциях исключает взаимоблокировки
+    private static final Comparator<HitRollupId> ROLLUP_ORDER = Comparator
+            .comparing(HitRollupId::getGranularity)
+            .thenComparing(HitRollupId::getBucketStart)
+            .thenComparing(HitRollupId::getAppId)
+            .thenComparing(HitRollupId::getUriId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitSketchWriter hitSketchWriter;
+    private final HitDictionary hitDictionary;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public void writeAll(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+
+        List<EncodedHit> encoded = encode(hits);
+        jdbcTemplate.batchUpdate(INSERT_HIT_SQL, encoded, JDBC_BATCH_SIZE, (ps, hit) -> {
+            ps.setInt(1, hit.appId());
+            ps.setInt(2, hit.uriId());
+            ps.setBytes(3, hit.ip());
+            ps.setLong(4, hit.epochSecond());
+        });
+
+        List<Map.Entry<HitRollupId, Long>> rollups = aggregateRollups(encoded);
+        jdbcTemplate.batchUpdate(MERGE_ROLLUP_SQL, rollups, JDBC_BATCH_SIZE, (ps, rollup) -> {
+            HitRollupId id = rollup.getKey();
+            ps.setString(1, id.getGranularity().name());
+            ps.setInt(2, id.getAppId());
+            ps.setInt(3, id.getUriId());
+            ps.setLong(4, id.getBucketStart());
+            ps.setLong(5, rollup.getValue());
+        });
+
+        int sketches = hitSketchWriter.mergeAll(encoded);
+        eventPublisher.publishEvent(new HitsWrittenEvent(hits));
+
+        log.debug("Записано в БД {} хитов, обновлено {} корзин агрегатов и {} скетчей",
+                hits.size(), rollups.size(), sketches);
+    }
+
+    /**
+     * Сворачивает пакет хитов в приращения счётчиков по каждой затронутой корзине.
+     */
+    private List<Map.Entry<HitRollupId, Long>> aggregateRollups(List<EncodedHit> hits) {
+        Map<HitRollupId, Long> counts = new TreeMap<>(ROLLUP_ORDER);
+        for (EncodedHit hit : hits) {
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                HitRollupId id = new HitRollupId(granularity, hit.appId(), hit.uriId(),
+                        granularity.floor(hit.epochSecond()));
+                counts.merge(id, 1L, Long::sum);
+            }
+        }
+        return new ArrayList<>(counts.entrySet());
+    }
+
+    private List<EncodedHit> encode(List<EndpointHit> hits) {
+        List<EncodedHit> encoded = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            encoded.add(new EncodedHit(
+                    hitDictionary.appId(hit.getApp()),
+                    hitDictionary.uriId(hit.getUri()),
+                    hit.ipBytes(),
+                    EpochSecondsConverter.toEpochSecond(hit.getTimestamp())));
+        }
+        return encoded;
+    }
+
+    /**
+     * Хит в том виде, в котором он хранится в {@code hits}.
+     */
+    record EncodedHit(int appId, int uriId, byte[] ip, long epochSecond) {
+    }
+}
@@ -0,0 +1,24 @@
+package ru.practicum.stats.server.ingest;
+
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Точка приёма «хитов» на запись в хранилище.
+ * Реализация выбирается свойством {@code stats.ingest.mode}.
+ */
+public interface HitIngestor {
+
+    /**
+     * @return {@code false}, если хит отброшен и записан не будет.
+     */
+    default boolean ingest(EndpointHit hit) {
+        return ingestAll(List.of(hit)) == 1;
+    }
+
+    /**
+     * @return число принятых хитов; остальные отброшены и записаны не будут.
+     */
+    int ingestAll(List<EndpointHit> hits);
+}
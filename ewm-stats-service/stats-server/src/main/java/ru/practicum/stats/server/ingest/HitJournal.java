@@ -0,0 +1,322 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.stats.server.exception.IngestOverloadedException;
+import ru.practicum.stats.server.exception.ValidationException;
+import ru.practicum.stats.server.mapper.EndpointHitMapper;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+import ru.practicum.stats.server.model.converter.IpAddresses;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал хитов только на добавление в отображённых в память файлах-сегментах фиксированного размера.
+ * <p>
+ * Запись {@code [длина][CRC32][время, IP, сервис, URI]} копируется в отображённый буфер сегмента,
+ * длина пишется последней и служит признаком завершённой записи. После {@link #append} хит уже в страничном
+ * кэше ОС и переживает падение процесса; на диск сегмент сбрасывается {@link #force()}.
+ * Когда запись не помещается в сегмент, он закрывается на запись и создаётся следующий.
+ * <p>
+ * При открытии существующие сегменты сканируются до первой пустой или повреждённой записи
+ * (оборванный хвост после сбоя питания отбрасывается), а запись продолжается в новом сегменте.
+ * Прочитанные сегменты удаляет {@link #deleteBefore}.
+ */
+@Slf4j
+final class HitJournal implements AutoCloseable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("(\\d{20})\\.journal");
+    private static final int HEADER_BYTES = 8;
+    // Запись с максимальными длинами сервиса, URI и IPv6 занимает около 1,2 КБ
+    private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final NavigableMap<Long, Segment> segments = new ConcurrentSkipListMap<>();
+    private Segment active;
+
+    /**
+     * @param firstSegment наименьший номер нового сегмента: номера не должны повторять уже загруженные,
+     *                     даже если каталог журнала был очищен.
+     */
+    HitJournal(Path directory, int segmentBytes, int maxSegments, long firstSegment) {
+        if (segmentBytes < MIN_SEGMENT_BYTES) {
+            throw new IllegalArgumentException("Размер сегмента журнала хитов меньше " + MIN_SEGMENT_BYTES + " байт");
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        try {
+            Files.createDirectories(directory);
+            try (Stream<Path> files = Files.list(directory)) {
+                for (Path file : files.toList()) {
+                    Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                    if (matcher.matches()) {
+                        Segment segment = Segment.open(Long.parseLong(matcher.group(1)), file);
+                        segment.sealed = true;
+                        segments.put(segment.id, segment);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось открыть журнал хитов " + directory, e);
+        }
+        long nextId = segments.isEmpty() ? firstSegment : Math.max(firstSegment, segments.lastKey() + 1);
+        this.active = createSegment(nextId);
+        log.info("Журнал хитов открыт: {}, сегментов к загрузке {}", directory, segments.size() - 1);
+    }
+
+    /**
+     * Добавляет хиты в журнал одной операцией. Некорректный хит отклоняется до записи всего пакета.
+     *
+     * @throws ValidationException       если хит нельзя сохранить в БД (пустой или слишком длинный сервис/URI).
+     * @throws IngestOverloadedException если для пакета нужно столько новых сегментов, что журнал превысит
+     *                                   {@code maxSegments} незагруженных сегментов.
+     */
+    void append(List<EndpointHit> hits) {
+        List<byte[]> payloads = new ArrayList<>(hits.size());
+        for (EndpointHit hit : hits) {
+            payloads.add(encode(hit));
+        }
+        synchronized (this) {
+            // Лимит проверяется до записи, чтобы отклонённый пакет не оказался в журнале частично
+            int newSegments = segmentsNeeded(payloads);
+            if (newSegments > 0 && segments.size() + newSegments > maxSegments) {
+                throw new IngestOverloadedException("Журнал хитов заполнен: " + segments.size()
+                        + " сегментов ожидают загрузки в БД, пакету нужно ещё " + newSegments);
+            }
+            for (byte[] payload : payloads) {
+                if (!active.tryAppend(payload)) {
+                    rotate();
+                    active.tryAppend(payload);
+                }
+            }
+        }
+    }
+
+    /**
+     * Читает до {@code maxHits} хитов начиная с {@code from}, переходя через дочитанные закрытые сегменты.
+     * Если сегмента {@code from} уже нет, чтение начинается со следующего.
+     */
+    Batch read(Position from, int maxHits) {
+        List<EndpointHit> hits = new ArrayList<>();
+        Map.Entry<Long, Segment> entry = segments.ceilingEntry(from.segment());
+        if (entry == null) {
+            return new Batch(hits, from);
+        }
+        Segment segment = entry.getValue();
+        int offset = segment.id == from.segment() ? from.offset() : 0;
+        while (true) {
+            int committed = segment.committed;
+            while (hits.size() < maxHits && offset < committed) {
+                int length = segment.buffer.getInt(offset);
+                byte[] payload = new byte[length];
+                segment.buffer.get(offset + HEADER_BYTES, payload);
+                hits.add(decode(payload));
+                offset += HEADER_BYTES + length;
+            }
+            Map.Entry<Long, Segment> next = segments.higherEntry(segment.id);
+            // Закрытый сегмент больше не растёт: если он дочитан, продолжаем со следующего
+            if (hits.size() >= maxHits || !segment.sealed || offset < segment.committed || next == null) {
+                return new Batch(hits, new Position(segment.id, offset));
+            }
+            segment = next.getValue();
+            offset = 0;
+        }
+    }
+
+    /**
+     * Удаляет закрытые сегменты с номером меньше {@code segmentId}: их хиты уже загружены.
+     */
+    void deleteBefore(long segmentId) {
+        for (Segment segment : segments.headMap(segmentId, false).values()) {
+            if (segment.sealed) {
+                segments.remove(segment.id);
+                segment.delete();
+                log.debug("Сегмент журнала хитов {} загружен и удалён", segment.id);
+            }
+        }
+    }
+
+    /**
+     * Сбрасывает на диск отображённый в память текущий сегмент.
+     */
+    void force() {
+        active.buffer.force();
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public synchronized void close() {
+        force();
+    }
+
+    /**
+     * Число новых сегментов, которые займёт пакет, если дописывать его с конца текущего сегмента.
+     */
+    private int segmentsNeeded(List<byte[]> payloads) {
+        int newSegments = 0;
+        long used = active.committed;
+        for (byte[] payload : payloads) {
+            int recordBytes = HEADER_BYTES + payload.length;
+            if (used + recordBytes > segmentBytes) {
+                newSegments++;
+                used = 0;
+            }
+            used += recordBytes;
+        }
+        return newSegments;
+    }
+
+    private void rotate() {
+        active.buffer.force();
+        active.sealed = true;
+        active = createSegment(active.id + 1);
+    }
+
+    private Segment createSegment(long id) {
+        Path file = directory.resolve(String.format("%020d.journal", id));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            Segment segment = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+            segments.put(id, segment);
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось создать сегмент журнала хитов " + file, e);
+        }
+    }
+
+    private static byte[] encode(EndpointHit hit) {
+        // Хит, принятый в журнал, должен записаться в БД
+        EndpointHitMapper.requireStorable(hit);
+        byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+        byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = hit.ipBytes();
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES + 1 + ip.length + 2 * Short.BYTES + app.length + uri.length);
+        payload.putLong(EpochSecondsConverter.toEpochSecond(hit.getTimestamp()));
+        payload.put((byte) ip.length).put(ip);
+        payload.putShort((short) app.length).put(app);
+        payload.putShort((short) uri.length).put(uri);
+        return payload.array();
+    }
+
+    private static EndpointHit decode(byte[] bytes) {
+        ByteBuffer payload = ByteBuffer.wrap(bytes);
+        long epochSecond = payload.getLong();
+        byte[] ip = new byte[payload.get()];
+        payload.get(ip);
+        byte[] app = new byte[payload.getShort()];
+        payload.get(app);
+        byte[] uri = new byte[payload.getShort()];
+        payload.get(uri);
+        return EndpointHit.builder()
+                .app(new String(app, StandardCharsets.UTF_8))
+                .uri(new String(uri, StandardCharsets.UTF_8))
+                .ip(IpAddresses.toString(ip))
+                .ipBytes(ip)
+                .timestamp(EpochSecondsConverter.fromEpochSecond(epochSecond))
+                .build();
+    }
+
+    private static int checksum(MappedByteBuffer buffer, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Позиция в журнале: номер сегмента и смещение следующей записи в нём.
+     */
+    record Position(long segment, int offset) {
+        static final Position START = new Position(0, 0);
+    }
+
+    record Batch(List<EndpointHit> hits, Position next) {
+    }
+
+    private static final class Segment {
+
+        private final long id;
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        // Конец последней завершённой записи; читатели видят только записи до него
+        private volatile int committed;
+        private volatile boolean sealed;
+
+        private Segment(long id, Path file, MappedByteBuffer buffer) {
+            this.id = id;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        static Segment open(long id, Path file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                Segment segment = new Segment(id, file, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+                segment.committed = segment.scan();
+                return segment;
+            }
+        }
+
+        /**
+         * Записывает запись по абсолютным смещениям, поэтому читатели могут параллельно читать тот же буфер.
+         *
+         * @return {@code false}, если запись не помещается в сегмент.
+         */
+        boolean tryAppend(byte[] payload) {
+            int offset = committed;
+            if (offset + HEADER_BYTES + payload.length > buffer.capacity()) {
+                return false;
+            }
+            buffer.put(offset + HEADER_BYTES, payload);
+            buffer.putInt(offset + Integer.BYTES, checksum(buffer, offset + HEADER_BYTES, payload.length));
+            buffer.putInt(offset, payload.length);
+            committed = offset + HEADER_BYTES + payload.length;
+            return true;
+        }
+
+        /**
+         * Конец последней целой записи сегмента, оставшегося от прошлого запуска.
+         */
+        private int scan() {
+            int offset = 0;
+            while (offset + HEADER_BYTES <= buffer.capacity()) {
+                int length = buffer.getInt(offset);
+                if (length <= 0 || offset + HEADER_BYTES + length > buffer.capacity()
+                        || buffer.getInt(offset + Integer.BYTES) != checksum(buffer, offset + HEADER_BYTES, length)) {
+                    break;
+                }
+                offset += HEADER_BYTES + length;
+            }
+            return offset;
+        }
+
+        void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Не удалось удалить сегмент журнала хитов {}: {}", file, e.getMessage());
+            }
+        }
+    }
+}
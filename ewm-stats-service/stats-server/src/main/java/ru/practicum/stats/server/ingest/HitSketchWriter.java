@@ -0,0 +1,96 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.stats.server.model.HitSketchId;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Вливает IP пакета хитов в часовые скетчи {@code hit_sketches}.
+ * Скетчи пакета читаются одним запросом с блокировкой строк ({@code FOR UPDATE}), сливаются и записываются,
+ * поэтому параллельные транзакции не теряют обновления друг друга.
+ */
+@Repository
+@RequiredArgsConstructor
+public class HitSketchWriter {
+
+    private static final String INSERT_IF_ABSENT_SQL =
+            "MERGE INTO hit_sketches s " +
+            "USING (SELECT CAST(? AS INTEGER) AS app_id, CAST(? AS INTEGER) AS uri_id, " +
+            "              CAST(? AS BIGINT) AS bucket_start) v " +
+            "ON s.app_id = v.app_id AND s.uri_id = v.uri_id AND s.bucket_start = v.bucket_start " +
+            "WHEN NOT MATCHED THEN INSERT (app_id, uri_id, bucket_start, registers) " +
+            "   VALUES (v.app_id, v.uri_id, v.bucket_start, ?)";
+    private static final String SELECT_FOR_UPDATE_SQL =
+            "SELECT app_id, uri_id, bucket_start, registers FROM hit_sketches " +
+            "WHERE (app_id, uri_id, bucket_start) IN (%s) " +
+            "ORDER BY bucket_start, app_id, uri_id FOR UPDATE";
+    private static final String UPDATE_SQL =
+            "UPDATE hit_sketches SET registers = ? WHERE app_id = ? AND uri_id = ? AND bucket_start = ?";
+    private static final int JDBC_BATCH_SIZE = 1000;
+    // Единый порядок блокировки строк скетчей в параллельных транзакциях исключает взаимоблокировки
+    private static final Comparator<HitSketchId> SKETCH_ORDER = Comparator
+            .comparing(HitSketchId::getBucketStart)
+            .thenComparing(HitSketchId::getAppId)
+            .thenComparing(HitSketchId::getUriId);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int mergeAll(List<HitBatchWriter.EncodedHit> hits) {
+        Map<HitSketchId, HyperLogLog> batchSketches = new TreeMap<>(SKETCH_ORDER);
+        for (HitBatchWriter.EncodedHit hit : hits) {
+            HitSketchId id = new HitSketchId(hit.appId(), hit.uriId(),
+                    RollupGranularity.HOUR.floor(hit.epochSecond()));
+            batchSketches.computeIfAbsent(id, key -> new HyperLogLog()).offer(hit.ip());
+        }
+        List<HitSketchId> ids = new ArrayList<>(batchSketches.keySet());
+
+        byte[] empty = new HyperLogLog().toBytes();
+        jdbcTemplate.batchUpdate(INSERT_IF_ABSENT_SQL, ids, JDBC_BATCH_SIZE, (ps, id) -> {
+            ps.setInt(1, id.getAppId());
+            ps.setInt(2, id.getUriId());
+            ps.setLong(3, id.getBucketStart());
+            ps.setBytes(4, empty);
+        });
+
+        // Строки блокируются одним запросом на порцию ключей; порции идут в порядке SKETCH_ORDER
+        List<Map.Entry<HitSketchId, byte[]>> merged = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += JDBC_BATCH_SIZE) {
+            List<HitSketchId> chunk = ids.subList(from, Math.min(from + JDBC_BATCH_SIZE, ids.size()));
+            Object[] args = new Object[chunk.size() * 3];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[i * 3] = chunk.get(i).getAppId();
+                args[i * 3 + 1] = chunk.get(i).getUriId();
+                args[i * 3 + 2] = chunk.get(i).getBucketStart();
+            }
+            String keys = String.join(", ", Collections.nCopies(chunk.size(), "(?, ?, ?)"));
+            jdbcTemplate.query(String.format(SELECT_FOR_UPDATE_SQL, keys), rs -> {
+                HitSketchId id = new HitSketchId(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("bucket_start"));
+                HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("registers"));
+                sketch.merge(batchSketches.get(id));
+                merged.add(Map.entry(id, sketch.toBytes()));
+            }, args);
+        }
+
+        jdbcTemplate.batchUpdate(UPDATE_SQL, merged, JDBC_BATCH_SIZE, (ps, entry) -> {
+            HitSketchId id = entry.getKey();
+            ps.setBytes(1, entry.getValue());
+            ps.setInt(2, id.getAppId());
+            ps.setInt(3, id.getUriId());
+            ps.setLong(4, id.getBucketStart());
+        });
+        return ids.size();
+    }
+}
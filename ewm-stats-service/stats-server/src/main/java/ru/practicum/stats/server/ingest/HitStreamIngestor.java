@@ -0,0 +1,69 @@
+package ru.practicum.stats.server.ingest;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.server.exception.ValidationException;
+import ru.practicum.stats.server.mapper.EndpointHitMapper;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Приём потока «хитов» неограниченной длины.
+ * Записи читаются из итератора по одной и передаются в {@link HitIngestor} пакетами по {@code batchSize},
+ * поэтому в памяти одновременно находится не больше одного пакета.
+ * Каждый пакет записывается отдельно: при ошибке в середине потока уже переданные пакеты остаются сохранёнными.
+ */
+@Component
+@Slf4j
+public class HitStreamIngestor {
+
+    private final HitIngestor hitIngestor;
+    private final int batchSize;
+
+    public HitStreamIngestor(HitIngestor hitIngestor,
+                             @Value("${stats.ingest.stream.batch-size:1000}") int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("stats.ingest.stream.batch-size должен быть положительным");
+        }
+        this.hitIngestor = hitIngestor;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return число принятых хитов.
+     */
+    public long ingest(Iterator<EndpointHitDto> hits) {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        long accepted = 0;
+        long position = 0;
+        while (hits.hasNext()) {
+            batch.add(toEntity(hits.next(), ++position));
+            if (batch.size() == batchSize) {
+                accepted += hitIngestor.ingestAll(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            accepted += hitIngestor.ingestAll(batch);
+        }
+        log.debug("Поток хитов принят на запись: {} записей", accepted);
+        return accepted;
+    }
+
+    private static EndpointHit toEntity(EndpointHitDto dto, long position) {
+        if (dto == null) {
+            throw new ValidationException("Пустая запись в потоке хитов, позиция " + position);
+        }
+        try {
+            return EndpointHitMapper.toEntity(dto);
+        } catch (ValidationException | DateTimeParseException e) {
+            throw new ValidationException("Запись " + position + " потока хитов отклонена: " + e.getMessage());
+        }
+    }
+}
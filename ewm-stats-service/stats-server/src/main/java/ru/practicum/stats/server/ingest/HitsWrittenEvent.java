@@ -0,0 +1,13 @@
+package ru.practicum.stats.server.ingest;
+
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Публикуется {@link HitBatchWriter} в транзакции записи пакета хитов.
+ * Слушатели, которым нужны только зафиксированные данные, подписываются
+ * через {@code @TransactionalEventListener} (по умолчанию — после коммита).
+ */
+public record HitsWrittenEvent(List<EndpointHit> hits) {
+}
@@ -0,0 +1,201 @@
+package ru.practicum.stats.server.ingest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.server.exception.IngestOverloadedException;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись через локальный журнал: хит подтверждается клиенту, как только добавлен в отображённый в память
+ * сегмент {@link HitJournal}, без обращения к БД.
+ * <p>
+ * Поток-загрузчик читает журнал пакетами до {@code batch-size} хитов и пишет их через {@link HitBatchWriter}
+ * в одной транзакции с позицией журнала в {@code hit_journal_checkpoint}. Поэтому после перезапуска загрузка
+ * продолжается ровно с первого незаписанного хита, а полностью загруженные сегменты удаляются.
+ * Пока БД недоступна, хиты копятся в журнале (до {@code max-segments} сегментов), а запись пакета повторяется
+ * с экспоненциальной задержкой до {@code max-backoff-ms}.
+ * <p>
+ * Принятый хит переживает падение процесса сразу; сбой питания — после сброса сегмента на диск,
+ * который выполняется не реже раза в {@code force-interval-ms}.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "journal")
+@Slf4j
+public class JournalHitIngestor implements HitIngestor {
+
+    private static final String SELECT_CHECKPOINT_SQL =
+            "SELECT segment_id, segment_offset FROM hit_journal_checkpoint WHERE journal = ?";
+    private static final String MERGE_CHECKPOINT_SQL =
+            "MERGE INTO hit_journal_checkpoint c " +
+            "USING (SELECT CAST(? AS VARCHAR(100)) AS journal, CAST(? AS BIGINT) AS segment_id, " +
+            "              CAST(? AS INTEGER) AS segment_offset) v " +
+            "ON c.journal = v.journal " +
+            "WHEN MATCHED THEN UPDATE SET segment_id = v.segment_id, segment_offset = v.segment_offset " +
+            "WHEN NOT MATCHED THEN INSERT (journal, segment_id, segment_offset) " +
+            "   VALUES (v.journal, v.segment_id, v.segment_offset)";
+
+    private final HitBatchWriter hitBatchWriter;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final HitJournal journal;
+    private final String name;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long forceIntervalMs;
+    private final long maxBackoffMs;
+    private final Thread loaderThread;
+    private volatile boolean running = true;
+    private HitJournal.Position position;
+
+    public JournalHitIngestor(HitBatchWriter hitBatchWriter,
+                              JdbcTemplate jdbcTemplate,
+                              TransactionTemplate transactionTemplate,
+                              @Value("${stats.ingest.journal.dir:./data/hit-journal}") Path directory,
+                              @Value("${stats.ingest.journal.name:stats-server}") String name,
+                              @Value("${stats.ingest.journal.segment-size-bytes:67108864}") int segmentBytes,
+                              @Value("${stats.ingest.journal.max-segments:64}") int maxSegments,
+                              @Value("${stats.ingest.journal.batch-size:5000}") int batchSize,
+                              @Value("${stats.ingest.journal.poll-interval-ms:50}") long pollIntervalMs,
+                              @Value("${stats.ingest.journal.force-interval-ms:1000}") long forceIntervalMs,
+                              @Value("${stats.ingest.journal.max-backoff-ms:30000}") long maxBackoffMs) {
+        this.hitBatchWriter = hitBatchWriter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.name = name;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.forceIntervalMs = forceIntervalMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.position = loadCheckpoint();
+        this.journal = new HitJournal(directory, segmentBytes, maxSegments, position.segment() + 1);
+        this.loaderThread = new Thread(this::runLoader, "stats-journal-loader");
+        log.info("Запись хитов через журнал включена: dir={}, segmentBytes={}, maxSegments={}, позиция {}",
+                directory, segmentBytes, maxSegments, position);
+    }
+
+    /**
+     * Запускает загрузку журнала, когда приложение готово. Хранилища в памяти, которые строятся из БД при старте
+     * ({@code ColumnarHitStore}, {@code SlidingWindowCounters}), к этому моменту уже заполнены,
+     * и пакеты из журнала попадают в них только через {@link HitsWrittenEvent}.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        loaderThread.start();
+    }
+
+    @Override
+    public int ingestAll(List<EndpointHit> hits) {
+        if (!running) {
+            throw new IngestOverloadedException("Сервис статистики останавливается и не принимает хиты");
+        }
+        journal.append(hits);
+        return hits.size();
+    }
+
+    /**
+     * Цикл потока-загрузчика: пишет пакеты, пока журнал не дочитан, затем ждёт новых хитов.
+     * После остановки дописывает в БД всё, что успело попасть в журнал, если БД доступна.
+     */
+    private void runLoader() {
+        long lastForce = System.nanoTime();
+        long backoffMs = pollIntervalMs;
+        while (running) {
+            boolean loaded;
+            try {
+                loaded = loadBatch();
+                backoffMs = pollIntervalMs;
+            } catch (Exception e) {
+                log.warn("Не удалось загрузить пакет из журнала хитов, повтор через {} мс: {}", backoffMs, e.getMessage());
+                loaded = false;
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+            if (System.nanoTime() - lastForce >= TimeUnit.MILLISECONDS.toNanos(forceIntervalMs)) {
+                journal.force();
+                lastForce = System.nanoTime();
+            }
+            if (!loaded && !pause(backoffMs)) {
+                break;
+            }
+        }
+
+        try {
+            while (loadBatch()) {
+                log.debug("Загрузка остатка журнала хитов при остановке");
+            }
+        } catch (Exception e) {
+            log.warn("Журнал хитов загружен не полностью, остаток будет загружен после перезапуска: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * @return {@code true}, если пакет был непустым.
+     */
+    private boolean loadBatch() {
+        HitJournal.Batch batch = journal.read(position, batchSize);
+        if (batch.next().equals(position)) {
+            return false;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            hitBatchWriter.writeAll(batch.hits());
+            jdbcTemplate.update(MERGE_CHECKPOINT_SQL, name, batch.next().segment(), batch.next().offset());
+        });
+        position = batch.next();
+        journal.deleteBefore(position.segment());
+        return !batch.hits().isEmpty();
+    }
+
+    private HitJournal.Position loadCheckpoint() {
+        try {
+            return jdbcTemplate.queryForObject(SELECT_CHECKPOINT_SQL,
+                    (rs, rowNum) -> new HitJournal.Position(rs.getLong("segment_id"), rs.getInt("segment_offset")),
+                    name);
+        } catch (EmptyResultDataAccessException e) {
+            return HitJournal.Position.START;
+        }
+    }
+
+    /**
+     * Ожидание дробится, чтобы остановка не ждала окончания длинной задержки.
+     *
+     * @return {@code false}, если поток прерван.
+     */
+    private boolean pause(long ms) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        try {
+            while (running && System.nanoTime() < deadline) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(deadline - System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(50)));
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Прекращает приём хитов, дописывает журнал в БД и сбрасывает сегмент на диск.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            loaderThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+        log.info("Запись хитов через журнал остановлена, позиция {}", position);
+    }
+}
@@ -0,0 +1,296 @@
+package ru.practicum.stats.server.ingest;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+import ru.practicum.stats.server.bulkhead.StatsBulkheads;
+import ru.practicum.stats.server.exception.IngestOverloadedException;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+import ru.practicum.stats.server.metrics.StatsMetrics.LostReason;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Отложенная запись (write-behind): хит кладётся в ограниченный кольцевой буфер,
+ * а выделенный поток-писатель выбирает его пакетами и пишет через {@link HitBatchWriter}.
+ * Пакет уходит в БД, когда набралось {@code batch-size} хитов или истёк {@code flush-interval-ms}.
+ * При остановке приложения буфер дописывается до конца.
+ * <p>
+ * Клиенту приём хита уже подтверждён, поэтому пакет не отбрасывается целиком при ошибке записи:
+ * при недоступности БД запись повторяется с экспоненциальной задержкой до {@code max-backoff-ms}
+ * (буфер тем временем заполняется и включает {@link BackpressurePolicy}), а при ошибке данных пакет
+ * делится пополам, пока некорректный хит не останется один. Потерянные хиты учитываются в метрике
+ * {@code stats.hits.lost}.
+ */
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "write-behind")
+@Slf4j
+public class WriteBehindHitIngestor implements HitIngestor {
+
+    private static final long MAX_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+    private static final long INITIAL_BACKOFF_MS = 100;
+    private static final long OFFER_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final HitBatchWriter hitBatchWriter;
+    private final StatsMetrics statsMetrics;
+    private final StatsBulkheads statsBulkheads;
+    private final BlockingQueue<EndpointHit> buffer;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final BackpressurePolicy backpressurePolicy;
+    private final long offerTimeoutMs;
+    private final long maxBackoffMs;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+
+    public WriteBehindHitIngestor(HitBatchWriter hitBatchWriter,
+                                  StatsMetrics statsMetrics,
+                                  StatsBulkheads statsBulkheads,
+                                  @Value("${stats.ingest.write-behind.capacity:65536}") int capacity,
+                                  @Value("${stats.ingest.write-behind.batch-size:1000}") int batchSize,
+                                  @Value("${stats.ingest.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                                  @Value("${stats.ingest.write-behind.backpressure:BLOCK}") BackpressurePolicy backpressurePolicy,
+                                  @Value("${stats.ingest.write-behind.offer-timeout-ms:100}") long offerTimeoutMs,
+                                  @Value("${stats.ingest.write-behind.max-backoff-ms:5000}") long maxBackoffMs) {
+        this.hitBatchWriter = hitBatchWriter;
+        this.statsMetrics = statsMetrics;
+        this.statsBulkheads = statsBulkheads;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.backpressurePolicy = backpressurePolicy;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.writerThread = new Thread(this::runWriter, "stats-hit-writer");
+        this.writerThread.start();
+        log.info("Отложенная запись хитов включена: capacity={}, batchSize={}, flushIntervalMs={}, backpressure={}",
+                capacity, batchSize, flushIntervalMs, backpressurePolicy);
+    }
+
+    /**
+     * Ставит пакет в буфер целиком или, при BLOCK, не ставит ни одного хита: клиент, повторивший
+     * отклонённый пакет, не удвоит уже принятые хиты. При DROP в буфер попадает то, что в него поместилось,
+     * а при CALLER_RUNS остаток пакета пишется в потоке запроса под лимитом приёма хитов:
+     * только в этом случае запрос занимает соединение из пула.
+     */
+    @Override
+    public int ingestAll(List<EndpointHit> hits) {
+        if (!running) {
+            throw new IngestOverloadedException("Сервис статистики останавливается и не принимает хиты");
+        }
+        if (hits.isEmpty()) {
+            return 0;
+        }
+        return switch (backpressurePolicy) {
+            case BLOCK -> {
+                offerAllWithTimeout(hits);
+                yield hits.size();
+            }
+            case DROP -> {
+                int accepted = offerFitting(hits);
+                if (accepted < hits.size()) {
+                    statsMetrics.recordLostHits(LostReason.DROPPED, hits.size() - accepted);
+                    log.warn("Буфер хитов переполнен, отброшено {} из {} хитов", hits.size() - accepted, hits.size());
+                }
+                yield accepted;
+            }
+            case CALLER_RUNS -> {
+                int accepted = offerFitting(hits);
+                if (accepted < hits.size()) {
+                    DirectHitIngestor.writeRetryingConflict(statsBulkheads.getIngest(), hitBatchWriter,
+                            new ArrayList<>(hits.subList(accepted, hits.size())));
+                }
+                yield hits.size();
+            }
+        };
+    }
+
+    int pending() {
+        return buffer.size();
+    }
+
+    /**
+     * Ставит в буфер столько первых хитов пакета, сколько в нём свободных мест.
+     * Пакеты ставятся под общей блокировкой, поэтому свободные места не занимает другой запрос,
+     * а поток-писатель может их только освободить.
+     */
+    private int offerFitting(List<EndpointHit> hits) {
+        synchronized (buffer) {
+            int accepted = Math.min(hits.size(), buffer.remainingCapacity());
+            for (int i = 0; i < accepted; i++) {
+                buffer.add(hits.get(i));
+            }
+            return accepted;
+        }
+    }
+
+    private void offerAllWithTimeout(List<EndpointHit> hits) {
+        if (hits.size() > capacity) {
+            throw new IngestOverloadedException("Пакет из " + hits.size() + " хитов больше буфера, разделите его");
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        while (true) {
+            synchronized (buffer) {
+                if (buffer.remainingCapacity() >= hits.size()) {
+                    buffer.addAll(hits);
+                    return;
+                }
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0 || Thread.currentThread().isInterrupted()) {
+                throw new IngestOverloadedException("Буфер хитов переполнен, повторите запрос позже");
+            }
+            LockSupport.parkNanos(Math.min(remaining, OFFER_POLL_NANOS));
+        }
+    }
+
+    /**
+     * Цикл потока-писателя: собирает пакет до {@code batchSize} хитов или до истечения интервала,
+     * после остановки дописывает всё, что осталось в буфере.
+     */
+    private void runWriter() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            flush(batch);
+        }
+
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            flush(batch);
+        }
+    }
+
+    private void collectBatch(List<EndpointHit> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (running && batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            // Ожидание дробится, чтобы остановка не ждала окончания длинного интервала
+            EndpointHit hit = buffer.poll(Math.min(remaining, MAX_POLL_NANOS), TimeUnit.NANOSECONDS);
+            if (hit != null) {
+                batch.add(hit);
+                buffer.drainTo(batch, batchSize - batch.size());
+            }
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        writeIsolating(batch);
+        batch.clear();
+    }
+
+    /**
+     * Пишет пакет; если запись отклонена из-за данных, делит пакет пополам и пишет половины отдельно,
+     * так что теряются только хиты, которые не удаётся записать и поодиночке.
+     */
+    private void writeIsolating(List<EndpointHit> hits) {
+        try {
+            writeWithRetry(hits);
+        } catch (RuntimeException e) {
+            if (isTransient(e)) {
+                lose(hits, LostReason.UNAVAILABLE, e);
+            } else if (hits.size() == 1) {
+                lose(hits, LostReason.REJECTED, e);
+            } else {
+                int middle = hits.size() / 2;
+                writeIsolating(new ArrayList<>(hits.subList(0, middle)));
+                writeIsolating(new ArrayList<>(hits.subList(middle, hits.size())));
+            }
+        }
+    }
+
+    /**
+     * Пишет пакет, повторяя запись при недоступности БД, пока приложение не останавливается.
+     */
+    private void writeWithRetry(List<EndpointHit> hits) {
+        long backoffMs = INITIAL_BACKOFF_MS;
+        while (true) {
+            try {
+                hitBatchWriter.writeAll(hits);
+                return;
+            } catch (RuntimeException e) {
+                if (!isTransient(e) || !running) {
+                    throw e;
+                }
+                log.warn("БД недоступна, повтор записи пакета из {} хитов через {} мс: {}",
+                        hits.size(), backoffMs, e.getMessage());
+                if (!pause(backoffMs)) {
+                    throw e;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            }
+        }
+    }
+
+    private void lose(List<EndpointHit> hits, LostReason reason, RuntimeException e) {
+        statsMetrics.recordLostHits(reason, hits.size());
+        if (hits.size() == 1) {
+            EndpointHit hit = hits.get(0);
+            log.error("Не удалось записать хит: app={}, uri={}, timestamp={}: {}",
+                    hit.getApp(), hit.getUri(), hit.getTimestamp(), e.getMessage(), e);
+        } else {
+            log.error("Не удалось записать пакет из {} хитов: {}", hits.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Ошибка недоступности БД, которая может пройти при повторе, в отличие от ошибок данных пакета.
+     */
+    static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException
+                || e instanceof CannotCreateTransactionException;
+    }
+
+    private boolean pause(long ms) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms);
+        try {
+            while (running && System.nanoTime() < deadline) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(deadline - System.nanoTime(), MAX_POLL_NANOS));
+            }
+            return running;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Прекращает приём хитов и ждёт, пока поток-писатель допишет буфер.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("Отложенная запись хитов остановлена, буфер записан");
+    }
+}
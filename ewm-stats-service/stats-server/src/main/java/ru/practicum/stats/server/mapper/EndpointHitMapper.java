@@ -1,33 +1,69 @@
 package ru.practicum.stats.server.mapper;
 
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.exception.ValidationException;
 import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.converter.IpAddresses;
 import ru.practicum.stats.server.repository.StatsRepository;
 
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
-
 public class EndpointHitMapper {
 
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int MAX_APP_LENGTH = 100;
+    private static final int MAX_URI_LENGTH = 200;
 
+    /**
+     * @throws ValidationException если хит нельзя сохранить в БД: пустой или слишком длинный сервис/URI,
+     *                             некорректный IP-адрес.
+     */
     public static EndpointHit toEntity(EndpointHitDto dto) {
+        requireText(dto.getApp(), "сервиса", MAX_APP_LENGTH);
+        requireText(dto.getUri(), "URI", MAX_URI_LENGTH);
+        byte[] ipBytes;
+        try {
+            ipBytes = IpAddresses.toBytes(dto.getIp());
+        } catch (IllegalArgumentException e) {
+            throw new ValidationException("Некорректный IP-адрес: " + dto.getIp());
+        }
         return EndpointHit.builder()
                 .app(dto.getApp())
                 .uri(dto.getUri())
                 .ip(dto.getIp())
-                .timestamp(LocalDateTime.parse(dto.getTimestamp(), FORMATTER))
+                .ipBytes(ipBytes)
+                .timestamp(StatsDateTimeFormat.parse(dto.getTimestamp()))
                 .build();
     }
 
+    /**
+     * Проверяет сервис и URI хита по ограничениям столбцов словаря.
+     *
+     * @throws ValidationException если сервис или URI пустой или слишком длинный.
+     */
+    public static void requireStorable(EndpointHit hit) {
+        requireText(hit.getApp(), "сервиса", MAX_APP_LENGTH);
+        requireText(hit.getUri(), "URI", MAX_URI_LENGTH);
+    }
+
+    /**
+     * Проверяет название так же, как это делали ограничения столбцов: не пустое и не длиннее {@code maxLength}.
+     */
+    private static void requireText(String value, String label, int maxLength) {
+        if (value == null || value.isBlank()) {
+            throw new ValidationException("Не указано название " + label);
+        }
+        if (value.length() > maxLength) {
+            throw new ValidationException("Название " + label + " длиннее " + maxLength + " символов");
+        }
+    }
+
     public static EndpointHitDto toDto(EndpointHit entity) {
         return new EndpointHitDto(
                 entity.getId(),
                 entity.getApp(),
                 entity.getUri(),
                 entity.getIp(),
-                entity.getTimestamp().format(FORMATTER)
+                StatsDateTimeFormat.format(entity.getTimestamp())
         );
     }
 
@@ -0,0 +1,158 @@
+package ru.practicum.stats.server.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.server.bulkhead.Bulkhead;
+import ru.practicum.stats.server.cache.StatsQuery;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Метрики приёма хитов и запросов статистики.
+ * <ul>
+ *     <li>{@code stats.hits.ingest} — время приёма по операции {@code operation} (hit, batch, stream);</li>
+ *     <li>{@code stats.hits.ingested} — число принятых хитов по операции;</li>
+ *     <li>{@code stats.query} — время {@code /stats} вместе с кэшем результатов;</li>
+ *     <li>{@code stats.query.load} — время чтения из БД при промахе кэша и при потоковой выдаче;</li>
+ *     <li>{@code stats.query.rows} — число возвращённых записей;</li>
+ *     <li>{@code stats.validation.failures} — запросы, отклонённые с ответом 400;</li>
+ *     <li>{@code stats.hits.lost} — принятые хиты, которые не удалось записать в БД, по причине {@code reason}
+ *     (rejected — ошибка данных хита, unavailable — БД недоступна при остановке);</li>
+ *     <li>{@code stats.bulkhead.active}, {@code stats.bulkhead.waiting}, {@code stats.bulkhead.rejected} —
+ *     выполняющиеся, ожидающие и отклонённые с ответом 503 операции по лимиту {@code bulkhead} (ingest, query, stream).</li>
+ * </ul>
+ * Метрики запросов размечены формой запроса: {@code unique}, {@code uris} (фильтр по URI) и {@code approximate}.
+ * Таймеры публикуют гистограммы, поэтому p99 считается на стороне Prometheus по всем экземплярам.
+ */
+@Component
+public class StatsMetrics {
+
+    /**
+     * Способ приёма хитов.
+     */
+    public enum IngestOperation {
+        HIT, BATCH, STREAM
+    }
+
+    /**
+     * Причина потери хита: {@code REJECTED} — отклонён БД, {@code UNAVAILABLE} — БД недоступна при остановке,
+     * {@code DROPPED} — отброшен при переполнении буфера отложенной записи.
+     */
+    public enum LostReason {
+        REJECTED, UNAVAILABLE, DROPPED
+    }
+
+    private final MeterRegistry registry;
+    private final Map<IngestOperation, Timer> ingestTimers = new EnumMap<>(IngestOperation.class);
+    private final Map<IngestOperation, Counter> ingestedHits = new EnumMap<>(IngestOperation.class);
+    // Метры запросов по форме: индекс — биты unique, uris, approximate
+    private final Timer[] queryTimers = new Timer[8];
+    private final Timer[] loadTimers = new Timer[8];
+    private final DistributionSummary[] rowSummaries = new DistributionSummary[8];
+    private final Counter validationFailures;
+
+    public StatsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (IngestOperation operation : IngestOperation.values()) {
+            String tag = operation.name().toLowerCase();
+            ingestTimers.put(operation, Timer.builder("stats.hits.ingest")
+                    .description("Время приёма хитов")
+                    .tag("operation", tag)
+                    .publishPercentileHistogram()
+                    .register(registry));
+            ingestedHits.put(operation, Counter.builder("stats.hits.ingested")
+                    .description("Число принятых хитов")
+                    .tag("operation", tag)
+                    .register(registry));
+        }
+        for (int shape = 0; shape < queryTimers.length; shape++) {
+            if ((shape & 4) != 0 && (shape & 1) == 0) {
+                continue; // approximate учитывается только для уникальных запросов
+            }
+            Tags tags = Tags.of(
+                    "unique", String.valueOf((shape & 1) != 0),
+                    "uris", String.valueOf((shape & 2) != 0),
+                    "approximate", String.valueOf((shape & 4) != 0));
+            queryTimers[shape] = Timer.builder("stats.query")
+                    .description("Время запроса статистики с учётом кэша")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            loadTimers[shape] = Timer.builder("stats.query.load")
+                    .description("Время чтения статистики из БД")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+            rowSummaries[shape] = DistributionSummary.builder("stats.query.rows")
+                    .description("Число записей в ответе")
+                    .tags(tags)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        this.validationFailures = Counter.builder("stats.validation.failures")
+                .description("Запросы, отклонённые из-за некорректных параметров")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordIngest(Timer.Sample sample, IngestOperation operation, long hits) {
+        sample.stop(ingestTimers.get(operation));
+        ingestedHits.get(operation).increment(hits);
+    }
+
+    public void recordQuery(Timer.Sample sample, StatsQuery query, int rows) {
+        int shape = shape(query);
+        sample.stop(queryTimers[shape]);
+        rowSummaries[shape].record(rows);
+    }
+
+    public void recordLoad(Timer.Sample sample, StatsQuery query) {
+        sample.stop(loadTimers[shape(query)]);
+    }
+
+    public void recordValidationFailure() {
+        validationFailures.increment();
+    }
+
+    public void recordLostHits(LostReason reason, long hits) {
+        Counter.builder("stats.hits.lost")
+                .description("Принятые хиты, которые не удалось записать в БД")
+                .tag("reason", reason.name().toLowerCase())
+                .register(registry)
+                .increment(hits);
+    }
+
+    public void bindBulkhead(Bulkhead bulkhead) {
+        Gauge.builder("stats.bulkhead.active", bulkhead, Bulkhead::active)
+                .description("Выполняющиеся операции")
+                .tag("bulkhead", bulkhead.getName())
+                .register(registry);
+        Gauge.builder("stats.bulkhead.waiting", bulkhead, Bulkhead::waiting)
+                .description("Операции, ожидающие свободного места")
+                .tag("bulkhead", bulkhead.getName())
+                .register(registry);
+    }
+
+    public void recordBulkheadRejection(String bulkhead) {
+        Counter.builder("stats.bulkhead.rejected")
+                .description("Операции, отклонённые из-за исчерпания лимита")
+                .tag("bulkhead", bulkhead)
+                .register(registry)
+                .increment();
+    }
+
+    private static int shape(StatsQuery query) {
+        return (query.unique() ? 1 : 0)
+                | (query.uris() != null ? 2 : 0)
+                | (query.unique() && query.approximate() ? 4 : 0);
+    }
+}
@@ -2,9 +2,18 @@ package ru.practicum.stats.server.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+import ru.practicum.stats.server.model.converter.AppNameConverter;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+import ru.practicum.stats.server.model.converter.IpAddressConverter;
+import ru.practicum.stats.server.model.converter.IpAddresses;
+import ru.practicum.stats.server.model.converter.UriConverter;
 
 import java.time.LocalDateTime;
 
+/**
+ * Хит в компактном хранении: сервис и URI — идентификаторы словарей,
+ * IP — 4 или 16 байт, время — секунды от эпохи. В Java-модели поля остаются строками и {@link LocalDateTime}.
+ */
 @Entity
 @Table(name = "hits")
 @Getter
@@ -19,15 +28,47 @@ public class EndpointHit {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(nullable = false, length = 100)
+    @Convert(converter = AppNameConverter.class)
+    @Column(name = "app_id", nullable = false)
     private String app;
 
-    @Column(nullable = false, length = 200)
+    @Convert(converter = UriConverter.class)
+    @Column(name = "uri_id", nullable = false)
     private String uri;
 
-    @Column(nullable = false, length = 45)
+    @Convert(converter = IpAddressConverter.class)
+    @Column(nullable = false, length = 16)
     private String ip;
 
-    @Column(name = "hit_timestamp", nullable = false)
+    @Convert(converter = EpochSecondsConverter.class)
+    @Column(name = "hit_ts", nullable = false)
     private LocalDateTime timestamp;
-}
\ No newline at end of file
+
+    // Двоичная форма ip, разобранная при проверке хита, чтобы не разбирать адрес повторно при записи
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    private byte[] ipBytes;
+
+    public EndpointHit(Long id, String app, String uri, String ip, LocalDateTime timestamp) {
+        this(id, app, uri, ip, timestamp, null);
+    }
+
+    public void setIp(String ip) {
+        this.ip = ip;
+        this.ipBytes = null;
+    }
+
+    /**
+     * IP в двоичной форме (4 или 16 байт).
+     *
+     * @throws IllegalArgumentException если ip не является IPv4- или IPv6-адресом.
+     */
+    public byte[] ipBytes() {
+        if (ipBytes == null) {
+            ipBytes = IpAddresses.toBytes(ip);
+        }
+        return ipBytes;
+    }
+}
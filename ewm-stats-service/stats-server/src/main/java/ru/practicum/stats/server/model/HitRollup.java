@@ -0,0 +1,41 @@
+package ru.practicum.stats.server.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Предагрегированное число хитов по (app, uri) за одну временную корзину.
+ * Обновляется инкрементально при записи хитов.
+ * Сервис и URI — идентификаторы словарей, начало корзины — секунды от эпохи.
+ */
+@Entity
+@Table(name = "hit_rollups")
+@IdClass(HitRollupId.class)
+@Getter
+@Setter
+@ToString
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitRollup {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private RollupGranularity granularity;
+
+    @Id
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Id
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private Long bucketStart;
+
+    @Column(nullable = false)
+    private Long hits;
+}
@@ -0,0 +1,19 @@
+package ru.practicum.stats.server.model;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+@AllArgsConstructor
+public class HitRollupId implements Serializable {
+    private RollupGranularity granularity;
+    private Integer appId;
+    private Integer uriId;
+    private Long bucketStart;
+}
@@ -0,0 +1,36 @@
+package ru.practicum.stats.server.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+
+/**
+ * Скетч {@link HyperLogLog} уникальных IP по (app, uri) за один час.
+ * Сервис и URI — идентификаторы словарей, начало часа — секунды от эпохи.
+ */
+@Entity
+@Table(name = "hit_sketches")
+@IdClass(HitSketchId.class)
+@Getter
+@Setter
+@ToString(exclude = "registers")
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class HitSketch {
+
+    @Id
+    @Column(name = "app_id", nullable = false)
+    private Integer appId;
+
+    @Id
+    @Column(name = "uri_id", nullable = false)
+    private Integer uriId;
+
+    @Id
+    @Column(name = "bucket_start", nullable = false)
+    private Long bucketStart;
+
+    @Column(nullable = false, length = HyperLogLog.MAX_SERIALIZED_SIZE)
+    private byte[] registers;
+}
@@ -0,0 +1,47 @@
+package ru.practicum.stats.server.model;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Шаг временной корзины агрегатов {@link HitRollup}.
+ */
+public enum RollupGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * Начало корзины, в которую попадает момент времени.
+     */
+    public LocalDateTime floor(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * Начало корзины в секундах от эпохи.
+     */
+    public long floor(long epochSecond) {
+        return epochSecond - Math.floorMod(epochSecond, seconds());
+    }
+
+    /**
+     * Длина корзины в секундах.
+     */
+    public long seconds() {
+        return unit.getDuration().getSeconds();
+    }
+
+    /**
+     * Начало первой корзины, целиком лежащей не раньше момента времени.
+     */
+    public LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime floor = floor(time);
+        return floor.equals(time) ? floor : floor.plus(1, unit);
+    }
+}
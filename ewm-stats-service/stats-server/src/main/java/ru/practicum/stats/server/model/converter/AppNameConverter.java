@@ -0,0 +1,29 @@
+package ru.practicum.stats.server.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+
+/**
+ * Хранит название сервиса как идентификатор из словаря {@code apps}.
+ * Только ищет в словаре и не создаёт записи: хиты пишутся через {@code HitBatchWriter},
+ * а здесь преобразуются результаты и параметры запросов. Неизвестное название
+ * превращается в {@link HitDictionary#UNKNOWN_ID}, которому не соответствует ни одна строка.
+ */
+@Converter
+@RequiredArgsConstructor
+public class AppNameConverter implements AttributeConverter<String, Integer> {
+
+    private final HitDictionary hitDictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String app) {
+        return app == null ? null : hitDictionary.findAppId(app);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : hitDictionary.appName(id);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.stats.server.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Хранит время как число секунд от эпохи; {@link LocalDateTime} трактуется как время в UTC.
+ */
+@Converter
+public class EpochSecondsConverter implements AttributeConverter<LocalDateTime, Long> {
+
+    @Override
+    public Long convertToDatabaseColumn(LocalDateTime time) {
+        return time == null ? null : toEpochSecond(time);
+    }
+
+    @Override
+    public LocalDateTime convertToEntityAttribute(Long epochSecond) {
+        return epochSecond == null ? null : fromEpochSecond(epochSecond);
+    }
+
+    public static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,21 @@
+package ru.practicum.stats.server.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Хранит IP-адрес в двоичной форме: 4 байта для IPv4, 16 байт для IPv6.
+ */
+@Converter
+public class IpAddressConverter implements AttributeConverter<String, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(String ip) {
+        return ip == null ? null : IpAddresses.toBytes(ip);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] bytes) {
+        return bytes == null ? null : IpAddresses.toString(bytes);
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.stats.server.model.converter;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+/**
+ * Преобразование IP-адресов между текстовой и двоичной (4 или 16 байт) формой.
+ * Имена хостов не принимаются, поэтому DNS-запросы никогда не выполняются.
+ */
+public final class IpAddresses {
+
+    private IpAddresses() {
+    }
+
+    /**
+     * @throws IllegalArgumentException если строка не является IPv4- или IPv6-адресом.
+     */
+    public static byte[] toBytes(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            throw new IllegalArgumentException("Пустой IP-адрес");
+        }
+        if (ip.indexOf(':') >= 0) {
+            return parseIpv6(ip);
+        }
+        return parseIpv4(ip);
+    }
+
+    public static String toString(byte[] bytes) {
+        try {
+            return InetAddress.getByAddress(bytes).getHostAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректная длина IP-адреса: " + bytes.length, e);
+        }
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] bytes = new byte[4];
+        int octet = 0;
+        int value = 0;
+        int digits = 0;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (digits == 0 || octet == 4) {
+                    throw new IllegalArgumentException("Некорректный IPv4-адрес: " + ip);
+                }
+                bytes[octet++] = (byte) value;
+                value = 0;
+                digits = 0;
+            } else if (c >= '0' && c <= '9' && digits < 3) {
+                value = value * 10 + (c - '0');
+                digits++;
+                if (value > 255) {
+                    throw new IllegalArgumentException("Некорректный IPv4-адрес: " + ip);
+                }
+            } else {
+                throw new IllegalArgumentException("Некорректный IPv4-адрес: " + ip);
+            }
+        }
+        if (octet != 4) {
+            throw new IllegalArgumentException("Некорректный IPv4-адрес: " + ip);
+        }
+        return bytes;
+    }
+
+    private static byte[] parseIpv6(String ip) {
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            boolean allowed = c == ':' || c == '.' || Character.digit(c, 16) >= 0;
+            if (!allowed) {
+                throw new IllegalArgumentException("Некорректный IPv6-адрес: " + ip);
+            }
+        }
+        try {
+            // Для строки из шестнадцатеричных цифр, ':' и '.' разбирается литерал без обращения к DNS
+            // IPv4-mapped адрес ::ffff:a.b.c.d приводится к 4 байтам, как и обычный IPv4
+            return InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Некорректный IPv6-адрес: " + ip, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.stats.server.model.converter;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import lombok.RequiredArgsConstructor;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+
+/**
+ * Хранит URI как идентификатор из словаря {@code uris}.
+ * Как и {@link AppNameConverter}, только ищет в словаре и не создаёт записи.
+ */
+@Converter
+@RequiredArgsConstructor
+public class UriConverter implements AttributeConverter<String, Integer> {
+
+    private final HitDictionary hitDictionary;
+
+    @Override
+    public Integer convertToDatabaseColumn(String uri) {
+        return uri == null ? null : hitDictionary.findUriId(uri);
+    }
+
+    @Override
+    public String convertToEntityAttribute(Integer id) {
+        return id == null ? null : hitDictionary.uri(id);
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.stats.server.partition;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживает месячные секции таблицы {@code hits} в PostgreSQL:
+ * заранее создаёт секции на {@code stats.partitions.months-ahead} месяцев вперёд
+ * (хиты их месяцев, уже попавшие в секцию по умолчанию {@code hits_default}, переносятся в новую секцию)
+ * и, если задан {@code stats.partitions.retention-months}, отсоединяет и удаляет секции старше срока хранения.
+ * Агрегаты и скетчи при этом сохраняются. На других СУБД (H2 в тестах) ничего не делает.
+ * <p>
+ * Границы секций — эпохальные секунды начала месяца по UTC, поэтому и текущий месяц определяется по UTC,
+ * а не по часовому поясу JVM.
+ */
+@Component
+@Slf4j
+public class HitPartitionManager {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("hits_\\d{4}_\\d{2}");
+    private static final DateTimeFormatter PARTITION_MONTH = DateTimeFormatter.ofPattern("'hits_'yyyy_MM");
+    private static final String LIST_PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "JOIN pg_class p ON p.oid = i.inhparent " +
+            "WHERE p.relname = 'hits'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean postgres;
+    private final Clock clock;
+
+    @Autowired
+    public HitPartitionManager(JdbcTemplate jdbcTemplate,
+                               @Value("${stats.partitions.months-ahead:3}") int monthsAhead,
+                               @Value("${stats.partitions.retention-months:0}") int retentionMonths) {
+        this(jdbcTemplate, monthsAhead, retentionMonths, Clock.systemUTC());
+    }
+
+    HitPartitionManager(JdbcTemplate jdbcTemplate, int monthsAhead, int retentionMonths, Clock clock) {
+        this.clock = clock.withZone(ZoneOffset.UTC);
+        this.jdbcTemplate = jdbcTemplate;
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.postgres = Boolean.TRUE.equals(jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName())));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${stats.partitions.maintenance-cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!postgres) {
+            return;
+        }
+        createPartitionsAhead();
+        if (retentionMonths > 0) {
+            try {
+                dropExpiredPartitions();
+            } catch (Exception e) {
+                log.error("Ошибка удаления устаревших секций таблицы hits: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Создаёт секции текущего и следующих месяцев. Хиты месяца, уже попавшие в {@code hits_default},
+     * переносятся в новую секцию; ошибка создания одной секции не мешает созданию остальных.
+     */
+    private void createPartitionsAhead() {
+        YearMonth current = YearMonth.now(clock);
+        for (int i = 0; i <= monthsAhead; i++) {
+            YearMonth month = current.plusMonths(i);
+            try {
+                Long moved = jdbcTemplate.queryForObject("SELECT create_hits_partition(?)", Long.class,
+                        Date.valueOf(month.atDay(1)));
+                if (moved != null && moved > 0) {
+                    log.info("В секцию {} перенесено {} хитов из hits_default", month.format(PARTITION_MONTH), moved);
+                }
+            } catch (Exception e) {
+                log.error("Не удалось создать секцию {}: {}", month.format(PARTITION_MONTH), e.getMessage(), e);
+            }
+        }
+        log.debug("Секции hits созданы до {}", current.plusMonths(monthsAhead));
+    }
+
+    /**
+     * Секция удаляется, когда весь её месяц старше срока хранения.
+     */
+    private void dropExpiredPartitions() {
+        String oldestKept = YearMonth.now(clock).minusMonths(retentionMonths).format(PARTITION_MONTH);
+        List<String> partitions = jdbcTemplate.queryForList(LIST_PARTITIONS_SQL, String.class);
+        for (String partition : partitions) {
+            // Имена вида hits_YYYY_MM сравниваются лексикографически в хронологическом порядке
+            if (PARTITION_NAME.matcher(partition).matches() && partition.compareTo(oldestKept) < 0) {
+                jdbcTemplate.execute("ALTER TABLE hits DETACH PARTITION " + partition);
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Секция {} старше срока хранения ({} мес.) отсоединена и удалена", partition, retentionMonths);
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.stats.server.model.HitRollup;
+import ru.practicum.stats.server.model.HitRollupId;
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.util.List;
+
+public interface HitRollupRepository extends JpaRepository<HitRollup, HitRollupId> {
+
+    // Корзины выбираются по началу в секундах от эпохи: [firstBucket, lastBucket] включительно
+
+    @Query("SELECT r.appId AS appId, r.uriId AS uriId, SUM(r.hits) AS hits " +
+            "FROM HitRollup r " +
+            "WHERE r.granularity = :granularity " +
+            "  AND r.bucketStart BETWEEN :firstBucket AND :lastBucket " +
+            "GROUP BY r.appId, r.uriId")
+    List<IdStatsProjection> sumWithoutUriFilter(
+            @Param("granularity") RollupGranularity granularity,
+            @Param("firstBucket") long firstBucket,
+            @Param("lastBucket") long lastBucket);
+
+    @Query("SELECT r.appId AS appId, r.uriId AS uriId, SUM(r.hits) AS hits " +
+            "FROM HitRollup r " +
+            "WHERE r.granularity = :granularity " +
+            "  AND r.bucketStart BETWEEN :firstBucket AND :lastBucket " +
+            "  AND r.uriId IN :uriIds " +
+            "GROUP BY r.appId, r.uriId")
+    List<IdStatsProjection> sumWithUriFilter(
+            @Param("granularity") RollupGranularity granularity,
+            @Param("firstBucket") long firstBucket,
+            @Param("lastBucket") long lastBucket,
+            @Param("uriIds") List<Integer> uriIds);
+
+    interface IdStatsProjection {
+        Integer getAppId();
+
+        Integer getUriId();
+
+        Long getHits();
+    }
+}
@@ -0,0 +1,28 @@
+package ru.practicum.stats.server.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import ru.practicum.stats.server.model.HitSketch;
+import ru.practicum.stats.server.model.HitSketchId;
+
+import java.util.List;
+
+public interface HitSketchRepository extends JpaRepository<HitSketch, HitSketchId> {
+
+    // Корзины выбираются по началу в секундах от эпохи: [firstBucket, lastBucket] включительно
+
+    @Query("SELECT s FROM HitSketch s " +
+            "WHERE s.bucketStart BETWEEN :firstBucket AND :lastBucket")
+    List<HitSketch> findWithoutUriFilter(
+            @Param("firstBucket") long firstBucket,
+            @Param("lastBucket") long lastBucket);
+
+    @Query("SELECT s FROM HitSketch s " +
+            "WHERE s.bucketStart BETWEEN :firstBucket AND :lastBucket " +
+            "  AND s.uriId IN :uriIds")
+    List<HitSketch> findWithUriFilter(
+            @Param("firstBucket") long firstBucket,
+            @Param("lastBucket") long lastBucket,
+            @Param("uriIds") List<Integer> uriIds);
+}
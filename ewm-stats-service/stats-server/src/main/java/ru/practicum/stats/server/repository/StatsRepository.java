@@ -54,7 +54,25 @@ public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
             @Param("end") LocalDateTime end,
             @Param("uris") List<String> uris);
 
-    // =============== ВЛОЖЁННЫЙ ИНТЕРФЕЙС ПРОЕКЦИИ ===============
+    // =============== УНИКАЛЬНЫЕ IP ДЛЯ ПРИБЛИЖЁННОГО ПОДСЧЁТА ===============
+
+    @Query("SELECT DISTINCT h.app AS app, h.uri AS uri, h.ip AS ip " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end")
+    List<HitIpProjection> findDistinctIpsWithoutUriFilter(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end);
+
+    @Query("SELECT DISTINCT h.app AS app, h.uri AS uri, h.ip AS ip " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end " +
+            "  AND h.uri IN :uris")
+    List<HitIpProjection> findDistinctIpsWithUriFilter(
+            @Param("start") LocalDateTime start,
+            @Param("end") LocalDateTime end,
+            @Param("uris") List<String> uris);
+
+    // =============== ВЛОЖЁННЫЕ ИНТЕРФЕЙСЫ ПРОЕКЦИЙ ===============
 
     interface ViewStatsProjection {
         String getApp();
@@ -63,4 +81,12 @@ public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
 
         Long getHits();
     }
+
+    interface HitIpProjection {
+        String getApp();
+
+        String getUri();
+
+        String getIp();
+    }
 }
\ No newline at end of file
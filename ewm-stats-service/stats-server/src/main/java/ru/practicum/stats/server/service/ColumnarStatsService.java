@@ -0,0 +1,140 @@
+package ru.practicum.stats.server.service;
+
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.columnar.ColumnarHitStore;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Реализация {@link StatsService} поверх колоночного хранилища в памяти {@link ColumnarHitStore}.
+ * Включается свойством {@code stats.engine=columnar} вместо {@link StatsServiceImpl}.
+ * <p>
+ * Запросы, начинающиеся внутри окна хранения, считаются по колонкам без обращения к БД и без кэша результатов;
+ * уникальные просмотры считаются точно, в том числе при {@code approximate=true}.
+ * Запись хитов, разбор параметров и запросы за более ранние периоды выполняет {@link StatsServiceImpl}:
+ * БД остаётся основным хранилищем, а колонки дополняются после коммита записи.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "stats.engine", havingValue = "columnar")
+@RequiredArgsConstructor
+@Slf4j
+public class ColumnarStatsService implements StatsService {
+
+    private final StatsServiceImpl statsServiceImpl;
+    private final ColumnarHitStore columnarHitStore;
+    private final StatsMetrics statsMetrics;
+
+    @Override
+    public void saveHit(EndpointHitDto endpointHitDto) {
+        statsServiceImpl.saveHit(endpointHitDto);
+    }
+
+    @Override
+    public void saveHits(List<EndpointHitDto> endpointHitDtos) {
+        statsServiceImpl.saveHits(endpointHitDtos);
+    }
+
+    @Override
+    public long saveHitStream(Iterator<EndpointHitDto> endpointHitDtos) {
+        return statsServiceImpl.saveHitStream(endpointHitDtos);
+    }
+
+    @Override
+    public List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique,
+                                       boolean approximate, Integer limit, int offset) {
+        StatsQuery query = prepareQuery(start, end, uris, unique, approximate, limit, offset);
+        if (!columnarHitStore.covers(query.start())) {
+            log.debug("Диапазон {} — {} начинается раньше окна колоночного хранилища, запрос к БД",
+                    query.start(), query.end());
+            return statsServiceImpl.getStats(start, end, uris, unique, approximate, limit, offset);
+        }
+        return scan(query);
+    }
+
+    @Override
+    public StatsQuery prepareQuery(String start, String end, List<String> uris, boolean unique,
+                                   boolean approximate, Integer limit, int offset) {
+        return statsServiceImpl.prepareQuery(start, end, uris, unique, approximate, limit, offset);
+    }
+
+    @Override
+    public int streamStats(StatsQuery query, Consumer<ViewStatsDto> sink) {
+        if (!columnarHitStore.covers(query.start())) {
+            return statsServiceImpl.streamStats(query, sink);
+        }
+        List<ViewStatsDto> result = scan(query);
+        result.forEach(sink);
+        return result.size();
+    }
+
+    @Override
+    public List<ViewStatsDto> getTopUris(String app, int k, Integer minutes) {
+        return statsServiceImpl.getTopUris(app, k, minutes);
+    }
+
+    @Override
+    public List<TimeSeriesStatsDto> getTimeSeries(String start, String end, List<String> uris, boolean unique,
+                                                  StatsInterval interval) {
+        return statsServiceImpl.getTimeSeries(start, end, uris, unique, interval);
+    }
+
+    /**
+     * Запросы внутри окна хранения считаются по колонкам каждый отдельно: объединять их ради одного
+     * SQL-запроса незачем.
+     * Остальные запросы пакета передаются в {@link StatsServiceImpl#getStatsBatch} одним подпакетом,
+     * где запросы с общим фильтром объединяются.
+     */
+    @Override
+    public List<List<ViewStatsDto>> getStatsBatch(List<StatsBatchQueryDto> queries) {
+        StatsServiceImpl.validateBatchSize(queries);
+        List<List<ViewStatsDto>> results = new ArrayList<>(Collections.nCopies(queries.size(), null));
+        List<StatsBatchQueryDto> databaseQueries = new ArrayList<>();
+        List<Integer> databaseIndexes = new ArrayList<>();
+        for (int i = 0; i < queries.size(); i++) {
+            StatsBatchQueryDto dto = queries.get(i);
+            StatsQuery query = prepareQuery(dto.getStart(), dto.getEnd(), dto.getUris(), dto.isUnique(),
+                    false, null, 0);
+            if (columnarHitStore.covers(query.start())) {
+                results.set(i, scan(query));
+            } else {
+                databaseQueries.add(dto);
+                databaseIndexes.add(i);
+            }
+        }
+        if (!databaseQueries.isEmpty()) {
+            List<List<ViewStatsDto>> databaseResults = statsServiceImpl.getStatsBatch(databaseQueries);
+            for (int i = 0; i < databaseIndexes.size(); i++) {
+                results.set(databaseIndexes.get(i), databaseResults.get(i));
+            }
+        }
+        return results;
+    }
+
+    private List<ViewStatsDto> scan(StatsQuery query) {
+        Timer.Sample sample = statsMetrics.start();
+        Timer.Sample loadSample = statsMetrics.start();
+        List<ViewStatsDto> result = columnarHitStore.getStats(query);
+        statsMetrics.recordLoad(loadSample, query);
+        statsMetrics.recordQuery(sample, query, result.size());
+
+        log.debug("Статистика получена из колоночного хранилища. Количество записей: {}", result.size());
+        return result;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.stats.server.service;
+
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбиение интервала [start, end] на целые корзины агрегатов и «сырые» края.
+ * Сначала берутся целые часы, остаток с каждой стороны — целыми минутами,
+ * а оставшиеся доли минуты читаются из таблицы хитов.
+ * Поэтому стоимость запроса зависит от ширины интервала, а не от объёма таблицы хитов:
+ * не больше одного диапазона часовых корзин, двух минутных и двух «сырых» срезов.
+ */
+final class RollupRangePlan {
+
+    /**
+     * Срез таблицы хитов, границы включительно.
+     */
+    record RawSlice(LocalDateTime start, LocalDateTime end) {
+    }
+
+    /**
+     * Диапазон корзин одного шага, начала первой и последней корзины включительно.
+     */
+    record BucketSlice(RollupGranularity granularity, LocalDateTime firstBucket, LocalDateTime lastBucket) {
+    }
+
+    private final RollupGranularity[] granularities;
+    private final List<RawSlice> rawSlices = new ArrayList<>();
+    private final List<BucketSlice> bucketSlices = new ArrayList<>();
+
+    private RollupRangePlan(RollupGranularity[] granularities) {
+        this.granularities = granularities;
+    }
+
+    /**
+     * Строит план для интервала с точностью до секунды, обе границы включительно.
+     */
+    static RollupRangePlan of(LocalDateTime start, LocalDateTime end) {
+        return of(start, end, RollupGranularity.HOUR, RollupGranularity.MINUTE);
+    }
+
+    /**
+     * Строит план только по указанным шагам корзин, от крупного к мелкому.
+     */
+    static RollupRangePlan of(LocalDateTime start, LocalDateTime end, RollupGranularity... granularities) {
+        RollupRangePlan plan = new RollupRangePlan(granularities);
+        plan.split(start, end.plusSeconds(1), 0);
+        return plan;
+    }
+
+    List<RawSlice> rawSlices() {
+        return rawSlices;
+    }
+
+    List<BucketSlice> bucketSlices() {
+        return bucketSlices;
+    }
+
+    /**
+     * Делит полуинтервал [from, to) по корзинам шага {@code granularities[level]}.
+     */
+    private void split(LocalDateTime from, LocalDateTime to, int level) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        if (level == granularities.length) {
+            rawSlices.add(new RawSlice(from, to.minusSeconds(1)));
+            return;
+        }
+
+        RollupGranularity granularity = granularities[level];
+        LocalDateTime firstBucket = granularity.ceil(from);
+        LocalDateTime bucketsEnd = granularity.floor(to);
+        if (!firstBucket.isBefore(bucketsEnd)) {
+            split(from, to, level + 1);
+            return;
+        }
+
+        split(from, firstBucket, level + 1);
+        bucketSlices.add(new BucketSlice(granularity, firstBucket, granularity.floor(bucketsEnd.minusSeconds(1))));
+        split(bucketsEnd, to, level + 1);
+    }
+}
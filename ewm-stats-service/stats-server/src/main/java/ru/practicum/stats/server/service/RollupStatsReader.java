@@ -0,0 +1,73 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Считает неуникальную статистику по предагрегированным корзинам {@code hit_rollups}
+ * и «сырым» краям интервала согласно {@link RollupRangePlan}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RollupStatsReader {
+
+    private final StatsRepository statsRepository;
+    private final HitRollupRepository hitRollupRepository;
+    private final HitDictionary hitDictionary;
+
+    public List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris) {
+        RollupRangePlan plan = RollupRangePlan.of(start, end);
+        log.debug("План запроса по агрегатам: корзины={}, сырые срезы={}", plan.bucketSlices(), plan.rawSlices());
+
+        Map<String, ViewStatsDto> totals = new LinkedHashMap<>();
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        for (RollupRangePlan.BucketSlice slice : plan.bucketSlices()) {
+            if (uriIds != null && uriIds.isEmpty()) {
+                break;
+            }
+            long firstBucket = EpochSecondsConverter.toEpochSecond(slice.firstBucket());
+            long lastBucket = EpochSecondsConverter.toEpochSecond(slice.lastBucket());
+            List<HitRollupRepository.IdStatsProjection> rollups = uriIds == null
+                    ? hitRollupRepository.sumWithoutUriFilter(slice.granularity(), firstBucket, lastBucket)
+                    : hitRollupRepository.sumWithUriFilter(slice.granularity(), firstBucket, lastBucket, uriIds);
+            for (HitRollupRepository.IdStatsProjection rollup : rollups) {
+                merge(totals, hitDictionary.appName(rollup.getAppId()), hitDictionary.uri(rollup.getUriId()),
+                        rollup.getHits());
+            }
+        }
+        for (RollupRangePlan.RawSlice slice : plan.rawSlices()) {
+            List<StatsRepository.ViewStatsProjection> raw = uris == null
+                    ? statsRepository.findAllStatsWithoutUriFilter(slice.start(), slice.end())
+                    : statsRepository.findAllStatsWithUriFilter(slice.start(), slice.end(), uris);
+            for (StatsRepository.ViewStatsProjection projection : raw) {
+                merge(totals, projection.getApp(), projection.getUri(), projection.getHits());
+            }
+        }
+
+        List<ViewStatsDto> result = new ArrayList<>(totals.values());
+        result.sort(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        return result;
+    }
+
+    private void merge(Map<String, ViewStatsDto> totals, String app, String uri, long hits) {
+        totals.merge(app + '\n' + uri, new ViewStatsDto(app, uri, hits), (total, part) -> {
+            total.setHits(total.getHits() + part.getHits());
+            return total;
+        });
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.Nullable;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.HitSketch;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+import ru.practicum.stats.server.model.converter.IpAddresses;
+import ru.practicum.stats.server.repository.HitSketchRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Приближённо считает уникальные IP слиянием часовых скетчей {@link HyperLogLog}.
+ * Неполные часы по краям интервала добавляются в скетч из таблицы хитов.
+ * В каждой записи результата указывается стандартная относительная ошибка оценки.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SketchStatsReader {
+
+    private final StatsRepository statsRepository;
+    private final HitSketchRepository hitSketchRepository;
+    private final HitDictionary hitDictionary;
+
+    public List<ViewStatsDto> getUniqueStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris) {
+        RollupRangePlan plan = RollupRangePlan.of(start, end, RollupGranularity.HOUR);
+        log.debug("План приближённого запроса: корзины={}, сырые срезы={}", plan.bucketSlices(), plan.rawSlices());
+
+        Map<Key, HyperLogLog> sketches = new LinkedHashMap<>();
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        for (RollupRangePlan.BucketSlice slice : plan.bucketSlices()) {
+            if (uriIds != null && uriIds.isEmpty()) {
+                break;
+            }
+            long firstBucket = EpochSecondsConverter.toEpochSecond(slice.firstBucket());
+            long lastBucket = EpochSecondsConverter.toEpochSecond(slice.lastBucket());
+            List<HitSketch> stored = uriIds == null
+                    ? hitSketchRepository.findWithoutUriFilter(firstBucket, lastBucket)
+                    : hitSketchRepository.findWithUriFilter(firstBucket, lastBucket, uriIds);
+            for (HitSketch sketch : stored) {
+                Key key = new Key(hitDictionary.appName(sketch.getAppId()), hitDictionary.uri(sketch.getUriId()));
+                sketches.computeIfAbsent(key, k -> new HyperLogLog())
+                        .merge(HyperLogLog.fromBytes(sketch.getRegisters()));
+            }
+        }
+        for (RollupRangePlan.RawSlice slice : plan.rawSlices()) {
+            List<StatsRepository.HitIpProjection> ips = uris == null
+                    ? statsRepository.findDistinctIpsWithoutUriFilter(slice.start(), slice.end())
+                    : statsRepository.findDistinctIpsWithUriFilter(slice.start(), slice.end(), uris);
+            for (StatsRepository.HitIpProjection ip : ips) {
+                sketches.computeIfAbsent(new Key(ip.getApp(), ip.getUri()), key -> new HyperLogLog())
+                        .offer(IpAddresses.toBytes(ip.getIp()));
+            }
+        }
+
+        return sketches.entrySet().stream()
+                .map(entry -> new ViewStatsDto(entry.getKey().app(), entry.getKey().uri(),
+                        entry.getValue().estimate(), HyperLogLog.STANDARD_ERROR))
+                .sorted(Comparator.comparing(ViewStatsDto::getHits).reversed())
+                .toList();
+    }
+
+    private record Key(String app, String uri) {
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.Nullable;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * План пакета запросов статистики: запросы с одинаковыми периодом и флагом {@code unique}
+ * объединяются в одну группу, которая читается одним запросом по объединению фильтров URI
+ * (или без фильтра, если хотя бы один запрос группы его не задаёт).
+ * Результат каждого запроса вырезается из результата группы по его собственному фильтру;
+ * порядок строк сохраняется, поскольку фильтр только убирает строки.
+ */
+final class StatsBatchPlan {
+
+    /**
+     * Запрос пакета с номером {@code index} и его собственным фильтром URI.
+     */
+    record Member(int index, @Nullable Set<String> uris) {
+
+        List<ViewStatsDto> select(List<ViewStatsDto> groupResult) {
+            if (uris == null) {
+                return groupResult;
+            }
+            return groupResult.stream()
+                    .filter(row -> uris.contains(row.getUri()))
+                    .toList();
+        }
+    }
+
+    /**
+     * Запрос, выполняемый для группы, и запросы пакета, которые он покрывает.
+     */
+    record Group(StatsQuery query, List<Member> members) {
+    }
+
+    private record Key(LocalDateTime start, LocalDateTime end, boolean unique) {
+    }
+
+    private final List<Group> groups;
+
+    private StatsBatchPlan(List<Group> groups) {
+        this.groups = groups;
+    }
+
+    static StatsBatchPlan of(List<StatsQuery> queries) {
+        Map<Key, List<Member>> members = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            StatsQuery query = queries.get(i);
+            members.computeIfAbsent(new Key(query.start(), query.end(), query.unique()), key -> new ArrayList<>())
+                    .add(new Member(i, query.uris()));
+        }
+
+        List<Group> groups = new ArrayList<>();
+        members.forEach((key, groupMembers) -> {
+            Set<String> uris = new HashSet<>();
+            for (Member member : groupMembers) {
+                if (member.uris() == null) {
+                    uris = null;
+                    break;
+                }
+                uris.addAll(member.uris());
+            }
+            groups.add(new Group(StatsQuery.of(key.start(), key.end(), uris, key.unique(), false), groupMembers));
+        });
+        return new StatsBatchPlan(groups);
+    }
+
+    List<Group> groups() {
+        return groups;
+    }
+}
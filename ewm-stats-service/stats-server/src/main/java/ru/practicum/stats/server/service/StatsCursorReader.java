@@ -0,0 +1,137 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+
+import javax.sql.DataSource;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Потоковое чтение статистики курсором БД с заданным {@code fetch-size}.
+ * Корзины агрегатов и «сырые» края интервала объединяются и суммируются в самом SQL-запросе,
+ * поэтому приложение держит в памяти только текущую порцию строк, а не весь результат.
+ * Для PostgreSQL курсор работает только внутри транзакции, поэтому методы вызываются из транзакционного кода.
+ */
+@Component
+@Slf4j
+public class StatsCursorReader {
+
+    private final JdbcTemplate cursor;
+    private final HitDictionary hitDictionary;
+
+    public StatsCursorReader(DataSource dataSource,
+                             HitDictionary hitDictionary,
+                             @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        this.cursor = new JdbcTemplate(dataSource);
+        this.cursor.setFetchSize(fetchSize);
+        this.hitDictionary = hitDictionary;
+    }
+
+    /**
+     * Неуникальные просмотры по плану {@link RollupRangePlan}, по убыванию числа просмотров.
+     * {@code limit} и {@code offset} применяются в SQL, так что БД может выполнить top-N сортировку.
+     *
+     * @return число переданных в {@code sink} записей.
+     */
+    public int streamStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris,
+                           @Nullable Integer limit, int offset, Consumer<ViewStatsDto> sink) {
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return 0;
+        }
+
+        RollupRangePlan plan = RollupRangePlan.of(start, end);
+        List<String> parts = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        for (RollupRangePlan.BucketSlice slice : plan.bucketSlices()) {
+            args.add(slice.granularity().name());
+            args.add(EpochSecondsConverter.toEpochSecond(slice.firstBucket()));
+            args.add(EpochSecondsConverter.toEpochSecond(slice.lastBucket()));
+            parts.add("SELECT app_id, uri_id, hits FROM hit_rollups " +
+                    "WHERE granularity = ? AND bucket_start BETWEEN ? AND ?" + uriFilter(uriIds, args));
+        }
+        for (RollupRangePlan.RawSlice slice : plan.rawSlices()) {
+            args.add(EpochSecondsConverter.toEpochSecond(slice.start()));
+            args.add(EpochSecondsConverter.toEpochSecond(slice.end()));
+            parts.add("SELECT app_id, uri_id, COUNT(*) AS hits FROM hits " +
+                    "WHERE hit_ts BETWEEN ? AND ?" + uriFilter(uriIds, args) +
+                    " GROUP BY app_id, uri_id");
+        }
+
+        String sql = "SELECT app_id, uri_id, SUM(hits) AS total FROM (" + String.join(" UNION ALL ", parts) + ") s " +
+                "GROUP BY app_id, uri_id" + orderAndPage(limit, offset, args);
+        return query(sql, args, sink);
+    }
+
+    /**
+     * Уникальные по IP просмотры из таблицы хитов, по убыванию числа просмотров.
+     *
+     * @return число переданных в {@code sink} записей.
+     */
+    public int streamUniqueStats(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris,
+                                 @Nullable Integer limit, int offset, Consumer<ViewStatsDto> sink) {
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return 0;
+        }
+
+        List<Object> args = new ArrayList<>();
+        args.add(EpochSecondsConverter.toEpochSecond(start));
+        args.add(EpochSecondsConverter.toEpochSecond(end));
+        String sql = "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS total FROM hits " +
+                "WHERE hit_ts BETWEEN ? AND ?" + uriFilter(uriIds, args) +
+                " GROUP BY app_id, uri_id" + orderAndPage(limit, offset, args);
+        return query(sql, args, sink);
+    }
+
+    private int query(String sql, List<Object> args, Consumer<ViewStatsDto> sink) {
+        int[] count = {0};
+        cursor.query(sql, rs -> {
+            sink.accept(new ViewStatsDto(
+                    hitDictionary.appName(rs.getInt("app_id")),
+                    hitDictionary.uri(rs.getInt("uri_id")),
+                    rs.getLong("total")));
+            count[0]++;
+        }, args.toArray());
+        log.debug("Потоковая выдача статистики завершена: {} записей", count[0]);
+        return count[0];
+    }
+
+    /**
+     * Сортировка по убыванию просмотров с детерминированным порядком равных значений,
+     * чтобы страницы не пересекались, и ограничение выборки.
+     */
+    private static String orderAndPage(@Nullable Integer limit, int offset, List<Object> args) {
+        StringBuilder sql = new StringBuilder(" ORDER BY total DESC, app_id, uri_id");
+        if (limit != null) {
+            sql.append(" LIMIT ?");
+            args.add(limit);
+        }
+        if (offset > 0) {
+            sql.append(" OFFSET ?");
+            args.add(offset);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Условие по URI; идентификаторы добавляются в {@code args} в порядке их плейсхолдеров.
+     */
+    private static String uriFilter(@Nullable List<Integer> uriIds, List<Object> args) {
+        if (uriIds == null) {
+            return "";
+        }
+        args.addAll(uriIds);
+        return " AND uri_id IN (" + String.join(", ", Collections.nCopies(uriIds.size(), "?")) + ")";
+    }
+}
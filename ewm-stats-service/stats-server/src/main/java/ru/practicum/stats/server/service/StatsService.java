@@ -1,13 +1,86 @@
 package ru.practicum.stats.server.service;
 
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
 
     void saveHit(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique);
+    void saveHits(List<EndpointHitDto> endpointHitDtos);
+
+    /**
+     * Сохраняет поток «хитов» неограниченной длины, читая его по мере записи пакетами.
+     * Пакеты фиксируются независимо, поэтому при ошибке в середине потока принятые ранее записи сохраняются.
+     *
+     * @return число принятых хитов.
+     */
+    long saveHitStream(Iterator<EndpointHitDto> endpointHitDtos);
+
+    default List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique) {
+        return getStats(start, end, uris, unique, false);
+    }
+
+    /**
+     * @param approximate Для {@code unique=true} считать уникальные IP по скетчам HyperLogLog
+     *                    с указанием относительной ошибки вместо точного {@code COUNT(DISTINCT)}.
+     */
+    default List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique,
+                                        boolean approximate) {
+        return getStats(start, end, uris, unique, approximate, null, 0);
+    }
+
+    /**
+     * @param limit  Максимальное число записей (первые по числу просмотров) или {@code null} — без ограничения.
+     * @param offset Сколько первых записей пропустить.
+     */
+    List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique, boolean approximate,
+                                Integer limit, int offset);
+
+    /**
+     * Разбирает и проверяет параметры запроса статистики.
+     * Вызывается до начала потоковой выдачи, чтобы ошибка валидации успела стать ответом 400.
+     */
+    StatsQuery prepareQuery(String start, String end, List<String> uris, boolean unique, boolean approximate,
+                            Integer limit, int offset);
+
+    /**
+     * Передаёт статистику в {@code sink} по мере чтения из курсора БД, не накапливая результат в памяти.
+     * Приближённая уникальная статистика собирается из скетчей целиком и затем передаётся по записи.
+     *
+     * @return число переданных записей.
+     */
+    int streamStats(StatsQuery query, Consumer<ViewStatsDto> sink);
+
+    /**
+     * Самые посещаемые URI за последние минуты: не больше {@code k} записей на сервис,
+     * сервисы по имени, URI сервиса — по убыванию просмотров.
+     *
+     * @param app     Сервис или {@code null} — все сервисы.
+     * @param minutes Длина окна в минутах, включая текущую, или {@code null} — всё окно {@code stats.top.window-minutes}.
+     */
+    List<ViewStatsDto> getTopUris(String app, int k, Integer minutes);
+
+    /**
+     * Просмотры каждой пары (сервис, URI) по корзинам шага {@code interval} за период одним запросом.
+     * Фильтры {@code start}, {@code end}, {@code uris} и {@code unique} — как у {@link #getStats}.
+     */
+    List<TimeSeriesStatsDto> getTimeSeries(String start, String end, List<String> uris, boolean unique,
+                                           StatsInterval interval);
+
+    /**
+     * Выполняет пакет запросов статистики. Запросы с одинаковыми периодом и флагом {@code unique}
+     * считаются одним чтением по объединению их фильтров URI.
+     *
+     * @return Результаты в порядке запросов пакета, каждый — как у {@link #getStats}.
+     */
+    List<List<ViewStatsDto>> getStatsBatch(List<StatsBatchQueryDto> queries);
 }
\ No newline at end of file
@@ -1,21 +1,41 @@
 package ru.practicum.stats.server.service;
 
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.cache.StatsResultCache;
 import ru.practicum.stats.server.exception.ValidationException; // ← импорт нового исключения
+import ru.practicum.stats.server.ingest.HitIngestor;
+import ru.practicum.stats.server.ingest.HitStreamIngestor;
 import ru.practicum.stats.server.mapper.EndpointHitMapper;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+import ru.practicum.stats.server.metrics.StatsMetrics.IngestOperation;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
 import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.window.SlidingWindowCounters;
+import ru.practicum.stats.server.window.TopUriSketches;
 
-import java.net.URLDecoder;
-import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Service
@@ -24,11 +44,22 @@ import java.util.stream.Collectors;
 @Slf4j
 public class StatsServiceImpl implements StatsService {
 
+    static final int MAX_BATCH_QUERIES = 100;
+
     private final StatsRepository statsRepository;
-    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final HitIngestor hitIngestor;
+    private final RollupStatsReader rollupStatsReader;
+    private final SketchStatsReader sketchStatsReader;
+    private final StatsResultCache statsResultCache;
+    private final StatsCursorReader statsCursorReader;
+    private final HitStreamIngestor hitStreamIngestor;
+    private final StatsMetrics statsMetrics;
+    private final SlidingWindowCounters slidingWindowCounters;
+    private final TopUriSketches topUriSketches;
+    private final TimeSeriesStatsReader timeSeriesStatsReader;
 
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // транзакцию открывает запись в БД, если она нужна
     public void saveHit(EndpointHitDto endpointHitDto) {
         log.debug("Сохранение данных о посещении: app={}, uri={}, ip={}, time={}",
                 endpointHitDto.getApp(),
@@ -36,48 +67,244 @@ public class StatsServiceImpl implements StatsService {
                 endpointHitDto.getIp(),
                 endpointHitDto.getTimestamp());
 
-        statsRepository.save(EndpointHitMapper.toEntity(endpointHitDto));
+        Timer.Sample sample = statsMetrics.start();
+        boolean accepted = hitIngestor.ingest(EndpointHitMapper.toEntity(endpointHitDto));
+        statsMetrics.recordIngest(sample, IngestOperation.HIT, accepted ? 1 : 0);
+
+        log.debug(accepted ? "Данные о посещении приняты на запись" : "Данные о посещении отброшены");
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void saveHits(List<EndpointHitDto> endpointHitDtos) {
+        log.debug("Пакетное сохранение данных о посещениях: {} записей", endpointHitDtos.size());
+
+        Timer.Sample sample = statsMetrics.start();
+        List<EndpointHit> hits = endpointHitDtos.stream()
+                .map(EndpointHitMapper::toEntity)
+                .collect(Collectors.toList());
+        int accepted = hitIngestor.ingestAll(hits);
+        statsMetrics.recordIngest(sample, IngestOperation.BATCH, accepted);
+
+        log.debug("Из пакета {} посещений принято на запись {}", hits.size(), accepted);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // каждый пакет потока фиксируется своей транзакцией
+    public long saveHitStream(Iterator<EndpointHitDto> endpointHitDtos) {
+        log.debug("Потоковое сохранение данных о посещениях");
+
+        Timer.Sample sample = statsMetrics.start();
+        long accepted = hitStreamIngestor.ingest(endpointHitDtos);
+        statsMetrics.recordIngest(sample, IngestOperation.STREAM, accepted);
 
-        log.debug("Данные о посещении успешно сохранены в БД");
+        log.debug("Поток из {} посещений принят на запись", accepted);
+        return accepted;
     }
 
     @Override
-    public List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique) {
-        log.debug("Запрос статистики: start={}, end={}, uris={}, unique={}", start, end, uris, unique);
+    public List<ViewStatsDto> getStats(String start, String end, List<String> uris, boolean unique,
+                                       boolean approximate, Integer limit, int offset) {
+        log.debug("Запрос статистики: start={}, end={}, uris={}, unique={}, approximate={}, limit={}, offset={}",
+                start, end, uris, unique, approximate, limit, offset);
+
+        Timer.Sample sample = statsMetrics.start();
+
+        // 1. Парсим и валидируем временные границы и параметры страницы
+        StatsQuery query = prepareQuery(start, end, uris, unique, approximate, limit, offset);
 
-        // 1. Парсим и валидируем временные границы
+        // 2. Берём результат из кэша; при промахе неуникальные — из счётчиков окна или агрегатов,
+        //    уникальные — из скетчей или таблицы хитов
+        List<ViewStatsDto> result = cachedStats(query);
+        statsMetrics.recordQuery(sample, query, result.size());
+
+        log.debug("Статистика успешно получена. Количество записей: {}", result.size());
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // только разбор параметров: соединение с БД не нужно
+    public StatsQuery prepareQuery(String start, String end, List<String> uris, boolean unique,
+                                   boolean approximate, Integer limit, int offset) {
         LocalDateTime startTime = parseAndDecodeDateTime(start, "начало");
         LocalDateTime endTime = parseAndDecodeDateTime(end, "конец");
 
         validateTimeRange(startTime, endTime);
+        validatePage(limit, offset);
 
-        // 2. Получаем данные из репозитория
-        List<StatsRepository.ViewStatsProjection> projections = fetchStatsFromRepository(
-                startTime, endTime, uris, unique
-        );
+        return StatsQuery.of(startTime, endTime, uris, unique, approximate, limit, offset);
+    }
 
-        // 3. Преобразуем в DTO
-        List<ViewStatsDto> result = projections.stream()
-                .map(EndpointHitMapper::toViewStatsDto)
-                .collect(Collectors.toList());
+    @Override
+    public int streamStats(StatsQuery query, Consumer<ViewStatsDto> sink) {
+        log.debug("Потоковый запрос статистики: {}", query);
 
-        log.debug("Статистика успешно получена. Количество записей: {}", result.size());
+        Timer.Sample sample = statsMetrics.start();
+        int rows = readStats(query, sink);
+        statsMetrics.recordQuery(sample, query, rows);
+        return rows;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS) // сводки в памяти: соединение с БД нужно только без них
+    public List<ViewStatsDto> getTopUris(String app, int k, Integer minutes) {
+        log.debug("Запрос популярных URI: app={}, k={}, minutes={}", app, k, minutes);
+
+        int windowMinutes = topUriSketches.windowMinutes();
+        if (k <= 0 || k > topUriSketches.capacity()) {
+            throw new ValidationException("Параметр k должен быть от 1 до " + topUriSketches.capacity());
+        }
+        if (minutes != null && (minutes <= 0 || minutes > windowMinutes)) {
+            throw new ValidationException("Параметр minutes должен быть от 1 до " + windowMinutes);
+        }
+        int window = minutes == null ? windowMinutes : minutes;
+
+        List<ViewStatsDto> result = topUriSketches.isEnabled()
+                ? topUriSketches.top(app, k, window)
+                : fetchTopUris(app, k, window);
+
+        log.debug("Популярные URI получены. Количество записей: {}", result.size());
         return result;
     }
 
+    @Override
+    public List<TimeSeriesStatsDto> getTimeSeries(String start, String end, List<String> uris, boolean unique,
+                                                  StatsInterval interval) {
+        log.debug("Запрос временного ряда: start={}, end={}, uris={}, unique={}, interval={}",
+                start, end, uris, unique, interval);
+
+        StatsQuery query = prepareQuery(start, end, uris, unique, false, null, 0);
+        long buckets = TimeSeriesStatsReader.bucketCount(query.start(), query.end(), interval);
+        if (buckets > timeSeriesStatsReader.maxBuckets()) {
+            throw new ValidationException("Интервал содержит " + buckets + " корзин шага " + interval
+                    + ", допускается не больше " + timeSeriesStatsReader.maxBuckets());
+        }
+
+        List<String> uriFilter = query.uris() == null ? null : List.copyOf(query.uris());
+        List<TimeSeriesStatsDto> result = timeSeriesStatsReader.getTimeSeries(
+                query.start(), query.end(), uriFilter, query.unique(), interval);
+
+        log.debug("Временной ряд успешно получен. Количество записей: {}", result.size());
+        return result;
+    }
+
+    @Override
+    public List<List<ViewStatsDto>> getStatsBatch(List<StatsBatchQueryDto> queries) {
+        log.debug("Пакетный запрос статистики: {} запросов", queries.size());
+
+        validateBatchSize(queries);
+        List<StatsQuery> parsed = queries.stream()
+                .map(query -> prepareQuery(query.getStart(), query.getEnd(), query.getUris(), query.isUnique(),
+                        false, null, 0))
+                .toList();
+
+        StatsBatchPlan plan = StatsBatchPlan.of(parsed);
+        List<List<ViewStatsDto>> results = new ArrayList<>(Collections.nCopies(parsed.size(), null));
+        for (StatsBatchPlan.Group group : plan.groups()) {
+            Timer.Sample sample = statsMetrics.start();
+            List<ViewStatsDto> groupResult = cachedStats(group.query());
+            statsMetrics.recordQuery(sample, group.query(), groupResult.size());
+            for (StatsBatchPlan.Member member : group.members()) {
+                results.set(member.index(), member.select(groupResult));
+            }
+        }
+
+        log.debug("Пакетный запрос выполнен: {} запросов, {} чтений", parsed.size(), plan.groups().size());
+        return results;
+    }
+
+    /**
+     * Проверяет размер пакетного запроса статистики: от 1 до {@link #MAX_BATCH_QUERIES} запросов.
+     */
+    static void validateBatchSize(List<StatsBatchQueryDto> queries) {
+        if (queries.isEmpty() || queries.size() > MAX_BATCH_QUERIES) {
+            throw new ValidationException("Пакет должен содержать от 1 до " + MAX_BATCH_QUERIES + " запросов");
+        }
+    }
+
+    /**
+     * Результат запроса из кэша или, при промахе, из счётчиков окна, агрегатов, скетчей или таблицы хитов.
+     */
+    private List<ViewStatsDto> cachedStats(StatsQuery query) {
+        return statsResultCache.get(query, () -> {
+            Timer.Sample loadSample = statsMetrics.start();
+            List<ViewStatsDto> loaded = loadStats(query);
+            statsMetrics.recordLoad(loadSample, query);
+            return loaded;
+        });
+    }
+
+    /**
+     * Читает статистику курсором БД и передаёт её в {@code sink} по записи.
+     */
+    private int readStats(StatsQuery query, Consumer<ViewStatsDto> sink) {
+        List<String> uriFilter = query.uris() == null ? null : List.copyOf(query.uris());
+        if (!query.unique()) {
+            return statsCursorReader.streamStats(query.start(), query.end(), uriFilter,
+                    query.limit(), query.offset(), sink);
+        } else if (query.approximate()) {
+            List<ViewStatsDto> result = page(
+                    sketchStatsReader.getUniqueStats(query.start(), query.end(), uriFilter), query);
+            result.forEach(sink);
+            return result.size();
+        } else {
+            return statsCursorReader.streamUniqueStats(query.start(), query.end(), uriFilter,
+                    query.limit(), query.offset(), sink);
+        }
+    }
+
+    private List<ViewStatsDto> loadStats(StatsQuery query) {
+        if (slidingWindowCounters.covers(query)) {
+            // Недавний диапазон складывается из счётчиков в памяти без обращения к БД
+            return slidingWindowCounters.getStats(query);
+        }
+        if (query.isPaged()) {
+            // Страница считается одним SQL-запросом с LIMIT/OFFSET вместо полной выборки
+            List<ViewStatsDto> result = new ArrayList<>();
+            readStats(query, result::add);
+            return result;
+        }
+        List<String> uriFilter = query.uris() == null ? null : List.copyOf(query.uris());
+        if (!query.unique()) {
+            return rollupStatsReader.getStats(query.start(), query.end(), uriFilter);
+        } else if (query.approximate()) {
+            return sketchStatsReader.getUniqueStats(query.start(), query.end(), uriFilter);
+        } else {
+            return fetchUniqueStats(query.start(), query.end(), uriFilter);
+        }
+    }
+
     /**
      * Декодирует URL-кодированную строку с датой и парсит её в LocalDateTime.
      */
     private LocalDateTime parseAndDecodeDateTime(String encodedDateTime, String label) {
         try {
-            String decoded = URLDecoder.decode(encodedDateTime, StandardCharsets.UTF_8);
-            return LocalDateTime.parse(decoded, FORMATTER);
+            return StatsDateTimeFormat.parseUrlEncoded(encodedDateTime);
         } catch (Exception e) {
             log.warn("Ошибка при разборе параметра времени '{}': {}", label, encodedDateTime, e);
             throw new ValidationException("Некорректный формат даты для параметра: " + label);
         }
     }
 
+    /**
+     * Оценки по скетчам считаются в памяти, поэтому страница вырезается из готового списка.
+     */
+    private List<ViewStatsDto> page(List<ViewStatsDto> result, StatsQuery query) {
+        return result.stream()
+                .skip(query.offset())
+                .limit(query.limit() == null ? Long.MAX_VALUE : query.limit())
+                .collect(Collectors.toList());
+    }
+
+    private void validatePage(Integer limit, int offset) {
+        if (limit != null && limit <= 0) {
+            throw new ValidationException("Параметр limit должен быть положительным");
+        }
+        if (offset < 0) {
+            throw new ValidationException("Параметр offset не может быть отрицательным");
+        }
+    }
+
     /**
      * Проверяет, что начальное время не позже конечного.
      */
@@ -89,26 +316,42 @@ public class StatsServiceImpl implements StatsService {
     }
 
     /**
-     * Выполняет запрос к репозиторию в зависимости от флага 'unique'.
+     * Популярные URI по агрегатам, если сводки в памяти отключены ({@code stats.top.enabled=false}).
      */
-    private List<StatsRepository.ViewStatsProjection> fetchStatsFromRepository(
+    private List<ViewStatsDto> fetchTopUris(@Nullable String app, int k, int minutes) {
+        LocalDateTime currentMinute = RollupGranularity.MINUTE.floor(LocalDateTime.now());
+        LocalDateTime start = currentMinute.minusMinutes(minutes - 1);
+        LocalDateTime end = currentMinute.plusMinutes(1).minusSeconds(1);
+        Map<String, List<ViewStatsDto>> byApp = new TreeMap<>();
+        for (ViewStatsDto row : rollupStatsReader.getStats(start, end, null)) {
+            if (app == null || app.equals(row.getApp())) {
+                byApp.computeIfAbsent(row.getApp(), key -> new ArrayList<>()).add(row);
+            }
+        }
+        return byApp.values().stream()
+                .flatMap(rows -> rows.stream()
+                        .sorted(Comparator.comparingLong(ViewStatsDto::getHits).reversed()
+                                .thenComparing(ViewStatsDto::getUri))
+                        .limit(k))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Считает уникальные по IP хиты по таблице хитов.
+     * Уникальность нельзя сложить из корзин, поэтому агрегаты здесь не используются.
+     */
+    private List<ViewStatsDto> fetchUniqueStats(
             LocalDateTime start,
             LocalDateTime end,
-            @Nullable List<String> uris,
-            boolean unique
+            @Nullable List<String> uris
     ) {
-        boolean hasUris = uris != null && !uris.isEmpty();
+        log.debug("Запрос уникальной статистики. Фильтр по URI: {}", uris != null ? uris : "отсутствует");
+        List<StatsRepository.ViewStatsProjection> projections = uris != null
+                ? statsRepository.findUniqueStatsWithUriFilter(start, end, uris)
+                : statsRepository.findUniqueStatsWithoutUriFilter(start, end);
 
-        if (unique) {
-            log.debug("Запрос уникальной статистики. Фильтр по URI: {}", hasUris ? uris : "отсутствует");
-            return hasUris
-                    ? statsRepository.findUniqueStatsWithUriFilter(start, end, uris)
-                    : statsRepository.findUniqueStatsWithoutUriFilter(start, end);
-        } else {
-            log.debug("Запрос полной статистики. Фильтр по URI: {}", hasUris ? uris : "отсутствует");
-            return hasUris
-                    ? statsRepository.findAllStatsWithUriFilter(start, end, uris)
-                    : statsRepository.findAllStatsWithoutUriFilter(start, end);
-        }
+        return projections.stream()
+                .map(EndpointHitMapper::toViewStatsDto)
+                .collect(Collectors.toList());
     }
 }
\ No newline at end of file
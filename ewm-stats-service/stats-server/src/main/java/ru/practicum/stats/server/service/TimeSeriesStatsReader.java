@@ -0,0 +1,150 @@
+package ru.practicum.stats.server.service;
+
+import jakarta.annotation.Nullable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Статистика по корзинам временного ряда одним SQL-запросом.
+ * Неуникальные просмотры складываются из агрегатов {@code hit_rollups} по плану {@link RollupRangePlan}:
+ * корзины агрегатов не крупнее шага ряда переносятся в корзину ряда, в которую они попадают,
+ * а «сырые» края интервала группируются по корзинам ряда прямо в таблице хитов.
+ * Уникальные просмотры считаются {@code COUNT(DISTINCT ip)} по таблице хитов в каждой корзине.
+ */
+@Component
+@Slf4j
+public class TimeSeriesStatsReader {
+
+    private static final Comparator<TimeSeriesStatsDto> ROW_ORDER = Comparator
+            .comparing(TimeSeriesStatsDto::getApp)
+            .thenComparing(TimeSeriesStatsDto::getUri)
+            .thenComparing(TimeSeriesStatsDto::getBucket);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final long maxBuckets;
+
+    public TimeSeriesStatsReader(JdbcTemplate jdbcTemplate,
+                                 HitDictionary hitDictionary,
+                                 @Value("${stats.timeseries.max-buckets:1500}") long maxBuckets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * Наибольшее число корзин в одном запросе: ограничивает размер ответа для длинных интервалов с мелким шагом.
+     */
+    public long maxBuckets() {
+        return maxBuckets;
+    }
+
+    /**
+     * Число корзин шага {@code interval}, которых касается интервал [start, end].
+     */
+    public static long bucketCount(LocalDateTime start, LocalDateTime end, StatsInterval interval) {
+        long step = interval.seconds();
+        long first = Math.floorDiv(EpochSecondsConverter.toEpochSecond(start), step);
+        long last = Math.floorDiv(EpochSecondsConverter.toEpochSecond(end), step);
+        return last - first + 1;
+    }
+
+    /**
+     * Просмотры каждой пары (сервис, URI) по корзинам шага {@code interval} за [start, end].
+     * Корзины без просмотров не возвращаются; крайние корзины учитывают только часть, попавшую в интервал.
+     * Записи упорядочены по сервису, URI и началу корзины.
+     */
+    public List<TimeSeriesStatsDto> getTimeSeries(LocalDateTime start, LocalDateTime end, @Nullable List<String> uris,
+                                                  boolean unique, StatsInterval interval) {
+        List<Integer> uriIds = uris == null ? null : hitDictionary.findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+
+        List<Object> args = new ArrayList<>();
+        String source = unique
+                ? uniqueSource(start, end, uriIds, interval, args)
+                : rollupSource(start, end, uriIds, interval, args);
+        String sql = "SELECT app_id, uri_id, bucket_ts, SUM(hits) AS total FROM (" + source + ") s " +
+                "GROUP BY app_id, uri_id, bucket_ts";
+
+        List<TimeSeriesStatsDto> result = new ArrayList<>();
+        jdbcTemplate.query(sql, rs -> {
+            result.add(new TimeSeriesStatsDto(
+                    hitDictionary.appName(rs.getInt("app_id")),
+                    hitDictionary.uri(rs.getInt("uri_id")),
+                    StatsDateTimeFormat.format(EpochSecondsConverter.fromEpochSecond(rs.getLong("bucket_ts"))),
+                    rs.getLong("total")));
+        }, args.toArray());
+        result.sort(ROW_ORDER);
+        log.debug("Временной ряд получен: шаг={}, {} записей", interval, result.size());
+        return result;
+    }
+
+    private static String rollupSource(LocalDateTime start, LocalDateTime end, @Nullable List<Integer> uriIds,
+                                       StatsInterval interval, List<Object> args) {
+        // Часовые корзины нельзя разделить по минутам, поэтому для поминутного ряда берутся только минутные
+        RollupRangePlan plan = interval == StatsInterval.MINUTE
+                ? RollupRangePlan.of(start, end, RollupGranularity.MINUTE)
+                : RollupRangePlan.of(start, end);
+        List<String> parts = new ArrayList<>();
+        for (RollupRangePlan.BucketSlice slice : plan.bucketSlices()) {
+            args.add(slice.granularity().name());
+            args.add(EpochSecondsConverter.toEpochSecond(slice.firstBucket()));
+            args.add(EpochSecondsConverter.toEpochSecond(slice.lastBucket()));
+            parts.add("SELECT app_id, uri_id, " + bucket("bucket_start", interval) + " AS bucket_ts, hits " +
+                    "FROM hit_rollups WHERE granularity = ? AND bucket_start BETWEEN ? AND ?" + uriFilter(uriIds, args));
+        }
+        for (RollupRangePlan.RawSlice slice : plan.rawSlices()) {
+            args.add(EpochSecondsConverter.toEpochSecond(slice.start()));
+            args.add(EpochSecondsConverter.toEpochSecond(slice.end()));
+            parts.add("SELECT app_id, uri_id, bucket_ts, COUNT(*) AS hits FROM (" +
+                    "SELECT app_id, uri_id, " + bucket("hit_ts", interval) + " AS bucket_ts FROM hits " +
+                    "WHERE hit_ts BETWEEN ? AND ?" + uriFilter(uriIds, args) + ") h " +
+                    "GROUP BY app_id, uri_id, bucket_ts");
+        }
+        return String.join(" UNION ALL ", parts);
+    }
+
+    private static String uniqueSource(LocalDateTime start, LocalDateTime end, @Nullable List<Integer> uriIds,
+                                       StatsInterval interval, List<Object> args) {
+        args.add(EpochSecondsConverter.toEpochSecond(start));
+        args.add(EpochSecondsConverter.toEpochSecond(end));
+        return "SELECT app_id, uri_id, bucket_ts, COUNT(DISTINCT ip) AS hits FROM (" +
+                "SELECT app_id, uri_id, ip, " + bucket("hit_ts", interval) + " AS bucket_ts FROM hits " +
+                "WHERE hit_ts BETWEEN ? AND ?" + uriFilter(uriIds, args) + ") h " +
+                "GROUP BY app_id, uri_id, bucket_ts";
+    }
+
+    /**
+     * Начало корзины ряда для метки времени в секундах; шаг подставляется константой из перечисления.
+     */
+    private static String bucket(String column, StatsInterval interval) {
+        return column + " - MOD(" + column + ", " + interval.seconds() + ")";
+    }
+
+    /**
+     * Условие по URI; идентификаторы добавляются в {@code args} в порядке их плейсхолдеров.
+     */
+    private static String uriFilter(@Nullable List<Integer> uriIds, List<Object> args) {
+        if (uriIds == null) {
+            return "";
+        }
+        args.addAll(uriIds);
+        return " AND uri_id IN (" + String.join(", ", Collections.nCopies(uriIds.size(), "?")) + ")";
+    }
+}
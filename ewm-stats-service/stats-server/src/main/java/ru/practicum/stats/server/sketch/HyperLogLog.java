@@ -0,0 +1,141 @@
+package ru.practicum.stats.server.sketch;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Скетч HyperLogLog для приближённого подсчёта числа уникальных значений.
+ * Используется 2^12 регистров, стандартная относительная ошибка — {@link #STANDARD_ERROR} (около 1,6%).
+ * Скетчи объединяются поэлементным максимумом регистров, поэтому уникальные IP
+ * за интервал считаются слиянием скетчей отдельных часов.
+ * <p>
+ * Сериализованная форма — разреженная (пары «номер регистра, значение» только для ненулевых регистров)
+ * или плотная (все регистры подряд), в зависимости от того, что короче.
+ */
+public class HyperLogLog {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+    private static final byte SPARSE = 0;
+    private static final byte DENSE = 1;
+
+    public static final double STANDARD_ERROR = 1.04 / Math.sqrt(REGISTER_COUNT);
+    public static final int MAX_SERIALIZED_SIZE = REGISTER_COUNT + 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void offer(String value) {
+        offerHash(hash(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Учитывает значение в двоичной форме, например IP-адрес из {@code hits.ip}, без перевода в строку.
+     */
+    public void offer(byte[] value) {
+        offerHash(hash(value));
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+
+        double estimate = ALPHA * REGISTER_COUNT * REGISTER_COUNT / sum;
+        // Для малых мощностей точнее линейный подсчёт по пустым регистрам
+        if (estimate <= 2.5 * REGISTER_COUNT && zeros > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public byte[] toBytes() {
+        int nonZero = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+
+        if (1 + nonZero * 3 >= MAX_SERIALIZED_SIZE) {
+            byte[] bytes = new byte[MAX_SERIALIZED_SIZE];
+            bytes[0] = DENSE;
+            System.arraycopy(registers, 0, bytes, 1, REGISTER_COUNT);
+            return bytes;
+        }
+
+        byte[] bytes = new byte[1 + nonZero * 3];
+        bytes[0] = SPARSE;
+        int pos = 1;
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (registers[i] != 0) {
+                bytes[pos++] = (byte) (i >>> 8);
+                bytes[pos++] = (byte) i;
+                bytes[pos++] = registers[i];
+            }
+        }
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes[0] == DENSE) {
+            byte[] registers = new byte[REGISTER_COUNT];
+            System.arraycopy(bytes, 1, registers, 0, REGISTER_COUNT);
+            return new HyperLogLog(registers);
+        }
+
+        byte[] registers = new byte[REGISTER_COUNT];
+        for (int pos = 1; pos < bytes.length; pos += 3) {
+            int index = ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+            registers[index] = bytes[pos + 2];
+        }
+        return new HyperLogLog(registers);
+    }
+
+    private void offerHash(long hash) {
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        // Сторожевой бит ограничивает ранг, если оставшиеся биты хеша нулевые
+        long rest = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * 64-битный FNV-1a с финальным перемешиванием из MurmurHash3 для равномерного распределения битов.
+     */
+    static long hash(byte[] value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
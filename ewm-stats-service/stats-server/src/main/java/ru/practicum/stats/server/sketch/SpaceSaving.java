@@ -0,0 +1,128 @@
+package ru.practicum.stats.server.sketch;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Сводка Space-Saving для поиска самых частых значений потока в памяти фиксированного размера.
+ * Хранится не больше {@code capacity} счётчиков; новое значение при заполненной сводке вытесняет
+ * значение с наименьшим счётчиком и наследует его счётчик как погрешность.
+ * <p>
+ * Счётчик каждого значения — оценка сверху: истинное число лежит в пределах {@code [count - error, count]}.
+ * Значение с частотой больше {@code N / capacity}, где {@code N} — сумма весов, гарантированно есть в сводке.
+ * Пока различных значений не больше {@code capacity}, счётчики точные.
+ * <p>
+ * Класс не потокобезопасен.
+ */
+public class SpaceSaving {
+
+    private static final Comparator<Counter> MIN_ORDER = Comparator
+            .comparingLong(Counter::count)
+            .thenComparing(Counter::value);
+    private static final Comparator<Counter> TOP_ORDER = Comparator
+            .comparingLong(Counter::count).reversed()
+            .thenComparing(Counter::value);
+
+    private final int capacity;
+    private final Map<String, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(MIN_ORDER);
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость сводки должна быть положительной: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    public void offer(String value) {
+        offer(value, 1);
+    }
+
+    public void offer(String value, long weight) {
+        Counter current = counters.get(value);
+        if (current != null) {
+            byCount.remove(current);
+            put(new Counter(value, current.count() + weight, current.error()));
+        } else if (!isFull()) {
+            put(new Counter(value, weight, 0));
+        } else {
+            Counter evicted = byCount.pollFirst();
+            counters.remove(evicted.value());
+            put(new Counter(value, evicted.count() + weight, evicted.count()));
+        }
+    }
+
+    /**
+     * Объединяет сводки: счётчики одинаковых значений складываются. Значение, отсутствующее в заполненной
+     * сводке, могло встретиться в её потоке не больше её минимального счётчика раз, поэтому этот минимум
+     * добавляется к счётчику и погрешности — счётчик остаётся оценкой сверху.
+     * В результате сохраняются {@code capacity} значений с наибольшими счётчиками.
+     */
+    public static SpaceSaving merge(List<SpaceSaving> summaries, int capacity) {
+        Map<String, long[]> merged = new HashMap<>();
+        for (SpaceSaving summary : summaries) {
+            for (Counter counter : summary.byCount) {
+                long[] total = merged.computeIfAbsent(counter.value(), key -> new long[2]);
+                total[0] += counter.count();
+                total[1] += counter.error();
+            }
+        }
+        for (SpaceSaving summary : summaries) {
+            if (!summary.isFull()) {
+                continue;
+            }
+            long min = summary.byCount.first().count();
+            merged.forEach((value, total) -> {
+                if (!summary.counters.containsKey(value)) {
+                    total[0] += min;
+                    total[1] += min;
+                }
+            });
+        }
+
+        SpaceSaving result = new SpaceSaving(capacity);
+        merged.entrySet().stream()
+                .map(entry -> new Counter(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .sorted(TOP_ORDER)
+                .limit(capacity)
+                .forEach(result::put);
+        return result;
+    }
+
+    /**
+     * Первые {@code k} значений по убыванию счётчика; при равенстве — по значению.
+     */
+    public List<Counter> top(int k) {
+        return byCount.stream()
+                .sorted(TOP_ORDER)
+                .limit(k)
+                .toList();
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    public boolean isEmpty() {
+        return counters.isEmpty();
+    }
+
+    private boolean isFull() {
+        return counters.size() >= capacity;
+    }
+
+    private void put(Counter counter) {
+        counters.put(counter.value(), counter);
+        byCount.add(counter);
+    }
+
+    /**
+     * @param count Оценка числа появлений сверху.
+     * @param error Наибольшее возможное завышение {@code count}.
+     */
+    public record Counter(String value, long count, long error) {
+    }
+}
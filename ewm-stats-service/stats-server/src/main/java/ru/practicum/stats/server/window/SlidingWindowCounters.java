@@ -0,0 +1,420 @@
+package ru.practicum.stats.server.window;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.ingest.HitsWrittenEvent;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Счётчики просмотров за последние минуты и часы в памяти: для каждой пары (сервис, URI) —
+ * кольцевой буфер посекундных счётчиков за {@code stats.window.seconds} секунд
+ * и поминутных за {@code stats.window.minutes} минут.
+ * <p>
+ * Неуникальная статистика за диапазон, целиком лежащий в окне, складывается из счётчиков без обращения к БД:
+ * целые минуты диапазона берутся из поминутного буфера, доли минуты на краях — из посекундного.
+ * Поэтому края диапазона, не выровненные по минуте, должны быть не старше посекундного окна;
+ * остальные запросы выполняются SQL-запросом.
+ * <p>
+ * Счётчики строятся из {@code hit_rollups} и {@code hits} при старте, до того как веб-сервер начнёт принимать
+ * запросы, и дополняются после коммита каждого пакета хитов ({@link HitsWrittenEvent}),
+ * поэтому ответ совпадает с ответом по БД. Хиты с временем дальше минуты в будущем в буферы не попадают;
+ * минуты с такими хитами отвечаются SQL-запросом.
+ * <p>
+ * Память ограничена: отслеживается не больше {@code stats.window.max-pairs} пар, а хиты новых пар сверх лимита
+ * тоже не попадают в буферы, и их минуты отвечаются SQL-запросом, пока {@link #evictIdle} не освободит место.
+ * Посекундный буфер пары (около 5 КБ при окне в 10 минут) создаётся при первом хите в посекундном окне
+ * и освобождается, когда пара выходит из него; поминутный занимает около 3 КБ при окне в 6 часов.
+ */
+@Component
+// Агрегаты, из которых строится состояние, после обновления схемы заполняет HitAggregatesBackfill
+@DependsOn("hitAggregatesBackfill")
+@Slf4j
+public class SlidingWindowCounters {
+
+    private static final long MINUTE = RollupGranularity.MINUTE.seconds();
+    private static final long FUTURE_SLACK_SECONDS = MINUTE;
+    private static final String LOAD_MINUTES_SQL =
+            "SELECT app_id, uri_id, bucket_start, hits FROM hit_rollups WHERE granularity = 'MINUTE' AND bucket_start >= ?";
+    private static final String LOAD_SECONDS_SQL =
+            "SELECT app_id, uri_id, hit_ts, COUNT(*) AS hits FROM hits WHERE hit_ts >= ? GROUP BY app_id, uri_id, hit_ts";
+    // Равные значения упорядочены по идентификаторам словаря, как в SQL-запросе и в колоночном хранилище:
+    // страницы совпадают, каким бы путём ни был получен ответ
+    private static final Comparator<Row> ROW_ORDER = Comparator
+            .comparingLong(Row::hits).reversed()
+            .thenComparingInt(row -> row.pair().appId())
+            .thenComparingInt(row -> row.pair().uriId());
+
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final long windowMinutes;
+    private final int secondSlots;
+    private final int minuteSlots;
+    private final int maxPairs;
+    private final Clock clock;
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final Map<Pair, Counters> counters = new ConcurrentHashMap<>();
+    // Начала минут с хитами, не попавшими в буферы из-за времени в будущем или лимита пар
+    private final NavigableSet<Long> skippedMinutes = new ConcurrentSkipListSet<>();
+    private volatile long coveredSince = Long.MAX_VALUE;
+    private volatile boolean overflowReported;
+
+    @Autowired
+    public SlidingWindowCounters(JdbcTemplate jdbcTemplate,
+                                 HitDictionary hitDictionary,
+                                 @Value("${stats.window.enabled:true}") boolean enabled,
+                                 @Value("${stats.window.seconds:600}") int windowSeconds,
+                                 @Value("${stats.window.minutes:360}") int windowMinutes,
+                                 @Value("${stats.window.max-pairs:10000}") int maxPairs) {
+        this(jdbcTemplate, hitDictionary, enabled, windowSeconds, windowMinutes, maxPairs, Clock.systemDefaultZone());
+    }
+
+    SlidingWindowCounters(JdbcTemplate jdbcTemplate, HitDictionary hitDictionary, boolean enabled,
+                          int windowSeconds, int windowMinutes, int maxPairs, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        this.enabled = enabled;
+        this.windowSeconds = windowSeconds;
+        this.windowMinutes = windowMinutes;
+        // Запас слотов: секунда или минута перезаписывается только после выхода из окна
+        this.secondSlots = windowSeconds + (int) FUTURE_SLACK_SECONDS + 1;
+        this.minuteSlots = windowMinutes + 3;
+        this.maxPairs = maxPairs;
+        this.clock = clock;
+    }
+
+    /**
+     * Заполняет счётчики по агрегатам и хитам окна из БД.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        long now = now();
+        counters.clear();
+        skippedMinutes.clear();
+        jdbcTemplate.query(LOAD_MINUTES_SQL, rs -> {
+            addMinute(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("bucket_start"), rs.getLong("hits"), now);
+        }, minuteWindowStart(now));
+        jdbcTemplate.query(LOAD_SECONDS_SQL, rs -> {
+            addSecond(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getLong("hit_ts"), rs.getLong("hits"), now);
+        }, secondWindowStart(now));
+        markCovered(now);
+        log.info("Счётчики скользящего окна построены: {} пар сервис/URI за {} мс",
+                counters.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public void onHitsWritten(HitsWrittenEvent event) {
+        record(event.hits());
+    }
+
+    /**
+     * Учитывает зафиксированные в БД хиты.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        long now = now();
+        for (EndpointHit hit : hits) {
+            long epochSecond = EpochSecondsConverter.toEpochSecond(hit.getTimestamp());
+            if (epochSecond > now + FUTURE_SLACK_SECONDS) {
+                skippedMinutes.add(RollupGranularity.MINUTE.floor(epochSecond));
+                continue;
+            }
+            boolean inSeconds = epochSecond >= secondWindowStart(now);
+            boolean inMinutes = epochSecond >= minuteWindowStart(now);
+            if (!inSeconds && !inMinutes) {
+                continue;
+            }
+            // Хиты уже записаны, поэтому их значения есть в кэше словаря
+            int appId = hitDictionary.findAppId(hit.getApp());
+            int uriId = hitDictionary.findUriId(hit.getUri());
+            if (appId == HitDictionary.UNKNOWN_ID || uriId == HitDictionary.UNKNOWN_ID) {
+                skippedMinutes.add(RollupGranularity.MINUTE.floor(epochSecond));
+                continue;
+            }
+            add(new Pair(appId, uriId, hit.getApp(), hit.getUri()), epochSecond, 1, inSeconds, inMinutes);
+        }
+    }
+
+    /**
+     * Можно ли ответить на запрос по счётчикам: статистика неуникальная, целые минуты диапазона лежат
+     * в поминутном окне, доли минуты на краях — в посекундном, и в диапазоне нет пропущенных хитов из будущего.
+     */
+    public boolean covers(StatsQuery query) {
+        if (!enabled || query.unique()) {
+            return false;
+        }
+        long now = now();
+        long from = EpochSecondsConverter.toEpochSecond(query.start());
+        long to = Math.min(EpochSecondsConverter.toEpochSecond(query.end()), now + FUTURE_SLACK_SECONDS);
+        if (from < coveredSince) {
+            return false;
+        }
+        Long skipped = skippedMinutes.ceiling(RollupGranularity.MINUTE.floor(from));
+        if (skipped != null && skipped <= EpochSecondsConverter.toEpochSecond(query.end())) {
+            return false;
+        }
+        if (from > to) {
+            return true;
+        }
+        Range range = Range.of(from, to);
+        if (range.hasMinutes() && range.firstMinute() < minuteWindowStart(now)) {
+            return false;
+        }
+        return !range.hasEdges() || from >= secondWindowStart(now);
+    }
+
+    /**
+     * Статистика по запросу, отсортированная по убыванию просмотров, с {@code limit} и {@code offset}.
+     * Запрос должен покрываться окном ({@link #covers}).
+     */
+    public List<ViewStatsDto> getStats(StatsQuery query) {
+        long from = EpochSecondsConverter.toEpochSecond(query.start());
+        long to = Math.min(EpochSecondsConverter.toEpochSecond(query.end()), now() + FUTURE_SLACK_SECONDS);
+        List<Row> result = new ArrayList<>();
+        if (from <= to) {
+            Range range = Range.of(from, to);
+            counters.forEach((pair, pairCounters) -> {
+                if (query.uris() != null && !query.uris().contains(pair.uri())) {
+                    return;
+                }
+                long hits = pairCounters.sum(range);
+                if (hits > 0) {
+                    result.add(new Row(pair, hits));
+                }
+            });
+        }
+        result.sort(ROW_ORDER);
+        return result.stream()
+                .skip(query.offset())
+                .limit(query.limit() == null ? Long.MAX_VALUE : query.limit())
+                .map(row -> new ViewStatsDto(row.pair().app(), row.pair().uri(), row.hits()))
+                .toList();
+    }
+
+    /**
+     * Удаляет пары без хитов в поминутном окне, посекундные буферы пар без хитов в посекундном окне
+     * и устаревшие отметки о пропущенных хитах.
+     */
+    @Scheduled(fixedDelayString = "${stats.window.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long now = now();
+        long windowStart = minuteWindowStart(now);
+        long secondWindowStart = secondWindowStart(now);
+        counters.values().removeIf(pairCounters -> pairCounters.retireIfIdle(windowStart, secondWindowStart));
+        skippedMinutes.headSet(windowStart).clear();
+        overflowReported = false;
+    }
+
+    /**
+     * Сбрасывает счётчики, как после старта на пустой БД.
+     */
+    public void clear() {
+        counters.clear();
+        skippedMinutes.clear();
+        markCovered(now());
+    }
+
+    int pairs() {
+        return counters.size();
+    }
+
+    private void markCovered(long now) {
+        coveredSince = minuteWindowStart(now);
+    }
+
+    private void addMinute(int appId, int uriId, long minute, long hits, long now) {
+        if (minute + MINUTE - 1 > now + FUTURE_SLACK_SECONDS) {
+            skippedMinutes.add(minute);
+            return;
+        }
+        add(pair(appId, uriId), minute, hits, false, true);
+    }
+
+    private void addSecond(int appId, int uriId, long second, long hits, long now) {
+        if (second > now + FUTURE_SLACK_SECONDS) {
+            return;
+        }
+        add(pair(appId, uriId), second, hits, true, false);
+    }
+
+    private Pair pair(int appId, int uriId) {
+        return new Pair(appId, uriId, hitDictionary.appName(appId), hitDictionary.uri(uriId));
+    }
+
+    /**
+     * Счётчики пары, удалённые {@link #evictIdle} между поиском и записью, создаются заново.
+     * Новая пара сверх {@code maxPairs} не заводится (при гонке лимит может быть превышен на число
+     * одновременных записей), а минута хита отмечается пропущенной.
+     */
+    private void add(Pair pair, long epochSecond, long hits, boolean toSeconds, boolean toMinutes) {
+        while (true) {
+            Counters pairCounters = counters.get(pair);
+            if (pairCounters == null) {
+                if (counters.size() >= maxPairs) {
+                    skippedMinutes.add(RollupGranularity.MINUTE.floor(epochSecond));
+                    if (!overflowReported) {
+                        overflowReported = true;
+                        log.warn("Достигнут лимит {} пар сервис/URI скользящего окна, минуты с хитами новых пар "
+                                + "отвечаются SQL-запросом", maxPairs);
+                    }
+                    return;
+                }
+                pairCounters = counters.computeIfAbsent(pair, key -> new Counters());
+            }
+            if (pairCounters.add(epochSecond, hits, toSeconds, toMinutes)) {
+                return;
+            }
+            counters.remove(pair, pairCounters);
+        }
+    }
+
+    private long now() {
+        return EpochSecondsConverter.toEpochSecond(LocalDateTime.now(clock));
+    }
+
+    private long secondWindowStart(long now) {
+        return now - windowSeconds;
+    }
+
+    private long minuteWindowStart(long now) {
+        return RollupGranularity.MINUTE.floor(now) - windowMinutes * MINUTE;
+    }
+
+    /**
+     * Пара (сервис, URI): идентификаторы словаря задают порядок равных значений, имена — ответ.
+     */
+    private record Pair(int appId, int uriId, String app, String uri) {
+    }
+
+    private record Row(Pair pair, long hits) {
+    }
+
+    /**
+     * Диапазон [from, to] в секундах: целые минуты [firstMinute, minutesEnd) и доли минуты по краям.
+     */
+    private record Range(long from, long to, long firstMinute, long minutesEnd) {
+
+        static Range of(long from, long to) {
+            long firstMinute = RollupGranularity.MINUTE.floor(from + MINUTE - 1);
+            long minutesEnd = RollupGranularity.MINUTE.floor(to + 1);
+            return firstMinute < minutesEnd
+                    ? new Range(from, to, firstMinute, minutesEnd)
+                    : new Range(from, to, to + 1, to + 1);
+        }
+
+        boolean hasMinutes() {
+            return firstMinute < minutesEnd;
+        }
+
+        boolean hasEdges() {
+            return from < firstMinute || minutesEnd <= to;
+        }
+    }
+
+    /**
+     * Кольцевые буферы одной пары. Слот хранит номер своей секунды (минуты), поэтому устаревший слот
+     * отличается от пустого без общего «текущего» указателя, а хиты с запозданием попадают в свой слот.
+     * Номера и счётчики хранятся в {@code int}: слот пары занимает 8 байт.
+     * Посекундный буфер создаётся при первом хите в нём и освобождается, когда последний хит выходит из окна.
+     */
+    private final class Counters {
+
+        private int[] secondStamps;
+        private int[] secondCounts;
+        private final int[] minuteStamps = new int[minuteSlots];
+        private final int[] minuteCounts = new int[minuteSlots];
+        private long lastSecond = Long.MIN_VALUE;
+        private long lastSecondInSeconds = Long.MIN_VALUE;
+        private boolean retired;
+
+        /**
+         * @return {@code false}, если счётчики уже удалены из окна.
+         */
+        synchronized boolean add(long epochSecond, long hits, boolean toSeconds, boolean toMinutes) {
+            if (retired) {
+                return false;
+            }
+            if (toSeconds) {
+                if (secondStamps == null) {
+                    secondStamps = new int[secondSlots];
+                    secondCounts = new int[secondSlots];
+                }
+                add(secondStamps, secondCounts, epochSecond, hits);
+                lastSecondInSeconds = Math.max(lastSecondInSeconds, epochSecond);
+            }
+            if (toMinutes) {
+                add(minuteStamps, minuteCounts, epochSecond / MINUTE, hits);
+            }
+            lastSecond = Math.max(lastSecond, epochSecond);
+            return true;
+        }
+
+        synchronized long sum(Range range) {
+            long total = 0;
+            for (long minute = range.firstMinute(); minute < range.minutesEnd(); minute += MINUTE) {
+                total += count(minuteStamps, minuteCounts, minute / MINUTE);
+            }
+            if (secondStamps == null) {
+                return total;
+            }
+            for (long second = range.from(); second <= Math.min(range.to(), range.firstMinute() - 1); second++) {
+                total += count(secondStamps, secondCounts, second);
+            }
+            for (long second = Math.max(range.from(), range.minutesEnd()); second <= range.to(); second++) {
+                total += count(secondStamps, secondCounts, second);
+            }
+            return total;
+        }
+
+        synchronized boolean retireIfIdle(long windowStart, long secondWindowStart) {
+            if (lastSecondInSeconds < secondWindowStart) {
+                secondStamps = null;
+                secondCounts = null;
+            }
+            retired = lastSecond < windowStart;
+            return retired;
+        }
+
+        private static void add(int[] stamps, int[] counts, long index, long hits) {
+            int slot = (int) Math.floorMod(index, (long) stamps.length);
+            if (stamps[slot] != (int) index) {
+                stamps[slot] = (int) index;
+                counts[slot] = 0;
+            }
+            counts[slot] += (int) hits;
+        }
+
+        private static long count(int[] stamps, int[] counts, long index) {
+            int slot = (int) Math.floorMod(index, (long) stamps.length);
+            return stamps[slot] == (int) index ? counts[slot] : 0;
+        }
+    }
+}
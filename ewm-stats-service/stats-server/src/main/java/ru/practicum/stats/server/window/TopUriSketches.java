@@ -0,0 +1,238 @@
+package ru.practicum.stats.server.window;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.ingest.HitsWrittenEvent;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.model.RollupGranularity;
+import ru.practicum.stats.server.model.converter.EpochSecondsConverter;
+import ru.practicum.stats.server.sketch.SpaceSaving;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Самые посещаемые URI каждого сервиса за последние {@code stats.top.window-minutes} минут.
+ * Для каждого сервиса хранится кольцевой буфер поминутных сводок {@link SpaceSaving}
+ * по {@code stats.top.capacity} счётчиков; сводки минут запроса объединяются, и из результата берутся первые K.
+ * Память и время ответа не зависят от числа различных URI и хитов в окне.
+ * <p>
+ * Сводки строятся по поминутным агрегатам при старте и дополняются после коммита каждого пакета хитов
+ * ({@link HitsWrittenEvent}). Пока у сервиса за минуту не больше {@code capacity} различных URI,
+ * счётчики точные; иначе {@code hits} — оценка сверху, а наибольшее завышение — {@code maxOvercount}.
+ */
+@Component
+// Агрегаты, из которых строится состояние, после обновления схемы заполняет HitAggregatesBackfill
+@DependsOn("hitAggregatesBackfill")
+@Slf4j
+public class TopUriSketches {
+
+    private static final long MINUTE = RollupGranularity.MINUTE.seconds();
+    private static final String LOAD_SQL =
+            "SELECT app_id, uri_id, bucket_start, hits FROM hit_rollups WHERE granularity = 'MINUTE' AND bucket_start >= ?";
+
+    private final boolean enabled;
+    private final int windowMinutes;
+    private final int capacity;
+    private final Clock clock;
+    private final JdbcTemplate jdbcTemplate;
+    private final HitDictionary hitDictionary;
+    private final Map<String, AppSketches> apps = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TopUriSketches(JdbcTemplate jdbcTemplate,
+                          HitDictionary hitDictionary,
+                          @Value("${stats.top.enabled:true}") boolean enabled,
+                          @Value("${stats.top.window-minutes:60}") int windowMinutes,
+                          @Value("${stats.top.capacity:100}") int capacity) {
+        this(jdbcTemplate, hitDictionary, enabled, windowMinutes, capacity, Clock.systemDefaultZone());
+    }
+
+    TopUriSketches(JdbcTemplate jdbcTemplate, HitDictionary hitDictionary, boolean enabled,
+                   int windowMinutes, int capacity, Clock clock) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.hitDictionary = hitDictionary;
+        this.enabled = enabled;
+        this.windowMinutes = windowMinutes;
+        this.capacity = capacity;
+        this.clock = clock;
+    }
+
+    /**
+     * Заполняет сводки по поминутным агрегатам окна из БД.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        long currentMinute = currentMinute();
+        apps.clear();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            add(hitDictionary.appName(rs.getInt("app_id")), hitDictionary.uri(rs.getInt("uri_id")),
+                    rs.getLong("bucket_start"), rs.getLong("hits"), currentMinute);
+        }, windowStart(currentMinute, windowMinutes));
+        log.info("Сводки популярных URI построены: {} сервисов за {} мс",
+                apps.size(), (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @TransactionalEventListener
+    public void onHitsWritten(HitsWrittenEvent event) {
+        record(event.hits());
+    }
+
+    /**
+     * Учитывает зафиксированные в БД хиты. Хиты вне окна и из будущих минут не учитываются.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        long currentMinute = currentMinute();
+        for (EndpointHit hit : hits) {
+            long minute = RollupGranularity.MINUTE.floor(EpochSecondsConverter.toEpochSecond(hit.getTimestamp()));
+            add(hit.getApp(), hit.getUri(), minute, 1, currentMinute);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int windowMinutes() {
+        return windowMinutes;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Первые {@code k} URI по числу просмотров за последние {@code minutes} минут, включая текущую,
+     * для сервиса {@code app} или для каждого сервиса, если он не задан.
+     * Сервисы следуют по имени, URI сервиса — по убыванию просмотров.
+     */
+    public List<ViewStatsDto> top(String app, int k, int minutes) {
+        long currentMinute = currentMinute();
+        long from = windowStart(currentMinute, minutes);
+        Map<String, AppSketches> selected = new TreeMap<>();
+        if (app == null) {
+            selected.putAll(apps);
+        } else {
+            AppSketches sketches = apps.get(app);
+            if (sketches != null) {
+                selected.put(app, sketches);
+            }
+        }
+
+        List<ViewStatsDto> result = new ArrayList<>();
+        selected.forEach((appName, sketches) -> {
+            SpaceSaving merged = sketches.merged(from, currentMinute);
+            for (SpaceSaving.Counter counter : merged.top(k)) {
+                Long maxOvercount = counter.error() == 0 ? null : counter.error();
+                result.add(new ViewStatsDto(appName, counter.value(), counter.count(), null, maxOvercount));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Удаляет сервисы без хитов в окне.
+     */
+    @Scheduled(fixedDelayString = "${stats.top.eviction-interval-ms:60000}")
+    public void evictIdle() {
+        long from = windowStart(currentMinute(), windowMinutes);
+        apps.values().removeIf(sketches -> sketches.retireIfIdle(from));
+    }
+
+    /**
+     * Сбрасывает сводки, как после старта на пустой БД.
+     */
+    public void clear() {
+        apps.clear();
+    }
+
+    private void add(String app, String uri, long minute, long hits, long currentMinute) {
+        if (minute > currentMinute || minute < windowStart(currentMinute, windowMinutes)) {
+            return;
+        }
+        // Сводки, удалённые evictIdle между поиском и записью, создаются заново
+        while (true) {
+            AppSketches sketches = apps.computeIfAbsent(app, key -> new AppSketches());
+            if (sketches.add(uri, minute, hits)) {
+                return;
+            }
+            apps.remove(app, sketches);
+        }
+    }
+
+    private long currentMinute() {
+        return RollupGranularity.MINUTE.floor(EpochSecondsConverter.toEpochSecond(LocalDateTime.now(clock)));
+    }
+
+    private static long windowStart(long currentMinute, int minutes) {
+        return currentMinute - (minutes - 1) * MINUTE;
+    }
+
+    /**
+     * Поминутные сводки одного сервиса. Слот хранит начало своей минуты,
+     * поэтому устаревший слот отличается от пустого и переиспользуется при записи новой минуты.
+     */
+    private final class AppSketches {
+
+        private final long[] minutes = new long[windowMinutes];
+        private final SpaceSaving[] summaries = new SpaceSaving[windowMinutes];
+        private long lastMinute = Long.MIN_VALUE;
+        private boolean retired;
+
+        /**
+         * @return {@code false}, если сводки уже удалены.
+         */
+        synchronized boolean add(String uri, long minute, long hits) {
+            if (retired) {
+                return false;
+            }
+            int slot = (int) Math.floorMod(minute / MINUTE, (long) windowMinutes);
+            if (summaries[slot] == null || minutes[slot] != minute) {
+                minutes[slot] = minute;
+                summaries[slot] = new SpaceSaving(capacity);
+            }
+            summaries[slot].offer(uri, hits);
+            lastMinute = Math.max(lastMinute, minute);
+            return true;
+        }
+
+        /**
+         * Объединение сводок минут {@code [from, to]}.
+         */
+        synchronized SpaceSaving merged(long from, long to) {
+            List<SpaceSaving> selected = new ArrayList<>();
+            for (int slot = 0; slot < windowMinutes; slot++) {
+                if (summaries[slot] != null && minutes[slot] >= from && minutes[slot] <= to) {
+                    selected.add(summaries[slot]);
+                }
+            }
+            return SpaceSaving.merge(selected, capacity);
+        }
+
+        synchronized boolean retireIfIdle(long from) {
+            retired = lastMinute < from;
+            return retired;
+        }
+    }
+}
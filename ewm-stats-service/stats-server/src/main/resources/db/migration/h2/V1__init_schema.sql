@@ -0,0 +1,33 @@
+-- Схема для встроенной H2 (тесты и локальный запуск): без секционирования
+
+CREATE TABLE IF NOT EXISTS hits (
+    id            BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app           VARCHAR(100) NOT NULL,
+    uri           VARCHAR(200) NOT NULL,
+    ip            VARCHAR(45)  NOT NULL,
+    hit_timestamp TIMESTAMP    NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_hits_timestamp ON hits (hit_timestamp);
+CREATE INDEX IF NOT EXISTS idx_hits_uri_timestamp ON hits (uri, hit_timestamp);
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    granularity  VARCHAR(10)  NOT NULL,
+    app          VARCHAR(100) NOT NULL,
+    uri          VARCHAR(200) NOT NULL,
+    bucket_start TIMESTAMP    NOT NULL,
+    hits         BIGINT       NOT NULL,
+    PRIMARY KEY (granularity, app, uri, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_rollups_bucket ON hit_rollups (granularity, bucket_start);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    app          VARCHAR(100)    NOT NULL,
+    uri          VARCHAR(200)    NOT NULL,
+    bucket_start TIMESTAMP       NOT NULL,
+    registers    VARBINARY(4097) NOT NULL,
+    PRIMARY KEY (app, uri, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_sketches_bucket ON hit_sketches (bucket_start);
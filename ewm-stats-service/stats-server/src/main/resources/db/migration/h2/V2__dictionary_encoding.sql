@@ -0,0 +1,49 @@
+-- Компактное хранение хитов: сервис и URI — идентификаторы словарей apps и uris,
+-- IP — 4 или 16 байт, время — секунды от эпохи (UTC).
+-- Встроенная H2 не хранит долговременных данных, поэтому таблицы пересоздаются без переноса строк
+
+DROP TABLE IF EXISTS hits;
+DROP TABLE IF EXISTS hit_rollups;
+DROP TABLE IF EXISTS hit_sketches;
+
+CREATE TABLE apps (
+    id   INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE uris (
+    id  INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uri VARCHAR(200) NOT NULL UNIQUE
+);
+
+CREATE TABLE hits (
+    id     BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    app_id INTEGER       NOT NULL,
+    uri_id INTEGER       NOT NULL,
+    ip     VARBINARY(16) NOT NULL,
+    hit_ts BIGINT        NOT NULL
+);
+
+CREATE INDEX idx_hits_ts ON hits (hit_ts);
+CREATE INDEX idx_hits_uri_ts ON hits (uri_id, hit_ts);
+
+CREATE TABLE hit_rollups (
+    granularity  VARCHAR(10) NOT NULL,
+    app_id       INTEGER     NOT NULL,
+    uri_id       INTEGER     NOT NULL,
+    bucket_start BIGINT      NOT NULL,
+    hits         BIGINT      NOT NULL,
+    PRIMARY KEY (granularity, app_id, uri_id, bucket_start)
+);
+
+CREATE INDEX idx_hit_rollups_bucket ON hit_rollups (granularity, bucket_start);
+
+CREATE TABLE hit_sketches (
+    app_id       INTEGER         NOT NULL,
+    uri_id       INTEGER         NOT NULL,
+    bucket_start BIGINT          NOT NULL,
+    registers    VARBINARY(4097) NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket_start)
+);
+
+CREATE INDEX idx_hit_sketches_bucket ON hit_sketches (bucket_start);
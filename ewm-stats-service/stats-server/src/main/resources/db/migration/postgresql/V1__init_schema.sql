@@ -0,0 +1,93 @@
+-- Таблица хитов секционирована по месяцам (RANGE по hit_timestamp).
+-- Запросы по коротким интервалам читают только нужные секции,
+-- а удаление старых данных — это DETACH + DROP секции вместо массового DELETE.
+
+-- Таблица, ранее созданная Hibernate (ddl-auto=update), переносится в секционированную
+DO $$
+BEGIN
+    IF to_regclass('hits') IS NOT NULL THEN
+        ALTER TABLE hits RENAME TO hits_legacy;
+    END IF;
+END
+$$;
+
+CREATE TABLE hits (
+    id            BIGSERIAL,
+    app           VARCHAR(100) NOT NULL,
+    uri           VARCHAR(200) NOT NULL,
+    ip            VARCHAR(45)  NOT NULL,
+    hit_timestamp TIMESTAMP    NOT NULL,
+    PRIMARY KEY (id, hit_timestamp)
+) PARTITION BY RANGE (hit_timestamp);
+
+-- Индексы на секционированной таблице создаются в каждой секции автоматически
+CREATE INDEX idx_hits_timestamp ON hits (hit_timestamp);
+CREATE INDEX idx_hits_uri_timestamp ON hits (uri, hit_timestamp);
+
+-- Страховочная секция для хитов вне заранее созданных месяцев
+CREATE TABLE hits_default PARTITION OF hits DEFAULT;
+
+-- Создаёт секцию hits_YYYY_MM для месяца, если её ещё нет
+CREATE OR REPLACE FUNCTION create_hits_partition(month_start DATE) RETURNS VOID AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF hits FOR VALUES FROM (%L) TO (%L)',
+                   'hits_' || to_char(first_day, 'YYYY_MM'),
+                   first_day,
+                   (first_day + INTERVAL '1 month')::DATE);
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    IF to_regclass('hits_legacy') IS NOT NULL THEN
+        FOR month_start IN
+            SELECT generate_series(date_trunc('month', MIN(hit_timestamp)),
+                                   date_trunc('month', MAX(hit_timestamp)),
+                                   INTERVAL '1 month')::DATE
+            FROM hits_legacy
+        LOOP
+            PERFORM create_hits_partition(month_start);
+        END LOOP;
+
+        INSERT INTO hits (id, app, uri, ip, hit_timestamp)
+        SELECT id, app, uri, ip, hit_timestamp FROM hits_legacy;
+        PERFORM setval(pg_get_serial_sequence('hits', 'id'), COALESCE((SELECT MAX(id) FROM hits_legacy), 0) + 1, false);
+
+        DROP TABLE hits_legacy;
+    END IF;
+
+    -- Текущий месяц и три месяца вперёд; дальше секции создаёт HitPartitionManager
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', now()),
+                               date_trunc('month', now()) + INTERVAL '3 months',
+                               INTERVAL '1 month')::DATE
+    LOOP
+        PERFORM create_hits_partition(month_start);
+    END LOOP;
+END
+$$;
+
+CREATE TABLE IF NOT EXISTS hit_rollups (
+    granularity  VARCHAR(10)  NOT NULL,
+    app          VARCHAR(100) NOT NULL,
+    uri          VARCHAR(200) NOT NULL,
+    bucket_start TIMESTAMP    NOT NULL,
+    hits         BIGINT       NOT NULL,
+    PRIMARY KEY (granularity, app, uri, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_rollups_bucket ON hit_rollups (granularity, bucket_start);
+
+CREATE TABLE IF NOT EXISTS hit_sketches (
+    app          VARCHAR(100) NOT NULL,
+    uri          VARCHAR(200) NOT NULL,
+    bucket_start TIMESTAMP    NOT NULL,
+    registers    BYTEA        NOT NULL,
+    PRIMARY KEY (app, uri, bucket_start)
+);
+
+CREATE INDEX IF NOT EXISTS idx_hit_sketches_bucket ON hit_sketches (bucket_start);
@@ -0,0 +1,136 @@
+-- Компактное хранение хитов: сервис и URI — идентификаторы словарей apps и uris,
+-- IP — 4 или 16 байт, время — секунды от эпохи (UTC). Строка хита сокращается в несколько раз,
+-- а индексы по (uri_id, hit_ts) становятся заметно уже.
+
+CREATE TABLE apps (
+    id   SERIAL PRIMARY KEY,
+    name VARCHAR(100) NOT NULL UNIQUE
+);
+
+CREATE TABLE uris (
+    id  SERIAL PRIMARY KEY,
+    uri VARCHAR(200) NOT NULL UNIQUE
+);
+
+INSERT INTO apps (name) SELECT DISTINCT app FROM hits;
+INSERT INTO uris (uri) SELECT DISTINCT uri FROM hits;
+
+-- Старая таблица и её секции переименовываются, чтобы освободить имена hits_YYYY_MM
+DO $$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'hits'::regclass
+    LOOP
+        EXECUTE format('ALTER TABLE %I RENAME TO %I', partition_name, 'v1_' || partition_name);
+    END LOOP;
+END
+$$;
+
+ALTER TABLE hits RENAME TO hits_v1;
+ALTER INDEX idx_hits_timestamp RENAME TO idx_hits_v1_timestamp;
+ALTER INDEX idx_hits_uri_timestamp RENAME TO idx_hits_v1_uri_timestamp;
+
+CREATE TABLE hits (
+    id     BIGSERIAL,
+    app_id INTEGER NOT NULL,
+    uri_id INTEGER NOT NULL,
+    ip     BYTEA   NOT NULL,
+    hit_ts BIGINT  NOT NULL,
+    CONSTRAINT pk_hits PRIMARY KEY (id, hit_ts)
+) PARTITION BY RANGE (hit_ts);
+
+CREATE INDEX idx_hits_ts ON hits (hit_ts);
+CREATE INDEX idx_hits_uri_ts ON hits (uri_id, hit_ts);
+
+CREATE TABLE hits_default PARTITION OF hits DEFAULT;
+
+-- Имена секций прежние (hits_YYYY_MM), границы — секунды от эпохи начала месяца в UTC
+CREATE OR REPLACE FUNCTION create_hits_partition(month_start DATE) RETURNS VOID AS $$
+DECLARE
+    first_day DATE := date_trunc('month', month_start)::DATE;
+BEGIN
+    EXECUTE format('CREATE TABLE IF NOT EXISTS %I PARTITION OF hits FOR VALUES FROM (%s) TO (%s)',
+                   'hits_' || to_char(first_day, 'YYYY_MM'),
+                   EXTRACT(EPOCH FROM first_day::TIMESTAMP)::BIGINT,
+                   EXTRACT(EPOCH FROM (first_day + INTERVAL '1 month')::TIMESTAMP)::BIGINT);
+END;
+$$ LANGUAGE plpgsql;
+
+-- Текстовый IP в байты; IPv4-mapped адреса приводятся к 4 байтам, как в IpAddresses.
+-- Некорректные значения, принятые до появления проверки IP, сохраняются как 0.0.0.0
+CREATE FUNCTION hits_v1_ip_bytes(ip TEXT) RETURNS BYTEA AS $$
+DECLARE
+    address INET;
+BEGIN
+    address := ip::INET;
+    IF family(address) = 6 AND address << INET '::ffff:0.0.0.0/96' THEN
+        RETURN substring(inet_send(address) FROM 17);
+    END IF;
+    RETURN substring(inet_send(address) FROM 5);
+EXCEPTION WHEN OTHERS THEN
+    RETURN '\x00000000'::BYTEA;
+END;
+$$ LANGUAGE plpgsql IMMUTABLE;
+
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', MIN(hit_timestamp)),
+                               date_trunc('month', MAX(hit_timestamp)),
+                               INTERVAL '1 month')::DATE
+        FROM hits_v1
+    LOOP
+        PERFORM create_hits_partition(month_start);
+    END LOOP;
+
+    FOR month_start IN
+        SELECT generate_series(date_trunc('month', now()),
+                               date_trunc('month', now()) + INTERVAL '3 months',
+                               INTERVAL '1 month')::DATE
+    LOOP
+        PERFORM create_hits_partition(month_start);
+    END LOOP;
+END
+$$;
+
+INSERT INTO hits (id, app_id, uri_id, ip, hit_ts)
+SELECT h.id, a.id, u.id, hits_v1_ip_bytes(h.ip), EXTRACT(EPOCH FROM h.hit_timestamp)::BIGINT
+FROM hits_v1 h
+JOIN apps a ON a.name = h.app
+JOIN uris u ON u.uri = h.uri;
+
+SELECT setval(pg_get_serial_sequence('hits', 'id'), COALESCE((SELECT MAX(id) FROM hits), 0) + 1, false);
+
+DROP TABLE hits_v1;
+DROP FUNCTION hits_v1_ip_bytes(TEXT);
+
+-- Агрегаты пересоздаются пустыми: HitAggregatesBackfill строит их заново при старте
+DROP TABLE hit_rollups;
+DROP TABLE hit_sketches;
+
+CREATE TABLE hit_rollups (
+    granularity  VARCHAR(10) NOT NULL,
+    app_id       INTEGER     NOT NULL,
+    uri_id       INTEGER     NOT NULL,
+    bucket_start BIGINT      NOT NULL,
+    hits         BIGINT      NOT NULL,
+    PRIMARY KEY (granularity, app_id, uri_id, bucket_start)
+);
+
+CREATE INDEX idx_hit_rollups_bucket ON hit_rollups (granularity, bucket_start);
+
+CREATE TABLE hit_sketches (
+    app_id       INTEGER NOT NULL,
+    uri_id       INTEGER NOT NULL,
+    bucket_start BIGINT  NOT NULL,
+    registers    BYTEA   NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket_start)
+);
+
+CREATE INDEX idx_hit_sketches_bucket ON hit_sketches (bucket_start);
@@ -0,0 +1,8 @@
+-- Позиция журнала хитов, до которой хиты уже загружены в БД.
+-- Обновляется в одной транзакции с записью пакета, поэтому после перезапуска хиты не дублируются и не теряются
+
+CREATE TABLE hit_journal_checkpoint (
+    journal        VARCHAR(100) PRIMARY KEY,
+    segment_id     BIGINT       NOT NULL,
+    segment_offset INTEGER      NOT NULL
+);
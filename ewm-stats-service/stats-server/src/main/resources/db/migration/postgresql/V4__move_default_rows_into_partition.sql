@@ -0,0 +1,30 @@
+-- Хиты с меткой времени за пределами созданных секций попадают в hits_default.
+-- CREATE TABLE ... PARTITION OF для их месяца тогда падает: строки секции по умолчанию нарушили бы её границы.
+-- Секция создаётся отдельной таблицей, в неё переносятся строки месяца из hits_default, и только затем
+-- она присоединяется к hits; всё выполняется в одной транзакции вызова функции.
+-- Функция возвращает число перенесённых строк.
+
+DROP FUNCTION create_hits_partition(DATE);
+
+CREATE FUNCTION create_hits_partition(month_start DATE) RETURNS BIGINT AS $$
+DECLARE
+    first_day      DATE   := date_trunc('month', month_start)::DATE;
+    partition_name TEXT   := 'hits_' || to_char(first_day, 'YYYY_MM');
+    range_from     BIGINT := EXTRACT(EPOCH FROM first_day::TIMESTAMP)::BIGINT;
+    range_to       BIGINT := EXTRACT(EPOCH FROM (first_day + INTERVAL '1 month')::TIMESTAMP)::BIGINT;
+    moved          BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN 0;
+    END IF;
+    -- Новые хиты месяца не должны попасть в hits_default между переносом и присоединением секции
+    LOCK TABLE hits_default IN SHARE ROW EXCLUSIVE MODE;
+    EXECUTE format('CREATE TABLE %I (LIKE hits INCLUDING DEFAULTS)', partition_name);
+    EXECUTE format('WITH moved AS (DELETE FROM hits_default WHERE hit_ts >= %s AND hit_ts < %s RETURNING *) ' ||
+                   'INSERT INTO %I SELECT * FROM moved', range_from, range_to, partition_name);
+    GET DIAGNOSTICS moved = ROW_COUNT;
+    EXECUTE format('ALTER TABLE hits ATTACH PARTITION %I FOR VALUES FROM (%s) TO (%s)',
+                   partition_name, range_from, range_to);
+    RETURN moved;
+END;
+$$ LANGUAGE plpgsql;
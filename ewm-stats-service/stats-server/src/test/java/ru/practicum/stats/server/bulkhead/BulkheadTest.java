@@ -0,0 +1,100 @@
+package ru.practicum.stats.server.bulkhead;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.exception.BulkheadFullException;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Модульные тесты для {@link Bulkhead} и {@link StatsBulkheads}.
+ */
+class BulkheadTest {
+
+    private final StatsMetrics statsMetrics = mock(StatsMetrics.class);
+
+    @Test
+    void call_limitReached_rejectsAfterWait() throws Exception {
+        Bulkhead bulkhead = new Bulkhead("query", 1, 10, statsMetrics);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> bulkhead.call(() -> {
+            started.countDown();
+            await(release);
+            return 1;
+        }));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(bulkhead.active()).isEqualTo(1);
+        assertThatThrownBy(() -> bulkhead.call(() -> 2)).isInstanceOf(BulkheadFullException.class);
+        verify(statsMetrics).recordBulkheadRejection("query");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        assertThat(bulkhead.call(() -> 3)).isEqualTo(3);
+    }
+
+    @Test
+    void call_actionThrows_releasesPermit() {
+        Bulkhead bulkhead = new Bulkhead("ingest", 1, 10, statsMetrics);
+
+        assertThatThrownBy(() -> bulkhead.run(() -> {
+            throw new IllegalStateException("ошибка записи");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(bulkhead.active()).isZero();
+        assertThat(bulkhead.call(() -> "ok")).isEqualTo("ok");
+    }
+
+    @Test
+    void queryLimitReached_ingestStillAccepted() {
+        StatsBulkheads bulkheads = new StatsBulkheads(statsMetrics, 1, 10, 1, 10, 1, 10);
+
+        bulkheads.getQuery().run(() -> {
+            assertThatThrownBy(() -> bulkheads.getQuery().call(() -> 1)).isInstanceOf(BulkheadFullException.class);
+            assertThat(bulkheads.getIngest().call(() -> 2)).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void streamLimitReached_ingestAndQueryStillAccepted() {
+        StatsBulkheads bulkheads = new StatsBulkheads(statsMetrics, 1, 10, 1, 10, 1, 10);
+
+        bulkheads.getStream().run(() -> {
+            assertThatThrownBy(() -> bulkheads.getStream().call(() -> 1)).isInstanceOf(BulkheadFullException.class);
+            assertThat(bulkheads.getIngest().call(() -> 2)).isEqualTo(2);
+            assertThat(bulkheads.getQuery().call(() -> 3)).isEqualTo(3);
+        });
+    }
+
+    @Test
+    void connectionPoolSizer_poolSmallerThanLimits_growsPool() {
+        ConnectionPoolSizer sizer = new ConnectionPoolSizer(3, 6, 2, 4);
+        HikariDataSource small = new HikariDataSource();
+        small.setMaximumPoolSize(10);
+        HikariDataSource large = new HikariDataSource();
+        large.setMaximumPoolSize(50);
+
+        sizer.postProcessAfterInitialization(small, "small");
+        sizer.postProcessAfterInitialization(large, "large");
+
+        assertThat(small.getMaximumPoolSize()).isEqualTo(20);
+        assertThat(large.getMaximumPoolSize()).isEqualTo(50);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
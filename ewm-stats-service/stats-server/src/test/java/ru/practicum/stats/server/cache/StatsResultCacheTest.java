@@ -0,0 +1,145 @@
+package ru.practicum.stats.server.cache;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Модульные тесты для {@link StatsResultCache}.
+ */
+class StatsResultCacheTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 11, 23, 10, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2025, 11, 23, 12, 0);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void get_sameNormalizedQuery_loadsOnce() {
+        StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 60_000);
+
+        cache.get(StatsQuery.of(START, END, List.of("/a", "/b"), false, false), this::load);
+        cache.get(StatsQuery.of(START, END, List.of("/b", "/a", "/a"), false, false), this::load);
+
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void invalidate_onlyEntriesWhoseRangeAndUrisContainHit() {
+        StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 60_000);
+        StatsQuery matching = StatsQuery.of(START, END, List.of("/a"), false, false);
+        StatsQuery otherUri = StatsQuery.of(START, END, List.of("/b"), false, false);
+        StatsQuery otherRange = StatsQuery.of(END.plusHours(1), END.plusHours(2), null, false, false);
+        StatsQuery allUris = StatsQuery.of(START, END, null, true, false);
+        List.of(matching, otherUri, otherRange, allUris).forEach(query -> cache.get(query, this::load));
+
+        cache.invalidate(List.of(hit("/a", START.plusMinutes(30))));
+        List.of(matching, otherUri, otherRange, allUris).forEach(query -> cache.get(query, this::load));
+
+        assertThat(loads).hasValue(4 + 2); // перечитаны только matching и allUris
+    }
+
+    @Test
+    void get_invalidatedWhileLoading_resultNotCached() {
+        StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 60_000);
+        StatsQuery query = StatsQuery.of(START, END, null, false, false);
+
+        cache.get(query, () -> {
+            cache.invalidate(List.of(hit("/a", START)));
+            return load();
+        });
+        cache.get(query, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_overMaxSize_evictsLeastRecentlyUsed() {
+        StatsResultCache cache = new StatsResultCache(true, 2, 60_000, 60_000);
+        StatsQuery first = StatsQuery.of(START, END, List.of("/1"), false, false);
+        StatsQuery second = StatsQuery.of(START, END, List.of("/2"), false, false);
+        StatsQuery third = StatsQuery.of(START, END, List.of("/3"), false, false);
+
+        cache.get(first, this::load);
+        cache.get(second, this::load);
+        cache.get(first, this::load); // first становится самым свежим
+        cache.get(third, this::load);
+        cache.get(first, this::load);
+        cache.get(second, this::load);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(loads).hasValue(4); // second вытеснен и загружен повторно
+    }
+
+    @Test
+    void get_expiredEntry_reloads() {
+        StatsResultCache cache = new StatsResultCache(true, 100, 0, 0);
+        StatsQuery query = StatsQuery.of(START, END, null, false, false);
+
+        cache.get(query, this::load);
+        cache.get(query, this::load);
+
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_concurrentMissesOnSameKey_loadOnce() throws Exception {
+        StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 60_000);
+        StatsQuery query = StatsQuery.of(START, END, null, false, false);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<List<ViewStatsDto>> first = CompletableFuture.supplyAsync(() -> cache.get(query, () -> {
+            loading.countDown();
+            await(release);
+            return load();
+        }));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<List<ViewStatsDto>> second = CompletableFuture.supplyAsync(() -> cache.get(query, this::load));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(second.get(5, TimeUnit.SECONDS));
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_loaderFails_errorNotCachedAndNextCallReloads() {
+        StatsResultCache cache = new StatsResultCache(true, 100, 60_000, 60_000);
+        StatsQuery query = StatsQuery.of(START, END, null, false, false);
+
+        assertThatThrownBy(() -> cache.get(query, () -> {
+            throw new IllegalStateException("БД недоступна");
+        })).isInstanceOf(IllegalStateException.class);
+        cache.get(query, this::load);
+
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(loads).hasValue(1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<ViewStatsDto> load() {
+        loads.incrementAndGet();
+        return List.of(new ViewStatsDto("app", "/a", 1L));
+    }
+
+    private EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder().app("app").uri(uri).ip("1.1.1.1").timestamp(timestamp).build();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.stats.server.columnar;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link ColumnarHitStore} без БД: хиты добавляются после «коммита»,
+ * словарь сервисов и URI подменяется заглушкой, где идентификатор URI — его номер.
+ */
+class ColumnarHitStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 11, 23, 10, 0);
+
+    private final HitDictionary hitDictionary = mock(HitDictionary.class);
+    private final MovingClock clock = new MovingClock(NOW);
+    private ColumnarHitStore store;
+
+    @BeforeEach
+    void setUp() {
+        when(hitDictionary.findAppId(anyString())).thenReturn(1);
+        when(hitDictionary.findUriId(anyString())).thenAnswer(call -> Integer.parseInt(call.<String>getArgument(0)
+                .substring("/events/".length())));
+        when(hitDictionary.appName(anyInt())).thenReturn("app");
+        when(hitDictionary.uri(anyInt())).thenAnswer(call -> "/events/" + call.getArgument(0));
+        store = new ColumnarHitStore(mock(DataSource.class), null, hitDictionary, 3, Long.MAX_VALUE, 1000, clock);
+    }
+
+    @Test
+    void evictExpired_dayOutsideWindow_dropsItsPairsAndIps() {
+        store.append(List.of(
+                hit("/events/1", "10.0.0.1", NOW.minusDays(2)),
+                hit("/events/2", "10.0.0.2", NOW.minusDays(2)),
+                hit("/events/3", "10.0.0.3", NOW.minusDays(1)),
+                hit("/events/3", "10.0.0.1", NOW)));
+        assertThat(store.pairCount()).isEqualTo(3);
+        assertThat(store.ipCount()).isEqualTo(3);
+
+        clock.now = NOW.plusDays(1);
+        store.evictExpired();
+
+        assertThat(store.pairCount()).isEqualTo(1);
+        assertThat(store.ipCount()).isEqualTo(2);
+        assertThat(store.rows()).isEqualTo(2);
+        assertThat(store.getStats(StatsQuery.of(NOW.minusDays(1), NOW, null, true, false)))
+                .containsExactly(new ViewStatsDto("app", "/events/3", 2L));
+
+        store.append(List.of(hit("/events/4", "10.0.0.4", clock.now)));
+        assertThat(store.getStats(StatsQuery.of(NOW.minusDays(1), clock.now, null, false, false)))
+                .containsExactly(new ViewStatsDto("app", "/events/3", 2L), new ViewStatsDto("app", "/events/4", 1L));
+    }
+
+    @Test
+    void covers_windowCountedInUtcDays() {
+        clock.now = LocalDateTime.of(2025, 11, 23, 0, 30);
+
+        assertThat(store.covers(LocalDateTime.of(2025, 11, 21, 0, 0))).isTrue();
+        assertThat(store.covers(LocalDateTime.of(2025, 11, 20, 23, 59, 59))).isFalse();
+    }
+
+    private static EndpointHit hit(String uri, String ip, LocalDateTime timestamp) {
+        return EndpointHit.builder().app("app").uri(uri).ip(ip).timestamp(timestamp).build();
+    }
+
+    private static final class MovingClock extends Clock {
+
+        private LocalDateTime now;
+
+        MovingClock(LocalDateTime now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.toInstant(ZoneOffset.UTC);
+        }
+    }
+}
@@ -6,27 +6,44 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.bulkhead.StatsBulkheads;
+import ru.practicum.stats.server.cache.StatsQuery;
 import ru.practicum.stats.server.exception.ValidationException;
+import ru.practicum.stats.server.metrics.StatsMetrics;
 import ru.practicum.stats.server.service.StatsService;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(StatsController.class)
-@TestPropertySource(properties =
-        "logging.level.ru.practicum.stats=DEBUG"
-)
+@Import(StatsBulkheads.class)
+@TestPropertySource(properties = {
+        "logging.level.ru.practicum.stats=DEBUG",
+        "stats.bulkhead.query.max-concurrent=1",
+        "stats.bulkhead.query.max-wait-ms=10"
+})
 class StatsControllerTest {
 
     @Autowired
@@ -35,6 +52,12 @@ class StatsControllerTest {
     @MockBean
     private StatsService statsService;
 
+    @MockBean
+    private StatsMetrics statsMetrics;
+
+    @Autowired
+    private StatsBulkheads statsBulkheads;
+
     @Autowired
     private final ObjectMapper objectMapper;
 
@@ -86,6 +109,82 @@ class StatsControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    // ==================== ТЕСТЫ ДЛЯ /hits ====================
+
+    @Test
+    void hits_validBatch_savesAllAndReturns201() throws Exception {
+
+        List<EndpointHitDto> batch = List.of(
+                new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.1", "2025-11-23 10:00:00"),
+                new EndpointHitDto(null, "test-app", "/events/2", "192.168.1.2", "2025-11-23 10:00:01")
+        );
+
+        mockMvc.perform(post("/hits")
+                        .content(objectMapper.writeValueAsString(batch))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                )
+                .andExpect(status().isCreated())
+                .andExpect(content().string(""));
+
+        verify(statsService).saveHits(argThat(hits ->
+                hits.size() == 2 &&
+                        "/events/1".equals(hits.get(0).getUri()) &&
+                        "/events/2".equals(hits.get(1).getUri())
+        ));
+    }
+
+    // ==================== ТЕСТЫ ДЛЯ /hits/stream ====================
+
+    @Test
+    void hitStream_ndjson_passesRecordsLazilyAndReturns201() throws Exception {
+        List<EndpointHitDto> received = new ArrayList<>();
+        when(statsService.saveHitStream(any())).thenAnswer(invocation -> {
+            Iterator<EndpointHitDto> hits = invocation.getArgument(0);
+            hits.forEachRemaining(received::add);
+            return (long) received.size();
+        });
+
+        String body = String.join("\n",
+                objectMapper.writeValueAsString(
+                        new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.1", "2025-11-23 10:00:00")),
+                objectMapper.writeValueAsString(
+                        new EndpointHitDto(null, "test-app", "/events/2", "192.168.1.2", "2025-11-23 10:00:01")),
+                "",
+                objectMapper.writeValueAsString(
+                        new EndpointHitDto(null, "test-app", "/events/3", "192.168.1.3", "2025-11-23 10:00:02")),
+                "");
+        mockMvc.perform(post("/hits/stream")
+                        .content(body)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                )
+                .andExpect(status().isCreated())
+                .andExpect(content().string(""));
+
+        assertEquals(List.of("/events/1", "/events/2", "/events/3"),
+                received.stream().map(EndpointHitDto::getUri).toList());
+    }
+
+    @Test
+    void hitStream_malformedLine_returns400() throws Exception {
+        when(statsService.saveHitStream(any())).thenAnswer(invocation -> {
+            Iterator<EndpointHitDto> hits = invocation.getArgument(0);
+            hits.forEachRemaining(hit -> { });
+            return 0L;
+        });
+
+        String body = objectMapper.writeValueAsString(
+                new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.1", "2025-11-23 10:00:00"))
+                + "\n" + "{\"app\":\"test-app\",\"uri\":\n";
+        mockMvc.perform(post("/hits/stream")
+                        .content(body)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                )
+                .andExpect(status().isBadRequest());
+    }
+
     // ==================== ТЕСТЫ ДЛЯ /stats ====================
 
     @Test
@@ -95,7 +194,7 @@ class StatsControllerTest {
                 new ViewStatsDto("app1", "/u1", 5L),
                 new ViewStatsDto("app1", "/u2", 3L)
         );
-        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean()))
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
                 .thenReturn(mockStats);
 
         mockMvc.perform(get("/stats")
@@ -114,13 +213,71 @@ class StatsControllerTest {
                 eq("2025-11-23 10:00:00"),
                 eq("2025-11-23 12:00:00"),
                 isNull(),
-                eq(false)
+                eq(false),
+                eq(false),
+                isNull(),
+                eq(0)
+        );
+    }
+
+    @Test
+    void getStatsBatch_validQueries_returnsResultsInOrder() throws Exception {
+        List<StatsBatchQueryDto> queries = List.of(
+                new StatsBatchQueryDto("2025-11-22 10:00:00", "2025-11-23 10:00:00", List.of("/u1"), false),
+                new StatsBatchQueryDto("2025-11-16 10:00:00", "2025-11-23 10:00:00", List.of("/u1"), false));
+        when(statsService.getStatsBatch(queries)).thenReturn(List.of(
+                List.of(new ViewStatsDto("app1", "/u1", 2L)),
+                List.of(new ViewStatsDto("app1", "/u1", 7L))));
+
+        mockMvc.perform(post("/stats/batch")
+                        .content(objectMapper.writeValueAsString(queries))
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(2))
+                .andExpect(jsonPath("$[0][0].hits").value(2))
+                .andExpect(jsonPath("$[1][0].hits").value(7));
+    }
+
+    @Test
+    void getTimeSeries_validParams_returnsBuckets() throws Exception {
+        when(statsService.getTimeSeries(anyString(), anyString(), any(), anyBoolean(), any()))
+                .thenReturn(List.of(new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 10:00:00", 4L)));
+
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                        .param("uris", "/u1")
+                        .param("interval", "HOUR")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1))
+                .andExpect(jsonPath("$[0].bucket").value("2025-11-23 10:00:00"))
+                .andExpect(jsonPath("$[0].hits").value(4));
+
+        verify(statsService).getTimeSeries(
+                eq("2025-11-23 10:00:00"),
+                eq("2025-11-23 12:00:00"),
+                eq(List.of("/u1")),
+                eq(false),
+                eq(StatsInterval.HOUR)
         );
     }
 
+    @Test
+    void getTimeSeries_unknownInterval_returns400() throws Exception {
+        mockMvc.perform(get("/stats/timeseries")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                        .param("interval", "WEEK")
+                )
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(statsService);
+    }
+
     @Test
     void getStats_withUris_filtersCorrectly() throws Exception {
-        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean()))
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
                 .thenReturn(List.of(new ViewStatsDto("app1", "/u1", 2L)));
 
         mockMvc.perform(get("/stats")
@@ -137,10 +294,52 @@ class StatsControllerTest {
                 eq("2025-11-23 10:00:00"),
                 eq("2025-11-23 12:00:00"),
                 argThat(uris -> uris != null && uris.contains("/u1") && uris.contains("/u2")),
-                eq(true)
+                eq(true),
+                eq(false),
+                isNull(),
+                eq(0)
         );
     }
 
+    @Test
+    void getStats_approximate_returnsRelativeError() throws Exception {
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
+                .thenReturn(List.of(new ViewStatsDto("app1", "/u1", 1000L, 0.0163)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                        .param("unique", "true")
+                        .param("approximate", "true")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].hits").value(1000))
+                .andExpect(jsonPath("$[0].relativeError").value(0.0163));
+
+        verify(statsService).getStats(
+                eq("2025-11-23 10:00:00"),
+                eq("2025-11-23 12:00:00"),
+                isNull(),
+                eq(true),
+                eq(true),
+                isNull(),
+                eq(0)
+        );
+    }
+
+    @Test
+    void getStats_exact_omitsRelativeError() throws Exception {
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
+                .thenReturn(List.of(new ViewStatsDto("app1", "/u1", 5L)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].relativeError").doesNotExist());
+    }
+
     @Test
     void getStats_missingStartParam_returns400() throws Exception {
         mockMvc.perform(get("/stats")
@@ -160,12 +359,103 @@ class StatsControllerTest {
     @Test
     void getStats_serviceThrowsValidationException_returns400() throws Exception {
         doThrow(new ValidationException("Дата начала не может быть позже даты окончания"))
-                .when(statsService).getStats(anyString(), anyString(), any(), anyBoolean());
+                .when(statsService).getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt());
 
         mockMvc.perform(get("/stats")
                         .param("start", "2025-11-23 12:00:00")
                         .param("end", "2025-11-23 10:00:00")
                 )
                 .andExpect(status().isBadRequest());
+
+        verify(statsMetrics).recordValidationFailure();
+    }
+
+    @Test
+    void getStats_queryLimitReached_returns503AndHitAccepted() throws Exception {
+        EndpointHitDto dto = new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.1", "2025-11-23 10:00:00");
+        String json = objectMapper.writeValueAsString(dto);
+
+        // Единственное место для запросов статистики занято медленным запросом
+        statsBulkheads.getQuery().call(() -> {
+            try {
+                mockMvc.perform(get("/stats")
+                                .param("start", "2025-11-23 10:00:00")
+                                .param("end", "2025-11-23 12:00:00")
+                        )
+                        .andExpect(status().isServiceUnavailable());
+                mockMvc.perform(post("/hit")
+                                .content(json)
+                                .contentType(MediaType.APPLICATION_JSON)
+                        )
+                        .andExpect(status().isCreated());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            return null;
+        });
+
+        verify(statsService, never()).getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(),
+                anyInt());
+        verify(statsService).saveHit(any(EndpointHitDto.class));
+    }
+
+    @Test
+    void getStats_limitAndOffset_passedToService() throws Exception {
+        when(statsService.getStats(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
+                .thenReturn(List.of(new ViewStatsDto("app1", "/u3", 7L)));
+
+        mockMvc.perform(get("/stats")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                        .param("limit", "10")
+                        .param("offset", "20")
+                )
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()").value(1));
+
+        verify(statsService).getStats(anyString(), anyString(), isNull(), eq(false), eq(false), eq(10), eq(20));
+    }
+
+    // ==================== ТЕСТЫ ДЛЯ /stats/stream ====================
+
+    @Test
+    void streamStats_validParams_writesNdjsonLines() throws Exception {
+        StatsQuery query = StatsQuery.of(LocalDateTime.of(2025, 11, 23, 10, 0), LocalDateTime.of(2025, 11, 23, 12, 0),
+                null, false, false);
+        when(statsService.prepareQuery(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt())).thenReturn(query);
+        doAnswer(invocation -> {
+            Consumer<ViewStatsDto> sink = invocation.getArgument(1);
+            sink.accept(new ViewStatsDto("app", "/events/1", 5L));
+            sink.accept(new ViewStatsDto("app", "/events/2", 3L));
+            return 2;
+        }).when(statsService).streamStats(eq(query), any());
+
+        MvcResult result = mockMvc.perform(get("/stats/stream")
+                        .param("start", "2025-11-23 10:00:00")
+                        .param("end", "2025-11-23 12:00:00")
+                )
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        "{\"app\":\"app\",\"uri\":\"/events/1\",\"hits\":5}\n" +
+                        "{\"app\":\"app\",\"uri\":\"/events/2\",\"hits\":3}\n"));
+    }
+
+    @Test
+    void streamStats_invalidParams_returns400BeforeStreaming() throws Exception {
+        when(statsService.prepareQuery(anyString(), anyString(), any(), anyBoolean(), anyBoolean(), any(), anyInt()))
+                .thenThrow(new ValidationException("Дата начала не может быть позже даты окончания"));
+
+        mockMvc.perform(get("/stats/stream")
+                        .param("start", "2025-11-23 12:00:00")
+                        .param("end", "2025-11-23 10:00:00")
+                )
+                .andExpect(status().isBadRequest());
+
+        verify(statsService, never()).streamStats(any(), any());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,66 @@
+package ru.practicum.stats.server.dictionary;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для кэша промахов {@link HitDictionary} с заглушкой JdbcTemplate вместо БД.
+ */
+class HitDictionaryTest {
+
+    private static final String SELECT_URI_ID = "SELECT id FROM uris WHERE uri = ?";
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<Integer> storedIds = new ArrayList<>();
+
+    @Test
+    void findUriId_repeatedMissWithinTtl_queriesDatabaseOnce() {
+        HitDictionary dictionary = dictionary(60_000);
+
+        assertThat(dictionary.findUriId("/events/1")).isEqualTo(HitDictionary.UNKNOWN_ID);
+        assertThat(dictionary.findUriId("/events/1")).isEqualTo(HitDictionary.UNKNOWN_ID);
+
+        verify(jdbcTemplate, times(1)).queryForList(SELECT_URI_ID, Integer.class, "/events/1");
+    }
+
+    @Test
+    void findUriId_missThenInserted_returnsCreatedId() {
+        HitDictionary dictionary = dictionary(60_000);
+        assertThat(dictionary.findUriId("/events/1")).isEqualTo(HitDictionary.UNKNOWN_ID);
+        when(jdbcTemplate.update(anyString(), eq("/events/1"))).then(call -> {
+            storedIds.add(7);
+            return 1;
+        });
+
+        assertThat(dictionary.uriId("/events/1")).isEqualTo(7);
+        assertThat(dictionary.findUriId("/events/1")).isEqualTo(7);
+    }
+
+    @Test
+    void findUriId_missTtlExpired_queriesDatabaseAgain() {
+        HitDictionary dictionary = dictionary(0);
+
+        dictionary.findUriId("/events/1");
+        storedIds.add(3); // значение создал другой экземпляр сервиса
+
+        assertThat(dictionary.findUriId("/events/1")).isEqualTo(3);
+    }
+
+    private HitDictionary dictionary(long missTtlMs) {
+        when(jdbcTemplate.queryForList(SELECT_URI_ID, Integer.class, "/events/1"))
+                .then(call -> List.copyOf(storedIds));
+        return new HitDictionary(jdbcTemplate, mock(PlatformTransactionManager.class), missTtlMs);
+    }
+}
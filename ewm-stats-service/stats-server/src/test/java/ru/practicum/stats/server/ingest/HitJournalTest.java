@@ -0,0 +1,145 @@
+package ru.practicum.stats.server.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.stats.server.exception.IngestOverloadedException;
+import ru.practicum.stats.server.exception.ValidationException;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Модульные тесты для {@link HitJournal} на файлах во временном каталоге.
+ */
+class HitJournalTest {
+
+    private static final int SEGMENT_BYTES = 64 * 1024;
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 3, 1, 12, 30, 15);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_appendedHits_returnsSameHitsAndNextPosition() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 4, 1)) {
+            journal.append(List.of(hit("/events/1", "192.168.0.1"), hit("/events/2", "2001:db8::1")));
+
+            HitJournal.Batch batch = journal.read(HitJournal.Position.START, 10);
+
+            assertThat(batch.hits())
+                    .extracting(EndpointHit::getUri, EndpointHit::getIp, EndpointHit::getApp, EndpointHit::getTimestamp)
+                    .containsExactly(
+                            tuple("/events/1", "192.168.0.1", "ewm-main-service", TIME),
+                            tuple("/events/2", "2001:db8:0:0:0:0:0:1", "ewm-main-service", TIME));
+            assertThat(journal.read(batch.next(), 10).hits()).isEmpty();
+        }
+    }
+
+    @Test
+    void append_segmentFull_rotatesAndReadsAcrossSegments() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 10, 1)) {
+            List<EndpointHit> hits = hits(3000);
+            journal.append(hits);
+            assertThat(journal.segmentCount()).isGreaterThan(1);
+
+            HitJournal.Batch batch = journal.read(HitJournal.Position.START, 5000);
+            assertThat(batch.hits()).extracting(EndpointHit::getUri)
+                    .containsExactlyElementsOf(hits.stream().map(EndpointHit::getUri).toList());
+
+            journal.deleteBefore(batch.next().segment());
+            assertThat(journal.segmentCount()).isEqualTo(1);
+            assertThat(segmentFiles()).hasSize(1);
+        }
+    }
+
+    @Test
+    void append_journalFull_rejectsWholeBatch() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 1, 1)) {
+            journal.append(hits(10));
+
+            assertThatThrownBy(() -> journal.append(hits(3000)))
+                    .isInstanceOf(IngestOverloadedException.class);
+            assertThat(journal.read(HitJournal.Position.START, 5000).hits()).hasSize(10);
+        }
+    }
+
+    @Test
+    void append_batchNeedsMoreSegmentsThanLeft_rejectedBeforeWrite() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 2, 1)) {
+            // Пакету нужны ещё два сегмента, а свободен один: после первого переключения запись не начинается
+            assertThatThrownBy(() -> journal.append(hits(3000)))
+                    .isInstanceOf(IngestOverloadedException.class);
+            assertThat(journal.segmentCount()).isEqualTo(1);
+            assertThat(journal.read(HitJournal.Position.START, 5000).hits()).isEmpty();
+
+            journal.append(hits(1500));
+            assertThat(journal.segmentCount()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void append_hitWithoutUri_rejectedBeforeWrite() {
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 4, 1)) {
+            assertThatThrownBy(() -> journal.append(List.of(hit("/events/1", "10.0.0.1"), hit(null, "10.0.0.2"))))
+                    .isInstanceOf(ValidationException.class);
+            assertThat(journal.read(HitJournal.Position.START, 10).hits()).isEmpty();
+        }
+    }
+
+    @Test
+    void reopen_afterTornWrite_replaysWholeRecordsFromPosition() throws IOException {
+        HitJournal.Position afterFirst;
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 4, 1)) {
+            journal.append(List.of(hit("/events/1", "10.0.0.1")));
+            afterFirst = journal.read(HitJournal.Position.START, 10).next();
+            journal.append(List.of(hit("/events/2", "10.0.0.2"), hit("/events/3", "10.0.0.3")));
+        }
+        // Сбой посреди записи третьего хита: длина записана, а данные повреждены
+        Path segment = segmentFiles().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            long lastRecord = afterFirst.offset() * 2L;
+            file.seek(lastRecord + 8);
+            file.writeLong(-1);
+        }
+
+        try (HitJournal journal = new HitJournal(directory, SEGMENT_BYTES, 4, afterFirst.segment() + 1)) {
+            journal.append(List.of(hit("/events/4", "10.0.0.4")));
+
+            assertThat(journal.read(afterFirst, 10).hits())
+                    .extracting(EndpointHit::getUri)
+                    .containsExactly("/events/2", "/events/4");
+        }
+    }
+
+    private List<Path> segmentFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().toList();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static List<EndpointHit> hits(int count) {
+        return IntStream.range(0, count).mapToObj(i -> hit("/events/" + i, "10.0.0.1")).toList();
+    }
+
+    private static EndpointHit hit(String uri, String ip) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip(ip)
+                .timestamp(TIME)
+                .build();
+    }
+}
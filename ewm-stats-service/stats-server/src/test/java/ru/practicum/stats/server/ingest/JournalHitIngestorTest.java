@@ -0,0 +1,136 @@
+package ru.practicum.stats.server.ingest;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.service.StatsService;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Интеграционные тесты для {@link JournalHitIngestor} на H2: хиты из журнала доходят до БД,
+ * а позиция журнала фиксируется вместе с ними.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:journal;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "stats.ingest.mode=journal",
+        "stats.ingest.journal.segment-size-bytes=65536",
+        "stats.ingest.journal.poll-interval-ms=10",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class JournalHitIngestorTest {
+
+    @TempDir
+    static Path journalDirectory;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @DynamicPropertySource
+    static void journal(DynamicPropertyRegistry registry) {
+        registry.add("stats.ingest.journal.dir", () -> journalDirectory.toString());
+    }
+
+    @Test
+    void saveHits_acknowledgedByJournal_loadedIntoDatabaseWithCheckpoint() {
+        List<EndpointHitDto> dtos = IntStream.range(0, 2000)
+                .mapToObj(i -> new EndpointHitDto(null, "ewm-main-service", "/events/" + i % 10, "10.0.0.1",
+                        "2025-03-01 12:00:00"))
+                .toList();
+
+        statsService.saveHits(dtos);
+
+        awaitTrue(() -> count("SELECT COUNT(*) FROM hits") == 2000);
+        assertThat(count("SELECT COUNT(*) FROM hit_journal_checkpoint WHERE journal = 'stats-server'")).isEqualTo(1);
+    }
+
+    @Test
+    void loader_databaseUnavailable_retriesAndDoesNotDuplicateAfterRestart(@TempDir Path directory) {
+        List<List<EndpointHit>> written = new CopyOnWriteArrayList<>();
+        int[] failures = {2};
+        HitBatchWriter writer = mock(HitBatchWriter.class);
+        doAnswer(invocation -> {
+            if (failures[0]-- > 0) {
+                throw new DataAccessResourceFailureException("БД недоступна");
+            }
+            written.add(List.copyOf(invocation.getArgument(0)));
+            return null;
+        }).when(writer).writeAll(anyList());
+
+        JournalHitIngestor ingestor = ingestor(writer, directory);
+        ingestor.ingestAll(List.of(hit("/events/1"), hit("/events/2")));
+        awaitTrue(() -> !written.isEmpty());
+        ingestor.shutdown();
+
+        JournalHitIngestor restarted = ingestor(writer, directory);
+        restarted.ingest(hit("/events/3"));
+        restarted.shutdown();
+
+        assertThat(written).flatMap(batch -> batch)
+                .extracting(EndpointHit::getUri)
+                .containsExactly("/events/1", "/events/2", "/events/3");
+    }
+
+    private JournalHitIngestor ingestor(HitBatchWriter writer, Path directory) {
+        JournalHitIngestor ingestor = new JournalHitIngestor(writer, jdbcTemplate, transactionTemplate, directory,
+                "test-" + directory.hashCode(), 65536, 4, 100, 10, 1000, 20);
+        ingestor.start();
+        return ingestor;
+    }
+
+    private long count(String sql) {
+        Long count = jdbcTemplate.queryForObject(sql, Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("условие не выполнилось за 10 с").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static EndpointHit hit(String uri) {
+        return EndpointHit.builder()
+                .app("ewm-main-service")
+                .uri(uri)
+                .ip("10.0.0.1")
+                .timestamp(LocalDateTime.of(2025, 3, 1, 12, 0))
+                .build();
+    }
+}
@@ -0,0 +1,264 @@
+package ru.practicum.stats.server.ingest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import ru.practicum.stats.server.bulkhead.StatsBulkheads;
+import ru.practicum.stats.server.exception.BulkheadFullException;
+import ru.practicum.stats.server.exception.IngestOverloadedException;
+import ru.practicum.stats.server.metrics.StatsMetrics;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Модульные тесты для {@link WriteBehindHitIngestor}.
+ * Вместо БД используется писатель, запоминающий записанные пакеты.
+ */
+class WriteBehindHitIngestorTest {
+
+    private final RecordingWriter writer = new RecordingWriter();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final StatsMetrics statsMetrics = new StatsMetrics(registry);
+    private final StatsBulkheads bulkheads = new StatsBulkheads(statsMetrics, 3, 100, 6, 1000, 2, 1000);
+    private WriteBehindHitIngestor ingestor;
+
+    @AfterEach
+    void tearDown() {
+        writer.release.countDown();
+        ingestor.shutdown();
+    }
+
+    @Test
+    void ingest_manyHits_writtenInBatchesAndDrainedOnShutdown() {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1000, 10, 60_000, BackpressurePolicy.BLOCK, 100, 10_000);
+        writer.release.countDown();
+
+        for (int i = 0; i < 25; i++) {
+            ingestor.ingest(hit("/events/" + i));
+        }
+        ingestor.shutdown();
+
+        assertThat(writer.written()).hasSize(25);
+        assertThat(writer.batchSizes()).allMatch(size -> size <= 10);
+    }
+
+    @Test
+    void ingest_fullBufferWithDropPolicy_dropsHit() throws InterruptedException {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1, 1, 10, BackpressurePolicy.DROP, 100, 10_000);
+
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue(); // писатель занят первым хитом
+        ingestor.ingest(hit("/events/2"));                              // занимает единственное место в буфере
+        ingestor.ingest(hit("/events/3"));                              // буфер полон — хит отброшен
+
+        writer.release.countDown();
+        ingestor.shutdown();
+
+        assertThat(writer.written())
+                .extracting(EndpointHit::getUri)
+                .containsExactly("/events/1", "/events/2");
+        assertThat(registry.get("stats.hits.lost").tag("reason", "dropped").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void ingestAll_batchDoesNotFitWithBlockPolicy_rejectedWhole() throws InterruptedException {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                2, 1, 10, BackpressurePolicy.BLOCK, 10, 10_000);
+
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue();
+        ingestor.ingest(hit("/events/2")); // в буфере остаётся одно свободное место
+
+        assertThatThrownBy(() -> ingestor.ingestAll(List.of(hit("/events/3"), hit("/events/4"))))
+                .isInstanceOf(IngestOverloadedException.class);
+        assertThat(ingestor.pending()).isEqualTo(1);
+
+        writer.release.countDown();
+        ingestor.shutdown();
+        assertThat(writer.written())
+                .extracting(EndpointHit::getUri)
+                .containsExactly("/events/1", "/events/2");
+    }
+
+    @Test
+    void ingestAll_overflowWithCallerRunsPolicy_restWrittenOnceWithConflictRetry() throws InterruptedException {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1, 1, 10, BackpressurePolicy.CALLER_RUNS, 10, 10_000);
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue();
+        ingestor.ingest(hit("/events/2"));
+        AtomicInteger conflicts = new AtomicInteger(1);
+        writer.failure = hits -> !isWriterThread() && conflicts.getAndDecrement() > 0
+                ? new DataIntegrityViolationException("duplicate key value violates unique constraint")
+                : null;
+
+        // Буфер полон: весь пакет пишется в потоке запроса одной транзакцией, конфликт повторяется один раз
+        assertThat(ingestor.ingestAll(List.of(hit("/events/3"), hit("/events/4")))).isEqualTo(2);
+        writer.release.countDown();
+        ingestor.shutdown();
+
+        assertThat(writer.written()).hasSize(4);
+        assertThat(writer.batchSizes()).contains(2);
+    }
+
+    @Test
+    void ingestAll_overflowWithCallerRunsPolicyAndIngestLimitReached_rejected() throws InterruptedException {
+        StatsBulkheads limited = new StatsBulkheads(statsMetrics, 1, 10, 1, 10, 1, 10);
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, limited,
+                1, 1, 10, BackpressurePolicy.CALLER_RUNS, 10, 10_000);
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Лимит приёма занят: хит, поставленный в буфер, принимается, а остаток для записи в потоке запроса — нет
+        limited.getIngest().run(() -> {
+            assertThat(ingestor.ingest(hit("/events/2"))).isTrue();
+            assertThatThrownBy(() -> ingestor.ingest(hit("/events/3"))).isInstanceOf(BulkheadFullException.class);
+        });
+        writer.release.countDown();
+        ingestor.shutdown();
+
+        assertThat(writer.written()).extracting(EndpointHit::getUri).containsExactly("/events/1", "/events/2");
+    }
+
+    @Test
+    void ingest_fullBufferWithBlockPolicy_throwsAfterTimeout() throws InterruptedException {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1, 1, 10, BackpressurePolicy.BLOCK, 10, 10_000);
+
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue();
+        ingestor.ingest(hit("/events/2"));
+
+        assertThatThrownBy(() -> ingestor.ingest(hit("/events/3")))
+                .isInstanceOf(IngestOverloadedException.class);
+    }
+
+    @Test
+    void ingest_fullBufferWithCallerRunsPolicy_writesSynchronously() throws InterruptedException {
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1, 1, 10, BackpressurePolicy.CALLER_RUNS, 10, 10_000);
+
+        ingestor.ingest(hit("/events/1"));
+        assertThat(writer.started.await(5, TimeUnit.SECONDS)).isTrue();
+        ingestor.ingest(hit("/events/2"));
+        writer.release.countDown();
+        ingestor.ingest(hit("/events/3"));
+        ingestor.shutdown();
+
+        assertThat(writer.written()).hasSize(3);
+    }
+
+    @Test
+    void flush_databaseUnavailable_retriesUntilWritten() {
+        AtomicInteger failures = new AtomicInteger(2);
+        writer.failure = hits -> failures.getAndDecrement() > 0
+                ? new CannotGetJdbcConnectionException("Connection refused")
+                : null;
+        writer.release.countDown();
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1000, 10, 10, BackpressurePolicy.BLOCK, 100, 10);
+
+        for (int i = 0; i < 5; i++) {
+            ingestor.ingest(hit("/events/" + i));
+        }
+
+        // Повторы идут, пока приложение работает, поэтому остановка ждёт записи
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (writer.written().size() < 5 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(writer.written()).hasSize(5);
+        assertThat(failures.get()).isNegative();
+        assertThat(registry.find("stats.hits.lost").counter()).isNull();
+    }
+
+    @Test
+    void flush_invalidHit_onlyInvalidHitLost() {
+        writer.failure = hits -> hits.stream().anyMatch(hit -> hit.getUri().equals("/events/7"))
+                ? new DataIntegrityViolationException("value too long")
+                : null;
+        writer.release.countDown();
+        ingestor = new WriteBehindHitIngestor(writer, statsMetrics, bulkheads,
+                1000, 10, 60_000, BackpressurePolicy.BLOCK, 100, 10);
+
+        for (int i = 0; i < 10; i++) {
+            ingestor.ingest(hit("/events/" + i));
+        }
+        ingestor.shutdown();
+
+        assertThat(writer.written())
+                .extracting(EndpointHit::getUri)
+                .hasSize(9)
+                .doesNotContain("/events/7");
+        assertThat(registry.get("stats.hits.lost").tag("reason", "rejected").counter().count()).isEqualTo(1);
+    }
+
+    private static boolean isWriterThread() {
+        return Thread.currentThread().getName().equals("stats-hit-writer");
+    }
+
+    private EndpointHit hit(String uri) {
+        return new EndpointHit(null, "app", uri, "1.1.1.1", LocalDateTime.of(2025, 11, 23, 10, 0));
+    }
+
+    /**
+     * Писатель, поток которого блокируется на первом пакете, пока тест не разрешит продолжить,
+     * и отклоняет пакеты, для которых {@code failure} возвращает ошибку.
+     */
+    private static class RecordingWriter extends HitBatchWriter {
+
+        private final List<List<EndpointHit>> batches = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private volatile Function<List<EndpointHit>, RuntimeException> failure = hits -> null;
+
+        RecordingWriter() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public void writeAll(List<EndpointHit> hits) {
+            if (isWriterThread()) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            RuntimeException error = failure.apply(hits);
+            if (error != null) {
+                throw error;
+            }
+            batches.add(new ArrayList<>(hits));
+        }
+
+        List<EndpointHit> written() {
+            synchronized (batches) {
+                return batches.stream().flatMap(List::stream).toList();
+            }
+        }
+
+        List<Integer> batchSizes() {
+            synchronized (batches) {
+                return batches.stream().map(List::size).toList();
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.stats.server.model.converter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Модульные тесты для {@link IpAddresses}.
+ */
+class IpAddressesTest {
+
+    @Test
+    void toBytes_ipv4_fourBytesRoundTrip() {
+        byte[] bytes = IpAddresses.toBytes("192.168.1.10");
+
+        assertThat(bytes).containsExactly(192, 168, 1, 10);
+        assertThat(IpAddresses.toString(bytes)).isEqualTo("192.168.1.10");
+    }
+
+    @Test
+    void toBytes_ipv6_sixteenBytesAndMappedIpv4AsFour() {
+        assertThat(IpAddresses.toBytes("2001:db8::1")).hasSize(16);
+        assertThat(IpAddresses.toBytes("::ffff:10.0.0.1")).containsExactly(10, 0, 0, 1);
+    }
+
+    @Test
+    void toBytes_invalid_throwsIllegalArgumentException() {
+        assertThatThrownBy(() -> IpAddresses.toBytes("256.1.1.1")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IpAddresses.toBytes("1.2.3")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> IpAddresses.toBytes("localhost")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,56 @@
+package ru.practicum.stats.server.partition;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link HitPartitionManager} с заглушкой JdbcTemplate вместо PostgreSQL.
+ */
+class HitPartitionManagerTest {
+
+    // В Москве уже январь, по UTC ещё декабрь
+    private static final Instant NEW_YEAR_EVE = Instant.parse("2025-12-31T22:30:00Z");
+
+    private final JdbcTemplate jdbcTemplate = postgres();
+
+    @Test
+    void maintain_jvmZoneAheadOfUtc_monthsCountedInUtc() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class)))
+                .thenReturn(List.of("hits_2025_09", "hits_2025_10", "hits_default"));
+        HitPartitionManager manager = new HitPartitionManager(jdbcTemplate, 1, 2,
+                Clock.fixed(NEW_YEAR_EVE, ZoneId.of("Europe/Moscow")));
+
+        manager.maintain();
+
+        verify(jdbcTemplate).queryForObject("SELECT create_hits_partition(?)", Long.class,
+                Date.valueOf("2025-12-01"));
+        verify(jdbcTemplate).queryForObject("SELECT create_hits_partition(?)", Long.class,
+                Date.valueOf("2026-01-01"));
+        verify(jdbcTemplate, never()).queryForObject("SELECT create_hits_partition(?)", Long.class,
+                Date.valueOf("2026-02-01"));
+        verify(jdbcTemplate).execute("DROP TABLE hits_2025_09");
+        verify(jdbcTemplate, never()).execute("DROP TABLE hits_2025_10");
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JdbcTemplate postgres() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class))).thenReturn(Boolean.TRUE);
+        return jdbcTemplate;
+    }
+}
@@ -0,0 +1,203 @@
+package ru.practicum.stats.server.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Регрессионные замеры четырёх запросов статистики {@link StatsRepository} на больших объёмах данных.
+ * <p>
+ * База H2 в файле под {@code target/} заполняется {@code stats.perf.hits} синтетическими хитами
+ * (по умолчанию 1 000 000) за {@value #PERIOD_DAYS} дней. Популярность URI подчиняется степенному закону:
+ * номер URI равен {@code floor(uriCount^u)} для равномерного {@code u}, то есть вероятность пропорциональна
+ * {@code 1/номер} (распределение Ципфа). IP выбираются из пула {@code stats.perf.ips} адресов.
+ * <p>
+ * Каждый запрос выполняется для нескольких ширин диапазона и размеров списка URI; медиана замеров
+ * сравнивается с бюджетом, пропорциональным числу хитов. Бюджеты умножаются на {@code stats.perf.budget-scale}
+ * для более медленных машин. Запуск: {@code mvn -Pperformance test -Dstats.perf.hits=50000000}.
+ */
+@Tag("performance")
+@Slf4j
+@SpringBootTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestPropertySource(properties = {
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "stats.ingest.mode=direct",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class StatsRepositoryPerformanceTest {
+
+    private static final long HITS = Long.getLong("stats.perf.hits", 1_000_000);
+    private static final int URIS = Integer.getInteger("stats.perf.uris", 10_000);
+    private static final int IPS = Integer.getInteger("stats.perf.ips", 100_000);
+    private static final double BUDGET_SCALE = Double.parseDouble(System.getProperty("stats.perf.budget-scale", "1"));
+    private static final int RUNS = 3;
+    private static final int PERIOD_DAYS = 90;
+    private static final LocalDateTime FIRST_DAY = LocalDateTime.of(2025, 1, 1, 0, 0, 0);
+    private static final String APP = "ewm-main-service";
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void dataSource(DynamicPropertyRegistry registry) {
+        // Отдельный файл на каждый запуск: десятки миллионов строк не помещаются в памяти mem-базы,
+        // OPTIMIZE_REUSE_RESULTS=FALSE не даёт H2 вернуть сохранённый результат повторного запроса
+        registry.add("spring.datasource.url", () -> "jdbc:h2:file:./target/stats-perf/stats-" + System.nanoTime()
+                + ";OPTIMIZE_REUSE_RESULTS=FALSE");
+    }
+
+    @BeforeAll
+    void seed() {
+        long startedAt = System.nanoTime();
+        long firstSecond = FIRST_DAY.toEpochSecond(ZoneOffset.UTC);
+
+        jdbcTemplate.update("INSERT INTO apps (name) VALUES (?)", APP);
+        jdbcTemplate.update("INSERT INTO uris (uri) SELECT '/events/' || X FROM SYSTEM_RANGE(1, ?)", URIS);
+        Integer appId = jdbcTemplate.queryForObject("SELECT id FROM apps WHERE name = ?", Integer.class, APP);
+        Integer firstUriId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM uris", Integer.class);
+
+        // Порциями, чтобы одна транзакция не держала в памяти все вставляемые строки
+        long chunk = 1_000_000;
+        for (long from = 1; from <= HITS; from += chunk) {
+            jdbcTemplate.update("INSERT INTO hits (app_id, uri_id, ip, hit_ts) " +
+                            "SELECT ?, ? + CAST(FLOOR(POWER(?, RAND())) AS INT) - 1, " +
+                            "CAST(CAST(FLOOR(RAND() * ?) AS INT) + 167772160 AS BINARY(4)), " +
+                            "? + CAST(FLOOR(RAND() * ?) AS BIGINT) " +
+                            "FROM SYSTEM_RANGE(?, ?)",
+                    appId, firstUriId, URIS, IPS, firstSecond, PERIOD_DAYS * 86_400L, from,
+                    Math.min(HITS, from + chunk - 1));
+        }
+        jdbcTemplate.execute("ANALYZE");
+
+        log.info("База заполнена: {} хитов, {} URI, {} IP за {} с", HITS, URIS, IPS,
+                Duration.ofNanos(System.nanoTime() - startedAt).toSeconds());
+    }
+
+    @AfterAll
+    void dropDatabase() {
+        jdbcTemplate.execute("DROP ALL OBJECTS DELETE FILES");
+    }
+
+    static Stream<Arguments> queries() {
+        return Arrays.stream(RangeWidth.values()).flatMap(range -> Stream.of(
+                Arguments.of(QueryShape.ALL, range, 0),
+                Arguments.of(QueryShape.UNIQUE, range, 0),
+                Arguments.of(QueryShape.ALL_WITH_URIS, range, 1),
+                Arguments.of(QueryShape.ALL_WITH_URIS, range, 10),
+                Arguments.of(QueryShape.ALL_WITH_URIS, range, 100),
+                Arguments.of(QueryShape.UNIQUE_WITH_URIS, range, 1),
+                Arguments.of(QueryShape.UNIQUE_WITH_URIS, range, 10),
+                Arguments.of(QueryShape.UNIQUE_WITH_URIS, range, 100)));
+    }
+
+    @ParameterizedTest(name = "{0}, {1}, uris={2}")
+    @MethodSource("queries")
+    void query_staysWithinLatencyBudget(QueryShape shape, RangeWidth range, int uriCount) {
+        LocalDateTime start = FIRST_DAY.plusDays(PERIOD_DAYS / 2).plusSeconds(17);
+        LocalDateTime end = start.plus(range.width);
+        // Самые популярные URI — худший случай для фильтра
+        List<String> uris = IntStream.rangeClosed(1, uriCount).mapToObj(i -> "/events/" + i).toList();
+
+        shape.run(statsRepository, start, end, uris);
+        long[] runs = new long[RUNS];
+        int rows = 0;
+        for (int i = 0; i < RUNS; i++) {
+            long startedAt = System.nanoTime();
+            rows = shape.run(statsRepository, start, end, uris).size();
+            runs[i] = System.nanoTime() - startedAt;
+        }
+        Arrays.sort(runs);
+        Duration median = Duration.ofNanos(runs[RUNS / 2]);
+        Duration budget = shape.budget(range);
+
+        log.info("{}, {}, uris={}: медиана {} мс (бюджет {} мс), строк {}", shape, range, uriCount,
+                median.toMillis(), budget.toMillis(), rows);
+        assertThat(rows).isPositive();
+        assertThat(median)
+                .as("%s, %s, uris=%d: медиана превысила бюджет", shape, range, uriCount)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    enum RangeWidth {
+        HOUR(Duration.ofHours(1)),
+        DAY(Duration.ofDays(1)),
+        MONTH(Duration.ofDays(30));
+
+        private final Duration width;
+
+        RangeWidth(Duration width) {
+            this.width = width;
+        }
+
+        /**
+         * Ожидаемая доля хитов в диапазоне.
+         */
+        double share() {
+            return (double) width.toSeconds() / Duration.ofDays(PERIOD_DAYS).toSeconds();
+        }
+    }
+
+    enum QueryShape {
+        // Бюджеты взяты с запасом в 2–3 раза от медиан на 1 млн хитов (H2 в файле).
+        // Для фильтра по URI постоянная часть больше: самые популярные URI читаются по индексу целиком
+        ALL(300, 30_000),
+        UNIQUE(300, 40_000),
+        ALL_WITH_URIS(1_500, 9_000),
+        UNIQUE_WITH_URIS(1_500, 12_000);
+
+        /**
+         * Постоянная часть бюджета, мс.
+         */
+        private final long baseMs;
+        /**
+         * Бюджет на каждый миллион хитов в диапазоне запроса, мс.
+         */
+        private final long perMillionMs;
+
+        QueryShape(long baseMs, long perMillionMs) {
+            this.baseMs = baseMs;
+            this.perMillionMs = perMillionMs;
+        }
+
+        Duration budget(RangeWidth range) {
+            double millionsInRange = HITS * range.share() / 1_000_000;
+            return Duration.ofMillis(Math.round((baseMs + perMillionMs * millionsInRange) * BUDGET_SCALE));
+        }
+
+        List<StatsRepository.ViewStatsProjection> run(StatsRepository repository, LocalDateTime start,
+                                                      LocalDateTime end, List<String> uris) {
+            return switch (this) {
+                case ALL -> repository.findAllStatsWithoutUriFilter(start, end);
+                case UNIQUE -> repository.findUniqueStatsWithoutUriFilter(start, end);
+                case ALL_WITH_URIS -> repository.findAllStatsWithUriFilter(start, end, uris);
+                case UNIQUE_WITH_URIS -> repository.findUniqueStatsWithUriFilter(start, end, uris);
+            };
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package ru.practicum.stats.server.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsResultCache;
+import ru.practicum.stats.server.columnar.ColumnarHitStore;
+import ru.practicum.stats.server.exception.ValidationException;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+import ru.practicum.stats.server.repository.HitSketchRepository;
+import ru.practicum.stats.server.repository.StatsRepository;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Интеграционные тесты для {@link ColumnarStatsService}: ответы колоночного хранилища сверяются
+ * с {@link StatsServiceImpl} на тех же данных в H2.
+ * Порог параллельного подсчёта снижен до одной строки, чтобы проверялся и параллельный путь.
+ */
+@SpringBootTest
+@TestPropertySource(properties = {
+        "spring.datasource.url=jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "stats.ingest.mode=direct",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "stats.engine=columnar",
+        "stats.columnar.retention-days=31",
+        "stats.columnar.parallel-threshold=1"
+})
+class ColumnarStatsServiceTest {
+
+    private static final LocalDateTime YESTERDAY = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).minusDays(1);
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private StatsServiceImpl statsServiceImpl;
+
+    @Autowired
+    private ColumnarHitStore columnarHitStore;
+
+    @Autowired
+    private StatsRepository statsRepository;
+
+    @Autowired
+    private HitRollupRepository hitRollupRepository;
+
+    @Autowired
+    private HitSketchRepository hitSketchRepository;
+
+    @Autowired
+    private StatsResultCache statsResultCache;
+
+    @BeforeEach
+    void setUp() {
+        statsRepository.deleteAll();
+        hitRollupRepository.deleteAll();
+        hitSketchRepository.deleteAll();
+        statsResultCache.clear();
+        columnarHitStore.load(); // таблицы очищены в обход записи хитов
+    }
+
+    @AfterEach
+    void tearDown() {
+        statsRepository.deleteAll();
+        hitRollupRepository.deleteAll();
+        hitSketchRepository.deleteAll();
+    }
+
+    @Test
+    void statsService_columnarEngineSelected() {
+        assertThat(statsService).isInstanceOf(ColumnarStatsService.class);
+    }
+
+    @Test
+    void getStats_recentHits_matchesDatabaseEngine() {
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            hits.add(hit("app-" + (i % 2), "/events/" + (i % 7), "10.0.0." + (i % 13),
+                    YESTERDAY.plusMinutes(i * 11L)));
+        }
+        statsService.saveHits(hits);
+
+        String dayStart = format(YESTERDAY);
+        String dayEnd = format(YESTERDAY.plusDays(2));
+        String evening = format(YESTERDAY.plusHours(18).plusSeconds(30));
+        List<String> uris = List.of("/events/1", "/events/4", "/missing");
+
+        for (boolean unique : new boolean[]{false, true}) {
+            assertSameStats(dayStart, dayEnd, null, unique, null, 0);
+            assertSameStats(dayStart, evening, null, unique, null, 0);
+            assertSameStats(evening, dayEnd, uris, unique, null, 0);
+            assertSameStats(dayStart, dayEnd, null, unique, 3, 2);
+        }
+    }
+
+    @Test
+    void getStats_approximate_answeredExactly() {
+        statsService.saveHits(List.of(
+                hit("app", "/events/1", "10.0.0.1", YESTERDAY.plusHours(1)),
+                hit("app", "/events/1", "10.0.0.1", YESTERDAY.plusHours(2)),
+                hit("app", "/events/1", "10.0.0.2", YESTERDAY.plusHours(3))));
+
+        List<ViewStatsDto> stats = statsService.getStats(format(YESTERDAY), format(YESTERDAY.plusDays(1)),
+                null, true, true);
+
+        assertThat(stats).containsExactly(new ViewStatsDto("app", "/events/1", 2L));
+    }
+
+    @Test
+    void getStats_rangeBeforeWindow_answeredFromDatabase() {
+        LocalDateTime longAgo = YESTERDAY.minusDays(60);
+        statsService.saveHits(List.of(
+                hit("app", "/events/1", "10.0.0.1", longAgo),
+                hit("app", "/events/1", "10.0.0.2", YESTERDAY)));
+
+        List<ViewStatsDto> stats = statsService.getStats(format(longAgo.minusDays(1)), format(YESTERDAY.plusDays(1)),
+                null, false);
+
+        assertThat(stats).containsExactly(new ViewStatsDto("app", "/events/1", 2L));
+    }
+
+    @Test
+    void getStatsBatch_recentAndOldQueries_matchDatabaseEngine() {
+        LocalDateTime longAgo = YESTERDAY.minusDays(60);
+        statsService.saveHits(List.of(
+                hit("app", "/events/1", "10.0.0.1", longAgo),
+                hit("app", "/events/1", "10.0.0.2", YESTERDAY.plusHours(1)),
+                hit("app", "/events/2", "10.0.0.2", YESTERDAY.plusHours(2))));
+        List<StatsBatchQueryDto> queries = List.of(
+                new StatsBatchQueryDto(format(longAgo.minusDays(1)), format(YESTERDAY.plusDays(1)), null, false),
+                new StatsBatchQueryDto(format(YESTERDAY), format(YESTERDAY.plusDays(1)), List.of("/events/2"), false),
+                new StatsBatchQueryDto(format(longAgo.minusDays(1)), format(YESTERDAY.plusDays(1)),
+                        List.of("/events/1"), true));
+
+        List<List<ViewStatsDto>> results = statsService.getStatsBatch(queries);
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0)).containsExactlyInAnyOrder(
+                new ViewStatsDto("app", "/events/1", 2L), new ViewStatsDto("app", "/events/2", 1L));
+        assertThat(results.get(1)).containsExactly(new ViewStatsDto("app", "/events/2", 1L));
+        assertThat(results.get(2)).containsExactly(new ViewStatsDto("app", "/events/1", 2L));
+    }
+
+    @Test
+    void getStatsBatch_emptyOrOversizedBatch_throwsValidationException() {
+        StatsBatchQueryDto query = new StatsBatchQueryDto(format(YESTERDAY), format(YESTERDAY.plusDays(1)), null, false);
+
+        assertThatThrownBy(() -> statsService.getStatsBatch(List.of()))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> statsService.getStatsBatch(
+                Collections.nCopies(StatsServiceImpl.MAX_BATCH_QUERIES + 1, query)))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void load_rebuildsSameStatsFromDatabase() {
+        statsService.saveHits(List.of(
+                hit("app", "/events/1", "10.0.0.1", YESTERDAY.plusHours(1)),
+                hit("app", "/events/2", "10.0.0.2", YESTERDAY.plusHours(2)),
+                hit("app", "/events/2", "10.0.0.3", YESTERDAY.plusHours(3))));
+        String start = format(YESTERDAY);
+        String end = format(YESTERDAY.plusDays(1));
+        List<ViewStatsDto> appended = statsService.getStats(start, end, null, false);
+
+        columnarHitStore.load();
+
+        assertThat(statsService.getStats(start, end, null, false))
+                .isEqualTo(appended)
+                .containsExactly(new ViewStatsDto("app", "/events/2", 2L), new ViewStatsDto("app", "/events/1", 1L));
+    }
+
+    private void assertSameStats(String start, String end, List<String> uris, boolean unique, Integer limit,
+                                 int offset) {
+        List<ViewStatsDto> expected = statsServiceImpl.getStats(start, end, uris, unique, false, limit, offset);
+        List<ViewStatsDto> actual = statsService.getStats(start, end, uris, unique, false, limit, offset);
+
+        String description = String.format("start=%s, end=%s, uris=%s, unique=%s, limit=%s, offset=%d",
+                start, end, uris, unique, limit, offset);
+        assertThat(expected).isNotEmpty();
+        assertThat(actual).as(description).isSortedAccordingTo(Comparator.comparing(ViewStatsDto::getHits).reversed());
+        if (limit == null) {
+            // Без страницы порядок равных по просмотрам записей в БД не определён
+            assertThat(actual).as(description).containsExactlyInAnyOrderElementsOf(expected);
+        } else {
+            assertThat(actual).as(description).isEqualTo(expected);
+        }
+    }
+
+    private static EndpointHitDto hit(String app, String uri, String ip, LocalDateTime timestamp) {
+        return new EndpointHitDto(null, app, uri, ip, format(timestamp));
+    }
+
+    private static String format(LocalDateTime time) {
+        return StatsDateTimeFormat.format(time);
+    }
+}
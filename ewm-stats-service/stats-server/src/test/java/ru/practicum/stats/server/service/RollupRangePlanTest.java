@@ -0,0 +1,49 @@
+package ru.practicum.stats.server.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.server.model.RollupGranularity;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Модульные тесты для {@link RollupRangePlan}.
+ */
+class RollupRangePlanTest {
+
+    @Test
+    void of_rangeWithinOneMinute_readsOnlyRawHits() {
+        RollupRangePlan plan = RollupRangePlan.of(time("10:00:05"), time("10:00:40"));
+
+        assertThat(plan.bucketSlices()).isEmpty();
+        assertThat(plan.rawSlices()).containsExactly(
+                new RollupRangePlan.RawSlice(time("10:00:05"), time("10:00:40")));
+    }
+
+    @Test
+    void of_rangeAlignedToHours_readsOnlyHourBuckets() {
+        RollupRangePlan plan = RollupRangePlan.of(time("10:00:00"), time("12:59:59"));
+
+        assertThat(plan.rawSlices()).isEmpty();
+        assertThat(plan.bucketSlices()).containsExactly(
+                new RollupRangePlan.BucketSlice(RollupGranularity.HOUR, time("10:00:00"), time("12:00:00")));
+    }
+
+    @Test
+    void of_unalignedRange_splitsIntoHoursMinutesAndRawEdges() {
+        RollupRangePlan plan = RollupRangePlan.of(time("10:15:30"), time("13:20:10"));
+
+        assertThat(plan.bucketSlices()).containsExactly(
+                new RollupRangePlan.BucketSlice(RollupGranularity.MINUTE, time("10:16:00"), time("10:59:00")),
+                new RollupRangePlan.BucketSlice(RollupGranularity.HOUR, time("11:00:00"), time("12:00:00")),
+                new RollupRangePlan.BucketSlice(RollupGranularity.MINUTE, time("13:00:00"), time("13:19:00")));
+        assertThat(plan.rawSlices()).containsExactly(
+                new RollupRangePlan.RawSlice(time("10:15:30"), time("10:15:59")),
+                new RollupRangePlan.RawSlice(time("13:20:00"), time("13:20:10")));
+    }
+
+    private LocalDateTime time(String time) {
+        return LocalDateTime.parse("2025-11-23T" + time);
+    }
+}
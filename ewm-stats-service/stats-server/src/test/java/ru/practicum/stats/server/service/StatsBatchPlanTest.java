@@ -0,0 +1,54 @@
+package ru.practicum.stats.server.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Модульные тесты для {@link StatsBatchPlan}.
+ */
+class StatsBatchPlanTest {
+
+    private static final LocalDateTime DAY_AGO = LocalDateTime.of(2025, 11, 22, 12, 0, 0);
+    private static final LocalDateTime WEEK_AGO = LocalDateTime.of(2025, 11, 16, 12, 0, 0);
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 11, 23, 12, 0, 0);
+
+    @Test
+    void of_sameRangeAndUniqueness_groupedWithUnionOfUris() {
+        StatsBatchPlan plan = StatsBatchPlan.of(List.of(
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u1"), false, false),
+                StatsQuery.of(WEEK_AGO, NOW, List.of("/u1"), false, false),
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u2", "/u3"), false, false),
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u1"), true, false)));
+
+        assertThat(plan.groups()).extracting(StatsBatchPlan.Group::query).containsExactly(
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u1", "/u2", "/u3"), false, false),
+                StatsQuery.of(WEEK_AGO, NOW, List.of("/u1"), false, false),
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u1"), true, false));
+        assertThat(plan.groups().get(0).members()).extracting(StatsBatchPlan.Member::index).containsExactly(0, 2);
+    }
+
+    @Test
+    void of_memberWithoutUriFilter_groupReadsAllUrisAndMembersFilterRows() {
+        StatsBatchPlan plan = StatsBatchPlan.of(List.of(
+                StatsQuery.of(DAY_AGO, NOW, List.of("/u2"), false, false),
+                StatsQuery.of(DAY_AGO, NOW, null, false, false)));
+        List<ViewStatsDto> groupResult = List.of(
+                new ViewStatsDto("app1", "/u1", 5L),
+                new ViewStatsDto("app1", "/u2", 3L));
+
+        StatsBatchPlan.Group group = plan.groups().get(0);
+
+        assertThat(plan.groups()).hasSize(1);
+        assertThat(group.query().uris()).isNull();
+        assertThat(group.members().get(0)).isEqualTo(new StatsBatchPlan.Member(0, Set.of("/u2")));
+        assertThat(group.members().get(0).select(groupResult)).containsExactly(new ViewStatsDto("app1", "/u2", 3L));
+        assertThat(group.members().get(1).select(groupResult)).isEqualTo(groupResult);
+    }
+}
@@ -1,26 +1,44 @@
 package ru.practicum.stats.server.service;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.TestPropertySource;
 import ru.practicum.stats.dto.EndpointHitDto;
+import ru.practicum.stats.dto.StatsBatchQueryDto;
+import ru.practicum.stats.dto.StatsDateTimeFormat;
+import ru.practicum.stats.dto.StatsInterval;
+import ru.practicum.stats.dto.TimeSeriesStatsDto;
 import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.cache.StatsResultCache;
 import ru.practicum.stats.server.exception.ValidationException;
 import ru.practicum.stats.server.model.EndpointHit;
+import ru.practicum.stats.server.repository.HitRollupRepository;
+import ru.practicum.stats.server.repository.HitSketchRepository;
 import ru.practicum.stats.server.repository.StatsRepository;
+import ru.practicum.stats.server.sketch.HyperLogLog;
+import ru.practicum.stats.server.window.SlidingWindowCounters;
+import ru.practicum.stats.server.window.TopUriSketches;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 /**
  * Интеграционные тесты для {@link StatsServiceImpl}.
- * Используется встроенная база данных H2 для изоляции и скорости.
+ * Используется встроенная база данных H2 для изоляции и скорости, схема создаётся миграциями Flyway.
  * Тесты проверяют:
  * - сохранение хитов,
  * - получение статистики (с фильтрацией по времени, URI и уникальности),
@@ -30,7 +48,8 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 @TestPropertySource(properties = {
         "spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_DELAY=-1",
         "spring.datasource.driver-class-name=org.h2.Driver",
-        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.hibernate.ddl-auto=validate",
+        "stats.ingest.mode=direct",
         "spring.jpa.show-sql=false",
         "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
         "logging.level.ru.practicum.stats=DEBUG"
@@ -40,18 +59,55 @@ class StatsServiceImplTest {
     @Autowired
     private StatsService statsService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Autowired
     private StatsRepository statsRepository;
 
+    @Autowired
+    private HitRollupRepository hitRollupRepository;
+
+    @Autowired
+    private HitSketchRepository hitSketchRepository;
+
+    @Autowired
+    private StatsResultCache statsResultCache;
+
+    @Autowired
+    private SlidingWindowCounters slidingWindowCounters;
+
+    @Autowired
+    private TopUriSketches topUriSketches;
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
     @BeforeEach
     void setUp() {
         // Очистка не обязательна при ddl-auto=create-drop, но для надёжности:
         statsRepository.deleteAll();
+        hitRollupRepository.deleteAll();
+        hitSketchRepository.deleteAll();
+        statsResultCache.clear(); // таблицы очищены в обход записи хитов, кэш об этом не знает
+        slidingWindowCounters.clear();
+        topUriSketches.clear();
     }
 
     @AfterEach
     void tearDown() {
         statsRepository.deleteAll();
+        hitRollupRepository.deleteAll();
+        hitSketchRepository.deleteAll();
+    }
+
+    // ==================== ПОРЯДОК ИНИЦИАЛИЗАЦИИ ====================
+
+    @Test
+    void inMemoryWindows_loadedAfterAggregatesBackfill() {
+        // Счётчики окна и сводки популярных URI читают hit_rollups, который после миграции заполняет backfill
+        assertThat(beanFactory.getDependenciesForBean("slidingWindowCounters")).contains("hitAggregatesBackfill");
+        assertThat(beanFactory.getDependenciesForBean("topUriSketches")).contains("hitAggregatesBackfill");
     }
 
     // ==================== ТЕСТЫ ДЛЯ saveHit ====================
@@ -77,6 +133,45 @@ class StatsServiceImplTest {
         assertThat(hit.getTimestamp()).isEqualTo(LocalDateTime.of(2025, 11, 23, 10, 0, 0));
     }
 
+    @Test
+    void saveHits_batch_savesAllToDatabase() {
+        statsService.saveHits(List.of(
+                new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.1", "2025-11-23 10:00:00"),
+                new EndpointHitDto(null, "test-app", "/events/2", "192.168.1.2", "2025-11-23 10:00:01"),
+                new EndpointHitDto(null, "test-app", "/events/1", "192.168.1.3", "2025-11-23 10:00:02")
+        ));
+
+        List<EndpointHit> hits = statsRepository.findAll();
+        assertThat(hits).hasSize(3);
+        assertThat(hits)
+                .extracting(EndpointHit::getUri)
+                .containsExactlyInAnyOrder("/events/1", "/events/2", "/events/1");
+    }
+
+    @Test
+    void saveHitStream_longStream_savesAllInBatches() {
+        long accepted = statsService.saveHitStream(IntStream.range(0, 2500)
+                .mapToObj(i -> new EndpointHitDto(null, "app1", "/u" + (i % 3), "10.0.0." + (i % 200),
+                        "2025-11-23 10:00:00"))
+                .iterator());
+
+        assertThat(accepted).isEqualTo(2500);
+        assertThat(statsRepository.count()).isEqualTo(2500);
+    }
+
+    @Test
+    void saveHitStream_invalidRecord_keepsPreviousBatchesAndThrows() {
+        Iterator<EndpointHitDto> stream = IntStream.range(0, 1500)
+                .mapToObj(i -> new EndpointHitDto(null, "app1", "/u1", i == 1200 ? "not-an-ip" : "10.0.0.1",
+                        "2025-11-23 10:00:00"))
+                .iterator();
+
+        assertThatThrownBy(() -> statsService.saveHitStream(stream))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Запись 1201 потока хитов отклонена: Некорректный IP-адрес: not-an-ip");
+        assertThat(statsRepository.count()).isEqualTo(1000);
+    }
+
     // ==================== ТЕСТЫ ДЛЯ getStats ====================
 
     @Test
@@ -126,6 +221,213 @@ class StatsServiceImplTest {
                 .containsExactlyInAnyOrder("/u1", "/u2");
     }
 
+    @Test
+    void getStats_repeatedQuery_newHitInRangeInvalidatesCachedResult() {
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:00:00");
+        String start = urlEncode("2025-11-23 10:00:00");
+        String end = urlEncode("2025-11-23 12:00:00");
+        assertThat(statsService.getStats(start, end, List.of("/u1"), false).getFirst().getHits()).isEqualTo(1L);
+
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 11:30:00");
+
+        assertThat(statsService.getStats(start, end, List.of("/u1"), false).getFirst().getHits()).isEqualTo(2L);
+    }
+
+    @Test
+    void getStats_recordsQueryAndLoadMetricsByShape() {
+        Timer query = meterRegistry.get("stats.query")
+                .tags("unique", "true", "uris", "true", "approximate", "false").timer();
+        Timer load = meterRegistry.get("stats.query.load")
+                .tags("unique", "true", "uris", "true", "approximate", "false").timer();
+        Counter ingested = meterRegistry.get("stats.hits.ingested").tag("operation", "hit").counter();
+        long queries = query.count();
+        long loads = load.count();
+        double hits = ingested.count();
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:00:00");
+        String start = urlEncode("2025-11-23 10:00:00");
+        String end = urlEncode("2025-11-23 12:00:00");
+        statsService.getStats(start, end, List.of("/u1"), true);
+        statsService.getStats(start, end, List.of("/u1"), true);
+
+        // Второй запрос обслужен кэшем: время запроса записано дважды, чтение из БД — один раз
+        assertThat(query.count() - queries).isEqualTo(2);
+        assertThat(load.count() - loads).isEqualTo(1);
+        assertThat(ingested.count() - hits).isEqualTo(1.0);
+    }
+
+    @Test
+    void getStats_unknownUris_returnsEmpty() {
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:00:00");
+
+        List<ViewStatsDto> result = statsService.getStats(
+                urlEncode("2025-11-23 10:00:00"),
+                urlEncode("2025-11-23 12:00:00"),
+                List.of("/missing"),
+                false
+        );
+
+        assertThat(result).isEmpty();
+    }
+
+    @Test
+    void getStats_notUniqueAcrossBucketBoundaries_combinesRollupsAndRawEdges() {
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:00:10"); // вне диапазона
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:00:30"); // сырой левый край
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:59:59"); // минутная корзина
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:00:00"); // часовая корзина
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 11:30:00"); // часовая корзина
+        saveHit("app1", "/u2", "2.2.2.2", "2025-11-23 12:03:00"); // минутная корзина
+        saveHit("app1", "/u1", "3.3.3.3", "2025-11-23 12:05:20"); // сырой правый край, граница включительно
+        saveHit("app1", "/u1", "3.3.3.3", "2025-11-23 12:05:21"); // вне диапазона
+
+        List<ViewStatsDto> result = statsService.getStats(
+                urlEncode("2025-11-23 10:00:15"),
+                urlEncode("2025-11-23 12:05:20"),
+                null,
+                false
+        );
+
+        assertThat(result).containsExactly(
+                new ViewStatsDto("app1", "/u1", 5L),
+                new ViewStatsDto("app1", "/u2", 1L)
+        );
+    }
+
+    @Test
+    void getStats_recentRange_answeredFromWindowCountersWithoutDatabase() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        saveHit("app1", "/u1", "1.1.1.1", StatsDateTimeFormat.format(now.minusSeconds(30)));
+        saveHit("app1", "/u1", "2.2.2.2", StatsDateTimeFormat.format(now.minusMinutes(3)));
+        saveHit("app1", "/u2", "1.1.1.1", StatsDateTimeFormat.format(now.minusMinutes(2)));
+        saveHit("app1", "/u2", "1.1.1.1", StatsDateTimeFormat.format(now.minusMinutes(20))); // вне диапазона
+
+        // Строки удалены в обход записи хитов: ответ возможен только по счётчикам окна
+        statsRepository.deleteAll();
+        hitRollupRepository.deleteAll();
+        List<ViewStatsDto> result = statsService.getStats(
+                urlEncode(StatsDateTimeFormat.format(now.minusMinutes(5))),
+                urlEncode(StatsDateTimeFormat.format(now)),
+                null,
+                false
+        );
+
+        assertThat(result).containsExactly(
+                new ViewStatsDto("app1", "/u1", 2L),
+                new ViewStatsDto("app1", "/u2", 1L)
+        );
+    }
+
+    @Test
+    void getTopUris_recentHits_firstKUrisPerAppFromSketches() {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        saveHit("app1", "/u1", "1.1.1.1", StatsDateTimeFormat.format(now.minusMinutes(1)));
+        saveHit("app1", "/u2", "1.1.1.1", StatsDateTimeFormat.format(now.minusMinutes(2)));
+        saveHit("app1", "/u2", "2.2.2.2", StatsDateTimeFormat.format(now.minusMinutes(3)));
+        saveHit("app2", "/u3", "1.1.1.1", StatsDateTimeFormat.format(now.minusMinutes(4)));
+        saveHit("app1", "/u1", "1.1.1.1", StatsDateTimeFormat.format(now.minusHours(2))); // вне окна
+
+        List<ViewStatsDto> result = statsService.getTopUris(null, 1, null);
+
+        assertThat(result).containsExactly(
+                new ViewStatsDto("app1", "/u2", 2L),
+                new ViewStatsDto("app2", "/u3", 1L)
+        );
+        assertThat(statsService.getTopUris("app1", 5, 2)).containsExactly(new ViewStatsDto("app1", "/u1", 1L));
+    }
+
+    @Test
+    void getTopUris_kOrMinutesOutOfRange_throwsValidationException() {
+        assertThatThrownBy(() -> statsService.getTopUris(null, 0, null))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> statsService.getTopUris(null, 10, 61))
+                .isInstanceOf(ValidationException.class);
+    }
+
+    @Test
+    void getTimeSeries_hourlyBuckets_matchGetStatsPerBucket() {
+        // Края интервала — доли часа: корзины собираются из часовых, минутных агрегатов и сырых хитов
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 09:59:59"); // до начала интервала
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:30:15");
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 10:45:00");
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 11:00:00");
+        saveHit("app1", "/u2", "1.1.1.1", "2025-11-23 11:59:59");
+        saveHit("app1", "/u1", "3.3.3.3", "2025-11-23 12:10:05");
+        saveHit("app1", "/u1", "3.3.3.3", "2025-11-23 12:20:00"); // после конца интервала
+
+        List<TimeSeriesStatsDto> result = statsService.getTimeSeries(
+                "2025-11-23 10:30:00", "2025-11-23 12:15:00", null, false, StatsInterval.HOUR);
+
+        assertThat(result).containsExactly(
+                new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 10:00:00", 2L),
+                new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 11:00:00", 1L),
+                new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 12:00:00", 1L),
+                new TimeSeriesStatsDto("app1", "/u2", "2025-11-23 11:00:00", 1L)
+        );
+    }
+
+    @Test
+    void getTimeSeries_uniqueWithUriFilter_countsDistinctIpsPerBucket() {
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:00:10");
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:00:50"); // тот же IP в той же минуте
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:01:00"); // тот же IP в следующей минуте
+        saveHit("app1", "/u2", "2.2.2.2", "2025-11-23 10:00:30"); // исключён фильтром
+
+        List<TimeSeriesStatsDto> result = statsService.getTimeSeries(
+                "2025-11-23 10:00:00", "2025-11-23 10:05:00", List.of("/u1"), true, StatsInterval.MINUTE);
+
+        assertThat(result).containsExactly(
+                new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 10:00:00", 1L),
+                new TimeSeriesStatsDto("app1", "/u1", "2025-11-23 10:01:00", 1L)
+        );
+    }
+
+    @Test
+    void getTimeSeries_tooManyBuckets_throwsValidationException() {
+        assertThatThrownBy(() -> statsService.getTimeSeries(
+                "2025-11-01 00:00:00", "2025-11-30 00:00:00", null, false, StatsInterval.MINUTE))
+                .isInstanceOf(ValidationException.class);
+        assertThat(statsService.getTimeSeries(
+                "2025-11-01 00:00:00", "2025-11-30 00:00:00", null, false, StatsInterval.DAY)).isEmpty();
+    }
+
+    @Test
+    void getStatsBatch_severalWindows_matchSeparateQueriesInRequestOrder() {
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:00:00");
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-20 11:00:00");
+        saveHit("app1", "/u2", "1.1.1.1", "2025-11-23 11:30:00");
+        saveHit("app1", "/u3", "1.1.1.1", "2025-11-23 11:45:00");
+        saveHit("app1", "/u1", "1.1.1.1", "2025-10-01 11:00:00");
+
+        List<StatsBatchQueryDto> queries = List.of(
+                new StatsBatchQueryDto("2025-11-22 12:00:00", "2025-11-23 12:00:00", List.of("/u1", "/u2"), false),
+                new StatsBatchQueryDto("2025-11-16 12:00:00", "2025-11-23 12:00:00", List.of("/u1", "/u2"), false),
+                new StatsBatchQueryDto("2000-01-01 00:00:00", "2025-11-23 12:00:00", List.of("/u1", "/u2"), true),
+                new StatsBatchQueryDto("2025-11-22 12:00:00", "2025-11-23 12:00:00", List.of("/u3"), false));
+
+        List<List<ViewStatsDto>> results = statsService.getStatsBatch(queries);
+
+        assertThat(results).hasSize(4);
+        for (int i = 0; i < queries.size(); i++) {
+            StatsBatchQueryDto query = queries.get(i);
+            assertThat(results.get(i)).containsExactlyInAnyOrderElementsOf(statsService.getStats(
+                    query.getStart(), query.getEnd(), query.getUris(), query.isUnique()));
+        }
+        assertThat(results.get(3)).containsExactly(new ViewStatsDto("app1", "/u3", 1L));
+    }
+
+    @Test
+    void getStatsBatch_invalidQueryOrEmptyBatch_throwsValidationException() {
+        assertThatThrownBy(() -> statsService.getStatsBatch(List.of()))
+                .isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> statsService.getStatsBatch(List.of(
+                new StatsBatchQueryDto("2025-11-23 12:00:00", "2025-11-22 12:00:00", null, false))))
+                .isInstanceOf(ValidationException.class);
+    }
+
     @Test
     void getStats_uniqueCounts_onlyOneHitPerIp() {
 
@@ -181,6 +483,78 @@ class StatsServiceImplTest {
         assertThat(u2Stats.getHits()).isEqualTo(2L); // два уникальных IP: 1.1.1.1 и 3.3.3.3
     }
 
+    @Test
+    void getStats_uniqueApproximate_mergesHourSketchesAndRawEdges() {
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:30:00"); // сырой левый край
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 11:10:00"); // часовой скетч
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 11:20:00"); // тот же IP в другом часе — не считается
+        saveHit("app1", "/u1", "3.3.3.3", "2025-11-23 12:40:00"); // часовой скетч
+        saveHit("app1", "/u1", "4.4.4.4", "2025-11-23 13:05:00"); // сырой правый край
+        saveHit("app1", "/u1", "5.5.5.5", "2025-11-23 13:30:00"); // вне диапазона
+
+        List<ViewStatsDto> result = statsService.getStats(
+                urlEncode("2025-11-23 10:15:00"),
+                urlEncode("2025-11-23 13:10:00"),
+                List.of("/u1"),
+                true,
+                true
+        );
+
+        assertThat(result).hasSize(1);
+        assertThat(result.getFirst().getHits()).isEqualTo(4L); // на малых мощностях оценка точна
+        assertThat(result.getFirst().getRelativeError()).isEqualTo(HyperLogLog.STANDARD_ERROR);
+    }
+
+    @Test
+    void streamStats_matchesListResultInHitsOrder() {
+
+        saveHit("app1", "/u1", "1.1.1.1", "2025-11-23 10:59:30"); // сырой край
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 11:15:00"); // минутная корзина
+        saveHit("app1", "/u1", "2.2.2.2", "2025-11-23 12:10:00"); // часовая корзина
+        saveHit("app1", "/u2", "3.3.3.3", "2025-11-23 12:20:00");
+        saveHit("app2", "/u3", "4.4.4.4", "2025-11-23 15:00:00"); // вне диапазона
+
+        for (boolean unique : new boolean[]{false, true}) {
+            StatsQuery query = statsService.prepareQuery(
+                    urlEncode("2025-11-23 10:59:00"), urlEncode("2025-11-23 13:59:59"), null, unique, false, null, 0);
+            List<ViewStatsDto> streamed = new ArrayList<>();
+
+            int count = statsService.streamStats(query, streamed::add);
+
+            assertThat(count).isEqualTo(2);
+            assertThat(streamed).extracting(ViewStatsDto::getUri).containsExactly("/u1", "/u2");
+            assertThat(streamed).extracting(ViewStatsDto::getHits).containsExactly(unique ? 2L : 3L, 1L);
+        }
+    }
+
+    @Test
+    void getStats_limitAndOffset_returnsPageOrderedByHits() {
+
+        for (int uri = 1; uri <= 4; uri++) {
+            for (int i = 0; i < uri; i++) {
+                saveHit("app1", "/u" + uri, "10.0.0." + i, "2025-11-23 11:00:0" + i);
+            }
+        }
+
+        for (boolean unique : new boolean[]{false, true}) {
+            List<ViewStatsDto> page = statsService.getStats(
+                    urlEncode("2025-11-23 10:00:00"), urlEncode("2025-11-23 12:00:00"), null, unique, false, 2, 1);
+
+            assertThat(page).extracting(ViewStatsDto::getUri).containsExactly("/u3", "/u2");
+            assertThat(page).extracting(ViewStatsDto::getHits).containsExactly(3L, 2L);
+        }
+    }
+
+    @Test
+    void getStats_nonPositiveLimit_throwsValidationException() {
+
+        assertThatThrownBy(() -> statsService.getStats(
+                urlEncode("2025-11-23 10:00:00"), urlEncode("2025-11-23 12:00:00"), null, false, false, 0, 0))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Параметр limit должен быть положительным");
+    }
+
     @Test
     void getStats_startAfterEnd_throwsIllegalArgumentException() {
 
@@ -204,6 +578,29 @@ class StatsServiceImplTest {
                 .hasMessageStartingWith("Некорректный формат даты для параметра:");
     }
 
+    @Test
+    void saveHit_invalidIp_throwsValidationException() {
+
+        assertThatThrownBy(() -> saveHit("app1", "/u1", "not-an-ip", "2025-11-23 11:00:00"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Некорректный IP-адрес: not-an-ip");
+    }
+
+    @Test
+    void saveHit_blankOrTooLongAppOrUri_throwsValidationException() {
+
+        assertThatThrownBy(() -> saveHit(null, "/u1", "1.1.1.1", "2025-11-23 11:00:00"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Не указано название сервиса");
+        assertThatThrownBy(() -> saveHit("app1", " ", "1.1.1.1", "2025-11-23 11:00:00"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Не указано название URI");
+        assertThatThrownBy(() -> saveHit("app1", "/" + "u".repeat(200), "1.1.1.1", "2025-11-23 11:00:00"))
+                .isInstanceOf(ValidationException.class)
+                .hasMessage("Название URI длиннее 200 символов");
+        assertThat(statsRepository.count()).isZero();
+    }
+
     // ==================== ВСПОМОГАТЕЛЬНЫЕ МЕТОДЫ ====================
 
     private void saveHit(String app, String uri, String ip, String timestamp) {
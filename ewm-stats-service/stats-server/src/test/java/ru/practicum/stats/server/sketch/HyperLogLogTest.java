@@ -0,0 +1,59 @@
+package ru.practicum.stats.server.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Модульные тесты для {@link HyperLogLog}.
+ */
+class HyperLogLogTest {
+
+    @Test
+    void estimate_largeCardinality_withinThreeStandardErrors() {
+        HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 100_000; i++) {
+            sketch.offer(ip(i));
+            sketch.offer(ip(i)); // повторы не влияют на оценку
+        }
+
+        assertThat((double) sketch.estimate())
+                .isCloseTo(100_000, within(100_000 * 3 * HyperLogLog.STANDARD_ERROR));
+    }
+
+    @Test
+    void merge_overlappingSketches_estimatesUnion() {
+        HyperLogLog first = new HyperLogLog();
+        HyperLogLog second = new HyperLogLog();
+        for (int i = 0; i < 30_000; i++) {
+            first.offer(ip(i));
+            second.offer(ip(i + 20_000));
+        }
+
+        first.merge(second);
+
+        assertThat((double) first.estimate())
+                .isCloseTo(50_000, within(50_000 * 3 * HyperLogLog.STANDARD_ERROR));
+    }
+
+    @Test
+    void toBytes_sparseAndDense_roundTrip() {
+        HyperLogLog small = new HyperLogLog();
+        small.offer("10.0.0.1");
+        small.offer("10.0.0.2");
+        HyperLogLog large = new HyperLogLog();
+        for (int i = 0; i < 50_000; i++) {
+            large.offer(ip(i));
+        }
+
+        assertThat(small.toBytes()).hasSize(1 + 2 * 3);
+        assertThat(large.toBytes()).hasSize(HyperLogLog.MAX_SERIALIZED_SIZE);
+        assertThat(HyperLogLog.fromBytes(small.toBytes()).estimate()).isEqualTo(2L);
+        assertThat(HyperLogLog.fromBytes(large.toBytes()).estimate()).isEqualTo(large.estimate());
+    }
+
+    private String ip(int i) {
+        return "10." + (i >>> 16 & 0xFF) + "." + (i >>> 8 & 0xFF) + "." + (i & 0xFF);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.stats.server.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Модульные тесты для {@link SpaceSaving}.
+ */
+class SpaceSavingTest {
+
+    @Test
+    void top_fewerValuesThanCapacity_exactCountsInOrder() {
+        SpaceSaving summary = new SpaceSaving(10);
+        summary.offer("/events/2");
+        summary.offer("/events/1", 3);
+        summary.offer("/events/2");
+        summary.offer("/events/3", 2);
+
+        assertThat(summary.top(2)).containsExactly(
+                new SpaceSaving.Counter("/events/1", 3, 0),
+                new SpaceSaving.Counter("/events/2", 2, 0));
+    }
+
+    @Test
+    void top_skewedStreamOverCapacity_keepsHeavyHittersWithinErrorBound() {
+        SpaceSaving summary = new SpaceSaving(20);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            // Пять популярных URI получают половину хитов, остальные размазаны по тысяче URI
+            String uri = random.nextBoolean() ? "/hot/" + random.nextInt(5) : "/cold/" + random.nextInt(1_000);
+            summary.offer(uri);
+            exact.merge(uri, 1L, Long::sum);
+        }
+
+        List<SpaceSaving.Counter> top = summary.top(5);
+
+        assertThat(top).extracting(SpaceSaving.Counter::value)
+                .containsExactlyInAnyOrder("/hot/0", "/hot/1", "/hot/2", "/hot/3", "/hot/4");
+        assertThat(top).allSatisfy(counter -> assertThat(exact.get(counter.value()))
+                .isBetween(counter.count() - counter.error(), counter.count()));
+    }
+
+    @Test
+    void merge_fullAndPartialSummaries_countsStayUpperBounds() {
+        SpaceSaving first = new SpaceSaving(2);
+        first.offer("/a", 5);
+        first.offer("/b", 3);
+        first.offer("/c", 1); // вытесняет /b и наследует его счётчик: 4 с погрешностью 3
+        SpaceSaving second = new SpaceSaving(2);
+        second.offer("/b", 2);
+
+        SpaceSaving merged = SpaceSaving.merge(List.of(first, second), 2);
+
+        // /b отсутствует в заполненной первой сводке: к счётчику добавлен её минимум 4
+        assertThat(merged.top(2)).containsExactly(
+                new SpaceSaving.Counter("/b", 6, 4),
+                new SpaceSaving.Counter("/a", 5, 0));
+        assertThat(merged.size()).isEqualTo(2);
+    }
+}
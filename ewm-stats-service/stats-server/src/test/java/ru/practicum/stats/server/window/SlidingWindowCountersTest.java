@@ -0,0 +1,179 @@
+package ru.practicum.stats.server.window;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.cache.StatsQuery;
+import ru.practicum.stats.server.dictionary.HitDictionary;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Модульные тесты для {@link SlidingWindowCounters} с фиксированными часами, без БД.
+ * Окно: 600 секунд посекундно и 360 минут поминутно.
+ */
+class SlidingWindowCountersTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 30, 20);
+    private static final String APP = "ewm-main-service";
+    // Идентификаторы URI выдаются в порядке первого обращения и не совпадают с порядком имён
+    private static final HitDictionary DICTIONARY = dictionary();
+
+    private final SlidingWindowCounters counters = counters(NOW);
+
+    @Test
+    void getStats_recentRangeWithUnalignedEdges_countsEverySecond() {
+        counters.record(List.of(
+                hit("/events/1", NOW.minusSeconds(5)),
+                hit("/events/1", NOW.minusSeconds(5)),
+                hit("/events/1", NOW.minusMinutes(3)),
+                hit("/events/2", NOW.minusMinutes(4).minusSeconds(1)),
+                hit("/events/2", NOW.minusMinutes(20))));
+        StatsQuery query = StatsQuery.of(NOW.minusMinutes(4), NOW, null, false, false);
+
+        assertThat(counters.covers(query)).isTrue();
+        assertThat(counters.getStats(query)).containsExactly(new ViewStatsDto(APP, "/events/1", 3L));
+    }
+
+    @Test
+    void getStats_hoursOldMinuteAlignedRange_answeredFromMinuteCounters() {
+        LocalDateTime hourAgo = NOW.minusHours(1).withSecond(0);
+        counters.record(IntStream.range(0, 5).mapToObj(i -> hit("/events/" + i % 2, hourAgo.plusSeconds(i * 50))).toList());
+        StatsQuery aligned = StatsQuery.of(hourAgo, hourAgo.plusMinutes(5).minusSeconds(1), null, false, false);
+        StatsQuery unaligned = StatsQuery.of(hourAgo.plusSeconds(10), hourAgo.plusMinutes(5), null, false, false);
+
+        assertThat(counters.covers(aligned)).isTrue();
+        assertThat(counters.getStats(aligned)).containsExactly(
+                new ViewStatsDto(APP, "/events/0", 3L),
+                new ViewStatsDto(APP, "/events/1", 2L));
+        // Доля минуты часовой давности уже вышла из посекундного окна
+        assertThat(counters.covers(unaligned)).isFalse();
+    }
+
+    @Test
+    void covers_rangeOutsideWindowUniqueOrWithFutureHits_fallsBackToDatabase() {
+        counters.record(List.of(hit("/events/1", NOW.plusHours(2))));
+
+        assertThat(counters.covers(StatsQuery.of(NOW.minusHours(7).withSecond(0), NOW, null, false, false))).isFalse();
+        assertThat(counters.covers(StatsQuery.of(NOW.minusMinutes(1), NOW, null, true, false))).isFalse();
+        assertThat(counters.covers(StatsQuery.of(NOW.minusMinutes(1), NOW.plusDays(1), null, false, false))).isFalse();
+        assertThat(counters.covers(StatsQuery.of(NOW.minusMinutes(1), NOW.plusMinutes(30), null, false, false))).isTrue();
+    }
+
+    @Test
+    void getStats_uriFilterAndPage_appliedInMemory() {
+        counters.record(List.of(
+                hit("/events/1", NOW), hit("/events/1", NOW),
+                hit("/events/2", NOW), hit("/events/2", NOW), hit("/events/2", NOW),
+                hit("/events/3", NOW)));
+        StatsQuery filtered = StatsQuery.of(NOW.minusMinutes(1), NOW, List.of("/events/1", "/events/3"), false, false);
+        StatsQuery page = StatsQuery.of(NOW.minusMinutes(1), NOW, null, false, false, 1, 1);
+
+        assertThat(counters.getStats(filtered)).extracting(ViewStatsDto::getUri).containsExactly("/events/1", "/events/3");
+        assertThat(counters.getStats(page)).containsExactly(new ViewStatsDto(APP, "/events/1", 2L));
+    }
+
+    @Test
+    void evictIdle_pairWithoutHitsInWindow_removed() {
+        MovingClock clock = new MovingClock(NOW);
+        SlidingWindowCounters moving = new SlidingWindowCounters(null, DICTIONARY, true, 600, 360, 10_000, clock);
+        moving.clear();
+        moving.record(List.of(hit("/events/1", NOW), hit("/events/2", NOW)));
+
+        clock.now = NOW.plusHours(6).plusMinutes(2);
+        moving.record(List.of(hit("/events/2", clock.now)));
+        moving.evictIdle();
+
+        assertThat(moving.pairs()).isEqualTo(1);
+        assertThat(moving.getStats(StatsQuery.of(clock.now.minusMinutes(1), clock.now, null, false, false)))
+                .containsExactly(new ViewStatsDto(APP, "/events/2", 1L));
+    }
+
+    @Test
+    void record_pairLimitReached_newPairMinuteFallsBackToDatabase() {
+        MovingClock clock = new MovingClock(NOW);
+        SlidingWindowCounters limited = new SlidingWindowCounters(null, DICTIONARY, true, 600, 360, 1, clock);
+        limited.clear();
+        limited.record(List.of(hit("/events/1", NOW.minusMinutes(9)), hit("/events/2", NOW)));
+        StatsQuery older = StatsQuery.of(NOW.minusMinutes(9).minusSeconds(30), NOW.minusMinutes(8), null, false, false);
+
+        assertThat(limited.pairs()).isEqualTo(1);
+        assertThat(limited.covers(older)).isTrue();
+        assertThat(limited.getStats(older)).containsExactly(new ViewStatsDto(APP, "/events/1", 1L));
+        assertThat(limited.covers(StatsQuery.of(NOW.minusMinutes(1), NOW, null, false, false))).isFalse();
+
+        // Пара вышла из окна — место освобождается для новой
+        clock.now = NOW.plusHours(6).plusMinutes(2);
+        limited.evictIdle();
+        limited.record(List.of(hit("/events/2", clock.now)));
+        assertThat(limited.getStats(StatsQuery.of(clock.now.minusMinutes(1), clock.now, null, false, false)))
+                .containsExactly(new ViewStatsDto(APP, "/events/2", 1L));
+    }
+
+    @Test
+    void getStats_equalHits_orderedByDictionaryIdsLikeSql() {
+        counters.record(List.of(hit("/tie/b", NOW), hit("/tie/a", NOW), hit("/tie/c", NOW), hit("/tie/c", NOW)));
+        StatsQuery query = StatsQuery.of(NOW.minusMinutes(1), NOW, List.of("/tie/a", "/tie/b", "/tie/c"), false, false);
+
+        // /tie/b получил идентификатор раньше /tie/a, поэтому при равенстве просмотров идёт первым
+        assertThat(counters.getStats(query)).extracting(ViewStatsDto::getUri)
+                .containsExactly("/tie/c", "/tie/b", "/tie/a");
+    }
+
+    private static SlidingWindowCounters counters(LocalDateTime now) {
+        SlidingWindowCounters counters = new SlidingWindowCounters(null, DICTIONARY, true, 600, 360, 10_000,
+                Clock.fixed(now.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        counters.clear();
+        return counters;
+    }
+
+    private static HitDictionary dictionary() {
+        Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+        HitDictionary dictionary = mock(HitDictionary.class);
+        when(dictionary.findAppId(anyString())).thenReturn(1);
+        when(dictionary.findUriId(anyString()))
+                .thenAnswer(call -> uriIds.computeIfAbsent(call.getArgument(0), uri -> uriIds.size() + 1));
+        return dictionary;
+    }
+
+    private static EndpointHit hit(String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder().app(APP).uri(uri).ip("10.0.0.1").timestamp(timestamp).build();
+    }
+
+    private static final class MovingClock extends Clock {
+
+        private LocalDateTime now;
+
+        MovingClock(LocalDateTime now) {
+            this.now = now;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.toInstant(ZoneOffset.UTC);
+        }
+    }
+}
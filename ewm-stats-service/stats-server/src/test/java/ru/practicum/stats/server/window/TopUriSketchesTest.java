@@ -0,0 +1,98 @@
+package ru.practicum.stats.server.window;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.stats.dto.ViewStatsDto;
+import ru.practicum.stats.server.model.EndpointHit;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Модульные тесты для {@link TopUriSketches} с фиксированными часами, без БД.
+ * Окно — 60 минут.
+ */
+class TopUriSketchesTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 30, 20);
+    private static final String MAIN = "ewm-main-service";
+    private static final String ADMIN = "ewm-admin-service";
+
+    @Test
+    void top_severalApps_firstKUrisOfEachAppByHits() {
+        TopUriSketches sketches = sketches(100);
+        sketches.record(List.of(
+                hit(MAIN, "/events/1", NOW), hit(MAIN, "/events/1", NOW.minusMinutes(10)),
+                hit(MAIN, "/events/2", NOW), hit(MAIN, "/events/2", NOW.minusMinutes(20)),
+                hit(MAIN, "/events/2", NOW.minusMinutes(30)),
+                hit(MAIN, "/events/3", NOW),
+                hit(ADMIN, "/admin/events", NOW)));
+
+        assertThat(sketches.top(null, 2, 60)).containsExactly(
+                new ViewStatsDto(ADMIN, "/admin/events", 1L),
+                new ViewStatsDto(MAIN, "/events/2", 3L),
+                new ViewStatsDto(MAIN, "/events/1", 2L));
+        assertThat(sketches.top(MAIN, 10, 15)).containsExactly(
+                new ViewStatsDto(MAIN, "/events/1", 2L),
+                new ViewStatsDto(MAIN, "/events/2", 1L),
+                new ViewStatsDto(MAIN, "/events/3", 1L));
+        assertThat(sketches.top("unknown", 10, 60)).isEmpty();
+    }
+
+    @Test
+    void top_moreUrisThanCapacity_heavyHittersKeptWithErrorBound() {
+        TopUriSketches sketches = sketches(10);
+        List<EndpointHit> hits = new ArrayList<>();
+        for (int minute = 0; minute < 30; minute++) {
+            for (int i = 0; i < 5; i++) {
+                hits.add(hit(MAIN, "/events/hot", NOW.minusMinutes(minute)));
+            }
+            for (int i = 0; i < 20; i++) {
+                hits.add(hit(MAIN, "/events/cold/" + (minute * 20 + i), NOW.minusMinutes(minute)));
+            }
+        }
+        sketches.record(hits);
+
+        List<ViewStatsDto> top = sketches.top(MAIN, 2, 60);
+
+        // Популярный URI не вытесняется ни из одной минутной сводки, поэтому его счётчик точный
+        assertThat(top.get(0)).isEqualTo(new ViewStatsDto(MAIN, "/events/hot", 150L));
+        // Редкий URI получает оценку сверху с указанием завышения: истинное значение — 1
+        ViewStatsDto cold = top.get(1);
+        assertThat(cold.getUri()).startsWith("/events/cold/");
+        assertThat(cold.getRelativeError()).isNull();
+        assertThat(cold.getMaxOvercount()).isNotNull();
+        assertThat(cold.getHits() - cold.getMaxOvercount()).isLessThanOrEqualTo(1L);
+    }
+
+    @Test
+    void record_hitsOutsideWindow_ignoredAndIdleAppsEvicted() {
+        TopUriSketches sketches = sketches(100);
+        sketches.record(List.of(
+                hit(MAIN, "/events/1", NOW.minusMinutes(60)),
+                hit(MAIN, "/events/1", NOW.plusMinutes(5)),
+                hit(ADMIN, "/admin/events", NOW.minusMinutes(59))));
+
+        assertThat(sketches.top(null, 10, 60)).containsExactly(new ViewStatsDto(ADMIN, "/admin/events", 1L));
+        assertThat(sketches.top(null, 10, 59)).isEmpty();
+
+        sketches.evictIdle();
+
+        assertThat(sketches.top(null, 10, 60)).hasSize(1);
+    }
+
+    private static TopUriSketches sketches(int capacity) {
+        TopUriSketches sketches = new TopUriSketches(null, null, true, 60, capacity,
+                Clock.fixed(NOW.toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        sketches.clear();
+        return sketches;
+    }
+
+    private static EndpointHit hit(String app, String uri, LocalDateTime timestamp) {
+        return EndpointHit.builder().app(app).uri(uri).ip("10.0.0.1").timestamp(timestamp).build();
+    }
+}